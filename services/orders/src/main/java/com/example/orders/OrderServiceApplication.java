@@ -3,11 +3,13 @@ package com.example.orders;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing; 
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 // Lớp chính (Main Class) để khởi chạy Orders Service.
 @SpringBootApplication
 @EnableJpaAuditing // Kích hoạt tính năng tự động điền @CreatedDate và @LastModifiedDate
+@EnableScheduling // Cho các job nền (outbox dispatcher)
 public class OrderServiceApplication {
 
 	public static void main(String[] args) {
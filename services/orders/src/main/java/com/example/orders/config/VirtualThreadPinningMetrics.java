@@ -0,0 +1,77 @@
+package com.example.orders.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ghi nhận các lần virtual thread bị "pin" vào carrier thread (giữ monitor của khối synchronized,
+ * driver JDBC... trong lúc chờ I/O) qua sự kiện JFR {@code jdk.VirtualThreadPinned}.
+ * Chỉ bật khi chạy ở chế độ virtual thread ({@code spring.threads.virtual.enabled=true}).
+ * Metric: {@code jvm.threads.virtual.pinned} (số lần + thời gian bị pin).
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadPinningMetrics {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Timer pinnedTimer;
+    private RecordingStream recordingStream;
+
+    @Value("${app.virtual-threads.pinned-threshold-ms:20}")
+    private long pinnedThresholdMs = 20;
+
+    public VirtualThreadPinningMetrics(MeterRegistry meterRegistry) {
+        this.pinnedTimer = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Thời gian virtual thread bị pin vào carrier thread")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(pinnedThresholdMs))
+                .withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Đang theo dõi virtual thread bị pin (ngưỡng {}ms)", pinnedThresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedTimer.record(event.getDuration());
+        if (log.isDebugEnabled()) {
+            log.debug("Virtual thread bị pin {}ms tại {}", event.getDuration().toMillis(), firstAppFrame(event));
+        }
+    }
+
+    private static String firstAppFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "?";
+        return event.getStackTrace().getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .filter(frame -> frame.startsWith("com.example."))
+                .findFirst()
+                .orElse("?");
+    }
+}
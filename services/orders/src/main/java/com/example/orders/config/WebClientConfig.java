@@ -1,26 +1,34 @@
 package com.example.orders.config;
 
-import io.netty.channel.ChannelOption; 
-import io.netty.handler.timeout.ReadTimeoutHandler; 
-import io.netty.handler.timeout.WriteTimeoutHandler; 
-import java.util.concurrent.TimeUnit; 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType; 
-import org.springframework.http.client.reactive.ReactorClientHttpConnector; 
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.netty.http.client.HttpClient; 
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
- * Lớp cấu hình để tạo và quản lý một Bean {@link WebClient} duy nhất (singleton). 
- * WebClient này được cấu hình sẵn với timeouts và headers mặc định,
- * dùng để thực hiện các cuộc gọi HTTP bất đồng bộ đến các microservice khác.
+ * Lớp cấu hình tạo các Bean {@link WebClient} gọi sang các microservice khác.
+ * Mỗi service phía sau (users, products) có {@link ConnectionProvider} riêng để một service chậm
+ * không chiếm hết kết nối của service kia. Pool được đặt tên, bật metric
+ * ({@code reactor.netty.connection.provider.*}, tag {@code name}) để phân biệt độ trễ do chờ kết nối
+ * với độ trễ của chính service phía sau.
  */
 @Configuration
+@Slf4j
 public class WebClientConfig {
 
+    private static final String WRITE_TIMEOUT_HANDLER = "orders.writeTimeout";
+
     /**
      * Thời gian timeout (mili giây) cho các thao tác mạng (kết nối, đọc, ghi).
      * Được lấy từ application.properties, với giá trị mặc định là 5000ms (5 giây).
@@ -28,22 +36,96 @@ public class WebClientConfig {
     @Value("${app.client.timeout-ms:5000}")
     private int timeoutMs;
 
+    @Value("${app.client.users-service.pool.max-connections:50}")
+    private int usersMaxConnections;
+
+    @Value("${app.client.users-service.pool.pending-acquire-max-count:500}")
+    private int usersPendingAcquireMaxCount;
+
+    @Value("${app.client.products-service.pool.max-connections:100}")
+    private int productsMaxConnections;
+
+    @Value("${app.client.products-service.pool.pending-acquire-max-count:1000}")
+    private int productsPendingAcquireMaxCount;
+
+    // Thời gian tối đa chờ lấy kết nối từ pool khi pool đã dùng hết
+    @Value("${app.client.pool.pending-acquire-timeout-ms:2000}")
+    private long pendingAcquireTimeoutMs;
+
+    // Phải nhỏ hơn keep-alive timeout phía server để không dùng lại kết nối server vừa đóng
+    @Value("${app.client.pool.max-idle-time-ms:15000}")
+    private long maxIdleTimeMs;
+
+    @Value("${app.client.pool.max-life-time-ms:300000}")
+    private long maxLifeTimeMs;
+
+    @Value("${app.client.pool.evict-interval-ms:10000}")
+    private long evictIntervalMs;
+
+    // h2c: một kết nối HTTP/2 (không TLS) chạy nhiều request song song; server phải bật server.http2.enabled
+    @Value("${app.client.http2.enabled:false}")
+    private boolean http2Enabled;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider usersConnectionProvider() {
+        return connectionProvider("users-service", usersMaxConnections, usersPendingAcquireMaxCount);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider productsConnectionProvider() {
+        return connectionProvider("products-service", productsMaxConnections, productsPendingAcquireMaxCount);
+    }
+
+    @Bean
+    public WebClient usersWebClient() {
+        return buildWebClient(usersConnectionProvider());
+    }
+
+    @Bean
+    public WebClient productsWebClient() {
+        return buildWebClient(productsConnectionProvider());
+    }
+
+    private ConnectionProvider connectionProvider(String name, int maxConnections, int pendingAcquireMaxCount) {
+        log.info("Pool kết nối {}: tối đa {} kết nối, {} request chờ, HTTP/2 (h2c) = {}",
+                name, maxConnections, pendingAcquireMaxCount, http2Enabled);
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                // Dọn kết nối idle/hết hạn định kỳ thay vì chỉ khi lấy ra khỏi pool
+                .evictInBackground(Duration.ofMillis(evictIntervalMs))
+                // Ưu tiên kết nối vừa dùng xong (còn "nóng"), để các kết nối ít dùng hết hạn và bị dọn
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
     /**
-     * Tạo ra Bean WebClient được cấu hình sẵn.
-     * @return Một instance của WebClient.
+     * Tạo WebClient với timeouts, keep-alive và headers mặc định trên pool kết nối cho trước.
      */
-    @Bean
-    public WebClient webClient() {
+    private WebClient buildWebClient(ConnectionProvider connectionProvider) {
         // 1. Cấu hình HttpClient của Reactor Netty với các timeouts
-        HttpClient httpClient = HttpClient.create()
+        HttpClient httpClient = HttpClient.create(connectionProvider)
                 // Timeout cho việc thiết lập kết nối ban đầu
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMs)
-                // Cấu hình timeouts cho việc đọc và ghi dữ liệu sau khi kết nối thành công
-                .doOnConnected(conn -> conn
-                        .addHandlerLast(new ReadTimeoutHandler(timeoutMs, TimeUnit.MILLISECONDS))
-                        .addHandlerLast(new WriteTimeoutHandler(timeoutMs, TimeUnit.MILLISECONDS))
-                );
-       
+                // TCP keep-alive để phát hiện kết nối chết trong pool (ví dụ pod phía sau bị xoá)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                // Timeout đọc/ghi chỉ tính trong lúc có request. Gắn trong doOnConnected thì handler nằm lại
+                // trên kết nối suốt vòng đời trong pool và đóng kết nối idle sau timeout-ms, trước max-idle-time
+                .responseTimeout(Duration.ofMillis(timeoutMs))
+                .doOnRequest((request, conn) -> conn
+                        .addHandlerLast(WRITE_TIMEOUT_HANDLER, new WriteTimeoutHandler(timeoutMs, TimeUnit.MILLISECONDS)))
+                .doOnResponse((response, conn) -> conn.removeHandler(WRITE_TIMEOUT_HANDLER));
+
+        if (http2Enabled) {
+            // Nâng cấp lên h2c nếu server hỗ trợ, nếu không thì dùng tiếp HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
         // 2. Xây dựng WebClient sử dụng HttpClient đã cấu hình
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
@@ -1,10 +1,17 @@
 package com.example.orders.controller;
 
+import com.example.orders.dto.BulkOrderStatusUpdateRequest;
+import com.example.orders.dto.BulkOrderStatusUpdateResult;
 import com.example.orders.dto.DashboardStats;
 import com.example.orders.dto.OrderCreateRequest;
+import com.example.orders.dto.OrderCursorPage;
+import com.example.orders.dto.OrderExportFormat;
 import com.example.orders.dto.OrderResponse;
 import com.example.orders.dto.OrderStatusUpdate;
+import com.example.orders.dto.RollupRebuildResult;
 import com.example.orders.dto.DashboardStats; 
+import com.example.orders.service.IdempotentOrderService;
+import com.example.orders.service.OrderExportService;
 import com.example.orders.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,11 +27,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
 
 @Tag(name = "Order Controller", description = "APIs quản lý đơn hàng (User & Admin)")
 @RestController
@@ -34,14 +50,20 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final IdempotentOrderService idempotentOrderService;
 
     @Operation(summary = "Tạo đơn hàng mới", security = @SecurityRequirement(name = "bearerAuth"))
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             @Valid @RequestBody OrderCreateRequest orderRequest,
+            @Parameter(description = "Khoá chống tạo trùng khi client retry; cùng key trả lại đúng đơn đã tạo")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Parameter(hidden = true) @RequestHeader("Authorization") String bearerToken) {
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(orderService.createOrder(orderRequest, bearerToken));
+        OrderResponse response = idempotencyKey != null
+                ? idempotentOrderService.createOrder(idempotencyKey, orderRequest, bearerToken)
+                : orderService.createOrder(orderRequest, bearerToken);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @Operation(summary = "Lịch sử đơn hàng của tôi", security = @SecurityRequirement(name = "bearerAuth"))
@@ -53,6 +75,19 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrders(authentication.getName(), bearerToken, pageable));
     }
 
+    @Operation(
+            summary = "Lịch sử đơn hàng của tôi (cursor)",
+            description = "Phân trang keyset theo (createdAt, id), không trả tổng số. Truyền nextCursor của trang trước để lấy trang sau.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @GetMapping("/my/cursor")
+    public ResponseEntity<OrderCursorPage> getMyOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(hidden = true) @RequestHeader("Authorization") String bearerToken) {
+        return ResponseEntity.ok(orderService.getOrdersByCursor(bearerToken, cursor, size));
+    }
+
     @Operation(summary = "Chi tiết đơn hàng", security = @SecurityRequirement(name = "bearerAuth"))
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponse> getOrderById(
@@ -77,6 +112,21 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders(pageable));
     }
 
+    @Operation(
+            summary = "[ADMIN] Lấy tất cả đơn hàng (cursor)",
+            description = "Phân trang keyset theo (createdAt, id), không trả tổng số. Nhanh như nhau ở mọi độ sâu trang.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponse(responseCode = "200", description = "Thành công")
+    @ApiResponse(responseCode = "400", description = "Cursor không hợp lệ")
+    @ApiResponse(responseCode = "403", description = "Không có quyền Admin")
+    @GetMapping("/cursor")
+    public ResponseEntity<OrderCursorPage> getAllOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(orderService.getAllOrdersByCursor(cursor, size));
+    }
+
     @Operation(
             summary = "[ADMIN] Cập nhật trạng thái đơn hàng",
             description = "Chuyển trạng thái đơn hàng (VD: PENDING -> CONFIRMED). Có kiểm tra luồng hợp lệ.",
@@ -93,6 +143,21 @@ public class OrderController {
         return ResponseEntity.ok(orderService.updateOrderStatus(orderId, statusUpdate));
     }
 
+    @Operation(
+            summary = "[ADMIN] Cập nhật trạng thái hàng loạt",
+            description = "Chuyển trạng thái nhiều đơn hàng trong một transaction. Mỗi đơn được kiểm tra luồng riêng và có kết quả riêng.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponse(responseCode = "200", description = "Đã xử lý, xem kết quả từng đơn")
+    @ApiResponse(responseCode = "400", description = "Payload không hợp lệ")
+    @PatchMapping("/status")
+    public ResponseEntity<List<BulkOrderStatusUpdateResult>> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkOrderStatusUpdateRequest request) {
+
+        log.info("Admin cập nhật trạng thái hàng loạt cho {} đơn hàng", request.updates().size());
+        return ResponseEntity.ok(orderService.bulkUpdateOrderStatus(request));
+    }
+
     @Operation(
             summary = "[ADMIN] Lấy thống kê Dashboard",
             description = "Trả về tổng doanh thu, tăng trưởng, biểu đồ tháng và đơn hàng mới nhất.",
@@ -104,4 +169,47 @@ public class OrderController {
         log.info("Admin đang lấy dữ liệu thống kê Dashboard...");
         return ResponseEntity.ok(orderService.getDashboardStats());
     }
-}
\ No newline at end of file
+
+    @Operation(
+            summary = "[ADMIN] Dựng lại rollup Dashboard",
+            description = "Tính lại số liệu gộp theo ngày/tháng từ bảng orders (backfill hoặc đối chiếu).",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/admin/dashboard/rollups/rebuild")
+    public ResponseEntity<RollupRebuildResult> rebuildDashboardRollups() {
+        log.info("Admin yêu cầu dựng lại rollup Dashboard...");
+        return ResponseEntity.ok(orderService.rebuildDashboardRollups());
+    }
+
+    @Operation(
+            summary = "[ADMIN] Export đơn hàng theo khoảng ngày",
+            description = "Stream toàn bộ đơn hàng (kèm items) có createdAt trong [from, to) theo UTC, định dạng ndjson hoặc csv.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponse(responseCode = "200", description = "Thành công")
+    @ApiResponse(responseCode = "400", description = "Khoảng ngày hoặc định dạng không hợp lệ")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        OrderExportFormat exportFormat = OrderExportFormat.fromParam(format);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Ngày bắt đầu phải trước ngày kết thúc.");
+        }
+        Instant fromInstant = from.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant toInstant = to.atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        log.info("Admin export đơn hàng từ {} đến {} ({})", from, to, exportFormat);
+        StreamingResponseBody body = out -> orderExportService.export(fromInstant, toInstant, exportFormat, out);
+
+        String filename = "orders-" + from + "_" + to + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.orders.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(description = "Payload chuyển trạng thái nhiều đơn hàng trong một lần gọi.")
+public record BulkOrderStatusUpdateRequest(
+
+        @Schema(description = "Danh sách (orderId, trạng thái mới)", requiredMode = Schema.RequiredMode.REQUIRED)
+        @NotEmpty(message = "Danh sách cập nhật không được để trống.")
+        @Size(max = 500, message = "Tối đa 500 đơn hàng mỗi lần cập nhật.")
+        @Valid
+        List<Item> updates
+) {
+
+    public record Item(
+            @Schema(description = "ID đơn hàng", example = "1")
+            @NotNull(message = "orderId không được để trống")
+            Long orderId,
+
+            @Schema(description = "Trạng thái mới", example = "SHIPPING")
+            @NotBlank(message = "Trạng thái mới không được để trống")
+            String status
+    ) {}
+}
@@ -0,0 +1,19 @@
+package com.example.orders.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Kết quả chuyển trạng thái của một đơn hàng trong lần cập nhật hàng loạt")
+public record BulkOrderStatusUpdateResult(
+
+        @Schema(description = "ID đơn hàng", example = "1")
+        Long orderId,
+
+        @Schema(description = "Cập nhật thành công hay không")
+        boolean success,
+
+        @Schema(description = "Trạng thái của đơn sau khi xử lý", example = "SHIPPING")
+        String status,
+
+        @Schema(description = "Lý do thất bại (nếu có)")
+        String error
+) {}
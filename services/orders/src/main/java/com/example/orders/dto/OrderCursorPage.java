@@ -0,0 +1,16 @@
+package com.example.orders.dto;
+
+import java.util.List;
+
+/**
+ * Một trang đơn hàng theo chế độ cursor (keyset): không có tổng số bản ghi.
+ *
+ * @param content    Các đơn hàng của trang, mới nhất trước
+ * @param nextCursor Cursor để lấy trang tiếp theo, {@code null} nếu đã hết
+ * @param hasNext    Còn trang tiếp theo hay không
+ */
+public record OrderCursorPage(
+    List<OrderResponse> content,
+    String nextCursor,
+    boolean hasNext
+) {}
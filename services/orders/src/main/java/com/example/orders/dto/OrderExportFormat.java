@@ -0,0 +1,35 @@
+package com.example.orders.dto;
+
+import java.util.Locale;
+
+/**
+ * Định dạng file export đơn hàng.
+ */
+public enum OrderExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    OrderExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static OrderExportFormat fromParam(String value) {
+        try {
+            return OrderExportFormat.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Định dạng export không hợp lệ: " + value + " (hỗ trợ ndjson, csv)");
+        }
+    }
+}
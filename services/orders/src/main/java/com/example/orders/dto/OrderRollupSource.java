@@ -0,0 +1,16 @@
+package com.example.orders.dto;
+
+import com.example.orders.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Các cột tối thiểu của một đơn hàng cần cho việc dựng lại rollup Dashboard.
+ */
+public record OrderRollupSource(
+    Long userId,
+    OrderStatus status,
+    BigDecimal totalAmount,
+    Instant createdAt
+) {}
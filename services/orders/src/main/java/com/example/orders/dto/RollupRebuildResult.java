@@ -0,0 +1,13 @@
+package com.example.orders.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Kết quả dựng lại rollup Dashboard, dùng để đối chiếu với dữ liệu gốc trong bảng {@code orders}.
+ */
+public record RollupRebuildResult(
+    long orders,
+    int days,
+    int customerMonths,
+    BigDecimal totalRevenue
+) {}
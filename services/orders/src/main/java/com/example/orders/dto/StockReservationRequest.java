@@ -0,0 +1,14 @@
+package com.example.orders.dto;
+
+import java.util.List;
+
+/**
+ * Yêu cầu giữ hàng gửi sang Products Service ({@code POST /api/internal/inventory/reservations}).
+ * Giữ theo orderId nên gửi lại cùng đơn không trừ tồn kho hai lần.
+ */
+public record StockReservationRequest(
+        Long orderId,
+        List<Item> items
+) {
+    public record Item(Long productId, Integer quantity) {}
+}
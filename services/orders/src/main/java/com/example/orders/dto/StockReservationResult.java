@@ -0,0 +1,22 @@
+package com.example.orders.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Kết quả giữ/trả/chốt hàng nhận từ Products Service, kèm kết quả từng dòng.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record StockReservationResult(
+        Long orderId,
+        boolean success,
+        String status,
+        List<Line> lines
+) {
+    /**
+     * @param error Lý do thất bại của dòng (null nếu thành công)
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Line(Long productId, int quantity, boolean success, String error) {}
+}
@@ -0,0 +1,34 @@
+package com.example.orders.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Số liệu gộp theo ngày (UTC, theo ngày tạo đơn) cho Dashboard admin.
+ * Được cập nhật trong cùng transaction với createOrder / updateOrderStatus,
+ * nên Dashboard không phải quét toàn bộ bảng {@code orders}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "daily_revenue_rollup")
+public class DailyRevenueRollup {
+
+    @Id
+    @Column(name = "rollup_date")
+    private LocalDate rollupDate;
+
+    // Doanh thu của các đơn chưa bị huỷ
+    @Column(name = "revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    // Tổng số đơn được tạo trong ngày (kể cả đơn đã huỷ)
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+}
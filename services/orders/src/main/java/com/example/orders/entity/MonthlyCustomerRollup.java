@@ -0,0 +1,24 @@
+package com.example.orders.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Số đơn của từng khách hàng trong từng tháng.
+ * Dùng để đếm "khách hàng trong tháng" trên Dashboard mà không cần COUNT(DISTINCT user_id) trên {@code orders}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "monthly_customer_rollup")
+public class MonthlyCustomerRollup {
+
+    @EmbeddedId
+    private MonthlyCustomerRollupId id;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+}
@@ -0,0 +1,24 @@
+package com.example.orders.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@Embeddable
+public class MonthlyCustomerRollupId implements Serializable {
+
+    // Ngày đầu tháng (UTC)
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+}
@@ -17,7 +17,11 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Phục vụ phân trang keyset theo (createdAt, id)
+        @Index(name = "idx_orders_user_created_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_orders_created_id", columnList = "created_at, id")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Order {
 
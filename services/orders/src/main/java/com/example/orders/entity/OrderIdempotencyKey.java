@@ -0,0 +1,70 @@
+package com.example.orders.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Kết quả của một lần tạo đơn theo Idempotency-Key (đã gắn với người gọi).
+ * Dòng được insert đầu transaction tạo đơn: request trùng key ở node khác sẽ chờ trên khoá chính
+ * cho tới khi transaction đầu tiên commit, rồi đọc lại response đã lưu.
+ * Khoá chính tự gán nên entity tự báo {@link #isNew()}: nếu không, {@code save} đi qua {@code merge},
+ * SELECT trước rồi UPDATE đè lên dòng node khác vừa commit thay vì INSERT.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "order_idempotency_keys", indexes = {
+        @Index(name = "idx_order_idempotency_expires_at", columnList = "expires_at")
+})
+public class OrderIdempotencyKey implements Persistable<String> {
+
+    // "<email người gọi>:<Idempotency-Key>"
+    @Id
+    @Column(name = "idempotency_key", length = 400)
+    private String idempotencyKey;
+
+    // SHA-256 của payload, phát hiện key bị dùng lại cho request khác
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    // OrderResponse dạng JSON
+    @Column(name = "response", columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Transient
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean isNew = true;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
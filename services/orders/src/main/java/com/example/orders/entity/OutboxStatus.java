@@ -0,0 +1,7 @@
+package com.example.orders.entity;
+
+public enum OutboxStatus {
+    PENDING,    // Chờ gửi (hoặc chờ retry)
+    DELIVERED,  // Đã gửi thành công
+    FAILED      // Vượt quá số lần retry, cần xử lý thủ công
+}
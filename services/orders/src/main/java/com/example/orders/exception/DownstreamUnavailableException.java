@@ -0,0 +1,18 @@
+package com.example.orders.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception được ném ra khi từ chối gọi một service phía sau mà không chờ
+ * (circuit breaker đang mở hoặc bulkhead đã đầy). Trả về HTTP 503.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DownstreamUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DownstreamUnavailableException(String message) {
+        super(message);
+    }
+}
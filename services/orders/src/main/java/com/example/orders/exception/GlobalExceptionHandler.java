@@ -51,6 +51,33 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Object> handleIdempotencyConflictException(
+            IdempotencyConflictException ex, WebRequest request) {
+        log.warn("Xung đột Idempotency-Key: {}", ex.getMessage());
+        String path = ((ServletWebRequest)request).getRequest().getRequestURI();
+        Map<String, Object> body = createErrorBody(HttpStatus.CONFLICT, ex.getMessage(), path);
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Object> handleInsufficientStockException(
+            InsufficientStockException ex, WebRequest request) {
+        log.warn("Không đủ hàng: {}", ex.getMessage());
+        String path = ((ServletWebRequest)request).getRequest().getRequestURI();
+        Map<String, Object> body = createErrorBody(HttpStatus.CONFLICT, ex.getMessage(), path);
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(DownstreamUnavailableException.class)
+    public ResponseEntity<Object> handleDownstreamUnavailableException(
+            DownstreamUnavailableException ex, WebRequest request) {
+        log.warn("Service phía sau không khả dụng: {}", ex.getMessage());
+        String path = ((ServletWebRequest)request).getRequest().getRequestURI();
+        Map<String, Object> body = createErrorBody(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), path);
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Object> handleIllegalArgumentException(
             IllegalArgumentException ex, WebRequest request) {
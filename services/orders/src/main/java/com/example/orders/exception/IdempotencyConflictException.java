@@ -0,0 +1,18 @@
+package com.example.orders.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception được ném ra khi một Idempotency-Key bị dùng lại cho request khác,
+ * hoặc request gốc vẫn đang xử lý quá thời gian chờ. Trả về HTTP 409.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
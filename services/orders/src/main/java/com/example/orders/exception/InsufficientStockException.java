@@ -0,0 +1,17 @@
+package com.example.orders.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception được ném ra khi Products Service không giữ được hàng cho đơn (thiếu hàng). Trả về HTTP 409.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InsufficientStockException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.orders.repository;
+
+import com.example.orders.entity.DailyRevenueRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyRevenueRollupRepository extends JpaRepository<DailyRevenueRollup, LocalDate> {
+
+    // Cộng dồn nguyên tử trên DB, an toàn khi nhiều đơn cùng ngày được tạo đồng thời
+    @Modifying
+    @Query("""
+        UPDATE DailyRevenueRollup r
+        SET r.revenue = r.revenue + :revenueDelta, r.orderCount = r.orderCount + :orderDelta
+        WHERE r.rollupDate = :date
+        """)
+    int increment(@Param("date") LocalDate date,
+                  @Param("revenueDelta") BigDecimal revenueDelta,
+                  @Param("orderDelta") long orderDelta);
+
+    // Upsert trong transaction của người gọi: tạo dòng ngày nếu chưa có, ngược lại cộng dồn nguyên tử.
+    // Hibernate dịch ON CONFLICT theo dialect (PostgreSQL: ON CONFLICT DO UPDATE, H2: MERGE)
+    @Modifying
+    @Query("""
+        INSERT INTO DailyRevenueRollup r (rollupDate, revenue, orderCount)
+        VALUES (:date, :revenueDelta, :orderDelta)
+        ON CONFLICT (rollupDate) DO UPDATE
+        SET revenue = r.revenue + excluded.revenue, orderCount = r.orderCount + excluded.orderCount
+        """)
+    int upsert(@Param("date") LocalDate date,
+               @Param("revenueDelta") BigDecimal revenueDelta,
+               @Param("orderDelta") long orderDelta);
+
+    // Dùng khi rebuild: xoá hàng loạt và dọn persistence context để saveAll sau đó không đụng entity cũ
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM DailyRevenueRollup")
+    void deleteAllRows();
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyRevenueRollup r")
+    BigDecimal sumRevenue();
+
+    @Query("SELECT COALESCE(SUM(r.orderCount), 0) FROM DailyRevenueRollup r")
+    long sumOrderCount();
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyRevenueRollup r WHERE r.rollupDate >= :from AND r.rollupDate <= :to")
+    BigDecimal sumRevenueBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    List<DailyRevenueRollup> findAllByOrderByRollupDateAsc();
+}
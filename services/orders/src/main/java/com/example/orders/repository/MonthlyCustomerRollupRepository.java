@@ -0,0 +1,33 @@
+package com.example.orders.repository;
+
+import com.example.orders.entity.MonthlyCustomerRollup;
+import com.example.orders.entity.MonthlyCustomerRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface MonthlyCustomerRollupRepository extends JpaRepository<MonthlyCustomerRollup, MonthlyCustomerRollupId> {
+
+    // Upsert trong transaction của người gọi: tạo dòng khách-tháng nếu chưa có, ngược lại tăng số đơn
+    @Modifying
+    @Query("""
+        INSERT INTO MonthlyCustomerRollup m (id.monthStart, id.userId, orderCount)
+        VALUES (:monthStart, :userId, 1)
+        ON CONFLICT (id.monthStart, id.userId) DO UPDATE
+        SET orderCount = m.orderCount + 1
+        """)
+    int upsert(@Param("monthStart") LocalDate monthStart, @Param("userId") Long userId);
+
+    // Dùng khi rebuild: xoá hàng loạt và dọn persistence context để saveAll sau đó không đụng entity cũ
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM MonthlyCustomerRollup")
+    void deleteAllRows();
+
+    @Query("SELECT COUNT(m) FROM MonthlyCustomerRollup m WHERE m.id.monthStart = :monthStart AND m.orderCount > 0")
+    long countCustomersInMonth(@Param("monthStart") LocalDate monthStart);
+}
@@ -0,0 +1,41 @@
+package com.example.orders.repository;
+
+import com.example.orders.entity.OrderOutbox;
+import com.example.orders.entity.OutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutbox, Long> {
+
+    /**
+     * Lấy một lô bản ghi đến hạn gửi và khoá chúng lại (SELECT ... FOR UPDATE SKIP LOCKED).
+     * Lock timeout -2 là SKIP LOCKED trong Hibernate, giúp nhiều replica cùng drain outbox
+     * mà không gửi trùng và không chờ nhau.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM OrderOutbox o WHERE o.status = :status AND o.nextAttemptAt <= :now ORDER BY o.id")
+    List<OrderOutbox> findDueForDispatch(@Param("status") OutboxStatus status,
+                                         @Param("now") Instant now,
+                                         Pageable pageable);
+
+    /**
+     * Dọn các bản ghi ở trạng thái {@code status} đã gửi xong trước {@code before} (một câu DELETE, không load entity).
+     */
+    @Modifying
+    @Query("DELETE FROM OrderOutbox o WHERE o.status = :status AND o.deliveredAt < :before")
+    int deleteByStatusAndDeliveredAtBefore(@Param("status") OutboxStatus status,
+                                           @Param("before") Instant before);
+}
@@ -1,19 +1,25 @@
 package com.example.orders.repository;
 
-import com.example.orders.dto.MonthlyRevenue;
+import com.example.orders.dto.OrderRollupSource;
 import com.example.orders.entity.Order;
 import com.example.orders.entity.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
-import java.time.OffsetDateTime;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -22,34 +28,67 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Page<Order> findByUserId(Long userId, Pageable pageable);
 
-    List<Order> findByUserIdAndStatus(Long userId, OrderStatus status);
+    // Phân trang 2 pha: pha 1 chỉ lấy id theo trang, pha 2 nạp Order + items của cả trang trong 1 query.
+    // Tránh N+1 khi map sang OrderResponse (mỗi đơn một query order_items).
+    @Query(value = "SELECT o.id FROM Order o WHERE o.userId = :userId",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId")
+    Page<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
 
-    Optional<Order> findByIdAndUserId(Long id, Long userId);
+    @Query(value = "SELECT o.id FROM Order o",
+           countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<Long> findAllIds(Pageable pageable);
 
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status <> :cancelledStatus")
-    BigDecimal sumTotalRevenue(@Param("cancelledStatus") OrderStatus cancelledStatus);
+    // Phân trang keyset theo (createdAt, id) giảm dần: không OFFSET, không COUNT.
+    // Trang đầu dùng *First, các trang sau dùng *Before với vị trí của đơn cuối trang trước.
+    @Query("SELECT o.id FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findFirstIdsByUserId(@Param("userId") Long userId, Limit limit);
 
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate")
-    long countOrdersInPeriod(@Param("startDate") OffsetDateTime startDate, @Param("endDate") OffsetDateTime endDate);
+    @Query("""
+        SELECT o.id FROM Order o
+        WHERE o.userId = :userId AND (o.createdAt, o.id) < (:createdAt, :id)
+        ORDER BY o.createdAt DESC, o.id DESC
+        """)
+    List<Long> findIdsByUserIdBefore(@Param("userId") Long userId,
+                                     @Param("createdAt") Instant createdAt,
+                                     @Param("id") Long id,
+                                     Limit limit);
 
-    @Query("SELECT COUNT(DISTINCT o.userId) FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate")
-    long countDistinctUsersInPeriod(@Param("startDate") OffsetDateTime startDate, @Param("endDate") OffsetDateTime endDate);
+    @Query("SELECT o.id FROM Order o ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findFirstIds(Limit limit);
 
     @Query("""
-        SELECT new com.example.orders.dto.MonthlyRevenue(
-            CAST(EXTRACT(YEAR FROM o.createdAt) AS int), 
-            CAST(EXTRACT(MONTH FROM o.createdAt) AS int), 
-            SUM(o.totalAmount)
-        ) 
-        FROM Order o 
-        WHERE o.status <> :cancelledStatus
-        GROUP BY CAST(EXTRACT(YEAR FROM o.createdAt) AS int), CAST(EXTRACT(MONTH FROM o.createdAt) AS int)
-        ORDER BY CAST(EXTRACT(YEAR FROM o.createdAt) AS int), CAST(EXTRACT(MONTH FROM o.createdAt) AS int)
+        SELECT o.id FROM Order o
+        WHERE (o.createdAt, o.id) < (:createdAt, :id)
+        ORDER BY o.createdAt DESC, o.id DESC
         """)
-    List<MonthlyRevenue> getMonthlyRevenue(@Param("cancelledStatus") OrderStatus cancelledStatus);
+    List<Long> findIdsBefore(@Param("createdAt") Instant createdAt, @Param("id") Long id, Limit limit);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    List<Order> findByUserIdAndStatus(Long userId, OrderStatus status);
+
+    Optional<Order> findByIdAndUserId(Long id, Long userId);
+
+    // Huỷ có điều kiện trên DB: trả 0 nếu request khác đã huỷ đơn trước, để rollup chỉ bị trừ một lần
+    @Modifying
+    @Query("""
+        UPDATE Order o SET o.status = com.example.orders.entity.OrderStatus.CANCELLED, o.updatedAt = :now
+        WHERE o.id = :id AND o.status <> com.example.orders.entity.OrderStatus.CANCELLED
+        """)
+    int markCancelled(@Param("id") Long id, @Param("now") Instant now);
+
+    // Cursor chỉ tiến, đọc theo từng khối fetch-size; entity chỉ đọc nên Hibernate không giữ snapshot dirty-checking.
+    // Người gọi phải đọc trong transaction và dọn persistence context theo lô.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.createdAt >= :from AND o.createdAt < :to ORDER BY o.createdAt, o.id")
+    Stream<Order> streamByCreatedAtRange(@Param("from") Instant from, @Param("to") Instant to);
 
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate AND o.status <> :cancelledStatus")
-    BigDecimal sumRevenueInPeriod(@Param("startDate") OffsetDateTime startDate, 
-                                  @Param("endDate") OffsetDateTime endDate, 
-                                  @Param("cancelledStatus") OrderStatus cancelledStatus);
+    // Đọc lần lượt toàn bộ đơn hàng (chỉ các cột cần thiết) để dựng lại rollup Dashboard
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.orders.dto.OrderRollupSource(o.userId, o.status, o.totalAmount, o.createdAt) FROM Order o")
+    Stream<OrderRollupSource> streamRollupSources();
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.example.orders.resilience;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Giới hạn số lời gọi đồng thời tới một service phía sau. Không chờ: hết chỗ thì từ chối ngay,
+ * để request không giữ thread trong khi service phía sau đã quá tải.
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    public Bulkhead(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.orders.resilience;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Circuit breaker theo tỉ lệ lỗi trên cửa sổ N lời gọi gần nhất.
+ * <ul>
+ *   <li>CLOSED: cho mọi lời gọi đi qua; mở mạch khi đủ {@code minimumCalls} và tỉ lệ lỗi vượt ngưỡng.</li>
+ *   <li>OPEN: từ chối ngay trong {@code openDuration}, sau đó chuyển sang HALF_OPEN.</li>
+ *   <li>HALF_OPEN: cho {@code halfOpenCalls} lời gọi thử; tất cả thành công thì đóng mạch, một lỗi thì mở lại.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Lượt gọi đã được cấp phép, nhớ trạng thái lúc cấp: chỉ lượt cấp trong đúng đợt HALF_OPEN hiện tại
+     * mới được tính vào (và trả lại) số lời gọi thử.
+     */
+    public static final class Permit {
+        private final State issuedIn;
+        private final long halfOpenRound;
+
+        private Permit(State issuedIn, long halfOpenRound) {
+            this.issuedIn = issuedIn;
+            this.halfOpenRound = halfOpenRound;
+        }
+    }
+
+    private static final Permit CLOSED_PERMIT = new Permit(State.CLOSED, 0);
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final Clock clock;
+
+    // Cửa sổ vòng: true = lời gọi lỗi
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    // Tăng mỗi lần vào HALF_OPEN, để lượt thử của đợt trước không ảnh hưởng đợt sau
+    private long halfOpenRound;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls, Clock clock) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * @return Lượt gọi nếu được phép, null nếu bị từ chối. Khi khác null, người gọi phải báo lại đúng một trong
+     * {@link #onSuccess(Permit)}, {@link #onFailure(Permit)} hoặc {@link #onIgnored(Permit)}.
+     */
+    public synchronized Permit tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+                return null;
+            }
+            state = State.HALF_OPEN;
+            halfOpenRound++;
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenCalls) {
+                return null;
+            }
+            halfOpenInFlight++;
+            return new Permit(State.HALF_OPEN, halfOpenRound);
+        }
+        return CLOSED_PERMIT;
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (state == State.HALF_OPEN) {
+            // Lời gọi bắt đầu khi còn CLOSED (hoặc ở đợt thử trước) không phải lời gọi thử
+            if (isTrial(permit)) {
+                halfOpenInFlight--;
+                if (++halfOpenSuccesses >= halfOpenCalls) {
+                    close();
+                }
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (state == State.HALF_OPEN) {
+            if (isTrial(permit)) {
+                open();
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Lời gọi đã được cấp phép nhưng không có kết quả (bị huỷ, bị bulkhead từ chối).
+     */
+    public synchronized void onIgnored(Permit permit) {
+        if (state == State.HALF_OPEN && isTrial(permit)) {
+            halfOpenInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private boolean isTrial(Permit permit) {
+        return permit.issuedIn == State.HALF_OPEN && permit.halfOpenRound == halfOpenRound;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == windowSize) {
+            if (outcomes[next]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failed;
+        if (failed) failures++;
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.instant();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
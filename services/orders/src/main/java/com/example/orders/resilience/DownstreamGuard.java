@@ -0,0 +1,105 @@
+package com.example.orders.resilience;
+
+import com.example.orders.exception.DownstreamUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bọc lời gọi tới một service phía sau bằng {@link CircuitBreaker} và {@link Bulkhead}.
+ * Metric (tag {@code downstream}):
+ * <ul>
+ *   <li>{@code orders.downstream.circuit.state}: 0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN</li>
+ *   <li>{@code orders.downstream.bulkhead.available}: số chỗ còn trống</li>
+ *   <li>{@code orders.downstream.rejected}: số lời gọi bị từ chối, tag {@code reason}</li>
+ * </ul>
+ */
+@Slf4j
+public class DownstreamGuard {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+    @Getter
+    private final Bulkhead bulkhead;
+    // Lỗi nào tính vào tỉ lệ lỗi của breaker (ví dụ lỗi 4xx thì không)
+    private final Predicate<Throwable> recordFailure;
+    // Phải ngắn hơn deadline của người gọi: lời gọi chậm hết giờ ở đây (tính là lỗi)
+    // thay vì bị deadline phía ngoài huỷ (không tính vào breaker)
+    private final Duration callTimeout;
+    private final MeterRegistry meterRegistry;
+
+    public DownstreamGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead,
+                           Predicate<Throwable> recordFailure, Duration callTimeout, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.recordFailure = recordFailure;
+        this.callTimeout = callTimeout;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("orders.downstream.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("Trạng thái circuit breaker: 0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        Gauge.builder("orders.downstream.bulkhead.available", bulkhead, Bulkhead::getAvailablePermits)
+                .tag("downstream", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lời gọi chỉ được tạo (và gửi đi) khi breaker và bulkhead cho phép;
+     * nếu không, Mono lỗi ngay với {@link DownstreamUnavailableException}.
+     * Lời gọi quá {@code callTimeout} lỗi với {@link TimeoutException} và được tính là lỗi.
+     */
+    public <T> Mono<T> protect(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            CircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+            if (permit == null) {
+                return reject("circuit_open", name + " tạm thời không khả dụng (circuit breaker đang mở).");
+            }
+            if (!bulkhead.tryAcquire()) {
+                circuitBreaker.onIgnored(permit);
+                return reject("bulkhead_full", name + " đang quá tải, vui lòng thử lại sau.");
+            }
+
+            AtomicBoolean completed = new AtomicBoolean();
+            return call.get()
+                    .timeout(callTimeout)
+                    .doOnSuccess(value -> {
+                        completed.set(true);
+                        circuitBreaker.onSuccess(permit);
+                    })
+                    .doOnError(error -> {
+                        completed.set(true);
+                        if (error instanceof TimeoutException || recordFailure.test(error)) {
+                            circuitBreaker.onFailure(permit);
+                        } else {
+                            circuitBreaker.onSuccess(permit);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL && !completed.get()) {
+                            circuitBreaker.onIgnored(permit);
+                        }
+                        bulkhead.release();
+                    });
+        });
+    }
+
+    private <T> Mono<T> reject(String reason, String message) {
+        meterRegistry.counter("orders.downstream.rejected", "downstream", name, "reason", reason).increment();
+        log.warn("Từ chối gọi {}: {}", name, reason);
+        return Mono.error(new DownstreamUnavailableException(message));
+    }
+}
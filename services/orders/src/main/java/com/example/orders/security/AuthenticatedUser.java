@@ -0,0 +1,22 @@
+package com.example.orders.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal được {@link JwtAuthenticationFilter} đặt vào SecurityContext.
+ * Mang theo userId lấy từ claim {@code uid} của JWT để tầng service không phải
+ * gọi sang users-service mới biết người dùng hiện tại là ai.
+ *
+ * @param userId ID người dùng, {@code null} với token cũ chưa có claim {@code uid}
+ * @param email  Email người dùng (subject của token)
+ */
+public record AuthenticatedUser(Long userId, String email) implements AuthenticatedPrincipal {
+
+    /**
+     * Giữ nguyên hành vi cũ: {@code authentication.getName()} vẫn trả về email.
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -24,6 +24,9 @@ public class JwtTokenProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    // Claim do users-service nhúng vào token, chứa ID người dùng
+    public static final String USER_ID_CLAIM = "uid";
+
     @Value("${app.jwt.secret-key}")
     private String jwtSecret;
 
@@ -60,6 +63,19 @@ public class JwtTokenProvider {
         return parseClaims(token).getSubject();
     }
 
+    /**
+     * Lấy userId từ claim {@code uid}.
+     * @return userId, hoặc {@code null} nếu token được cấp trước khi có claim này.
+     */
+    public Long getUserIdFromToken(String token) {
+        Number userId = parseClaims(token).get(USER_ID_CLAIM, Number.class);
+        return userId != null ? userId.longValue() : null;
+    }
+
+    public Date getExpirationFromToken(String token) {
+        return parseClaims(token).getExpiration();
+    }
+
     @SuppressWarnings("unchecked")
     public Collection<? extends GrantedAuthority> getAuthorities(String token) {
         Claims claims = parseClaims(token);
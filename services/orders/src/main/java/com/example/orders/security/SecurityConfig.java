@@ -39,11 +39,13 @@ public class SecurityConfig {
                         
                         // Admin Endpoints
                         .requestMatchers(HttpMethod.GET, "/api/v1/orders").hasAuthority("ROLE_ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/v1/orders/cursor").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.PATCH, "/api/v1/orders/**").hasAuthority("ROLE_ADMIN")
                         
                         // User Endpoints
                         .requestMatchers(HttpMethod.POST, "/api/v1/orders").authenticated()
                         .requestMatchers(HttpMethod.GET, "/api/v1/orders/my").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/api/v1/orders/my/cursor").authenticated()
                         .requestMatchers(HttpMethod.GET, "/api/v1/orders/{orderId}").authenticated()
                         
                         // Default
@@ -0,0 +1,126 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.SendOrderEmailRequest;
+import com.example.orders.dto.UserDto;
+import com.example.orders.security.JwtTokenProvider;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near-cache đặt trước {@link UserServiceClientImpl}.
+ * Cache UserDto theo subject của token, giới hạn kích thước và thời gian sống,
+ * và không bao giờ giữ entry lâu hơn thời điểm hết hạn (exp) của token.
+ * Các lượt miss đồng thời cho cùng một subject chỉ tạo ra một lời gọi sang User Service:
+ * cache lưu future của lời gọi đang chạy, các request sau chờ trên cùng future đó.
+ */
+@Component
+@Primary
+@RequiredArgsConstructor
+@Slf4j
+public class CachingUserServiceClient implements UserServiceClient {
+
+    static final String CACHE_NAME = "users.current";
+
+    private final UserServiceClientImpl delegate;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.client.users-service.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${app.client.users-service.cache.max-size:10000}")
+    private long maxSize;
+
+    private AsyncCache<String, CachedUser> cache;
+
+    /**
+     * Giá trị lưu trong cache kèm thời điểm token hết hạn, dùng để tính thời gian sống của entry.
+     */
+    private record CachedUser(UserDto user, Instant tokenExpiresAt) {}
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedUser>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedUser value, long currentTime) {
+                        long untilTokenExpiry = value.tokenExpiresAt().toEpochMilli() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(ttlMs, untilTokenExpiry)));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedUser value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedUser value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("Khởi tạo near-cache UserDto: ttl={}ms, maxSize={}", ttlMs, maxSize);
+    }
+
+    @Override
+    public UserDto getCurrentUser(String bearerToken) {
+        return getCurrentUserAsync(bearerToken).block();
+    }
+
+    @Override
+    public Mono<UserDto> getCurrentUserAsync(String bearerToken) {
+        if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
+            // Để delegate trả lỗi xác thực như cũ
+            return delegate.getCurrentUserAsync(bearerToken);
+        }
+
+        String jwt = bearerToken.substring(7);
+        String subject;
+        Date expiration;
+        try {
+            subject = jwtTokenProvider.getUsernameFromToken(jwt);
+            expiration = jwtTokenProvider.getExpirationFromToken(jwt);
+        } catch (Exception e) {
+            log.debug("Không đọc được subject/exp từ token, bỏ qua cache: {}", e.getMessage());
+            return delegate.getCurrentUserAsync(bearerToken);
+        }
+
+        if (subject == null || expiration == null) {
+            return delegate.getCurrentUserAsync(bearerToken);
+        }
+
+        Instant tokenExpiresAt = expiration.toInstant();
+        // Các subscriber cùng subject dùng chung một future. suppressCancel = true để một subscriber
+        // huỷ (timeout, lỗi ở nhánh song song) không huỷ lời gọi mà các subscriber khác đang chờ.
+        return Mono.defer(() -> Mono.fromFuture(
+                        cache.get(subject, (key, executor) -> delegate.getCurrentUserAsync(bearerToken)
+                                .map(user -> new CachedUser(user, tokenExpiresAt))
+                                .toFuture()),
+                        true))
+                .map(CachedUser::user);
+    }
+
+    @Override
+    public void sendOrderNotifications(List<SendOrderEmailRequest> requests) {
+        delegate.sendOrderNotifications(requests);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.MonthlyRevenue;
+import com.example.orders.dto.OrderRollupSource;
+import com.example.orders.dto.RollupRebuildResult;
+import com.example.orders.entity.DailyRevenueRollup;
+import com.example.orders.entity.MonthlyCustomerRollup;
+import com.example.orders.entity.MonthlyCustomerRollupId;
+import com.example.orders.entity.Order;
+import com.example.orders.entity.OrderStatus;
+import com.example.orders.repository.DailyRevenueRollupRepository;
+import com.example.orders.repository.MonthlyCustomerRollupRepository;
+import com.example.orders.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Duy trì số liệu gộp cho Dashboard admin (doanh thu/số đơn theo ngày, khách hàng theo tháng).
+ * Các hàm record* chạy trong transaction của đơn hàng nên rollup luôn khớp với bảng {@code orders};
+ * {@link #rebuild()} tính lại toàn bộ từ {@code orders} để backfill hoặc đối chiếu.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DashboardRollupService {
+
+    private final DailyRevenueRollupRepository dailyRepository;
+    private final MonthlyCustomerRollupRepository customerRepository;
+    private final OrderRepository orderRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrderCreated(Order order) {
+        LocalDate day = dayOf(order);
+        BigDecimal revenue = order.getStatus() == OrderStatus.CANCELLED ? BigDecimal.ZERO : order.getTotalAmount();
+
+        // Mỗi bảng một câu upsert trên chính connection của đơn hàng, không mở transaction thứ hai
+        dailyRepository.upsert(day, revenue, 1);
+        customerRepository.upsert(day.withDayOfMonth(1), order.getUserId());
+    }
+
+    /**
+     * Trừ doanh thu của đơn khỏi ngày tạo đơn. Người gọi chỉ gọi khi đơn thực sự chuyển sang CANCELLED.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrderCancelled(Order order) {
+        LocalDate day = dayOf(order);
+        if (dailyRepository.increment(day, order.getTotalAmount().negate(), 0) == 0) {
+            // Đơn được tạo trước khi có rollup: để lần rebuild tiếp theo xử lý
+            log.warn("Không có rollup ngày {} cho đơn #{} bị huỷ, cần chạy rebuild rollup", day, order.getId());
+        }
+    }
+
+    /**
+     * Như {@link #recordOrderCancelled(Order)} cho nhiều đơn: gộp theo ngày, mỗi ngày một câu UPDATE.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrdersCancelled(List<Order> orders) {
+        Map<LocalDate, BigDecimal> revenueByDay = new TreeMap<>();
+        for (Order order : orders) {
+            revenueByDay.merge(dayOf(order), order.getTotalAmount(), BigDecimal::add);
+        }
+        revenueByDay.forEach((day, revenue) -> {
+            if (dailyRepository.increment(day, revenue.negate(), 0) == 0) {
+                log.warn("Không có rollup ngày {} cho các đơn bị huỷ, cần chạy rebuild rollup", day);
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalRevenue() {
+        return dailyRepository.sumRevenue();
+    }
+
+    @Transactional(readOnly = true)
+    public long totalOrders() {
+        return dailyRepository.sumOrderCount();
+    }
+
+    @Transactional(readOnly = true)
+    public long customersInMonth(YearMonth month) {
+        return customerRepository.countCustomersInMonth(month.atDay(1));
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal revenueBetween(LocalDate from, LocalDate to) {
+        return dailyRepository.sumRevenueBetween(from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<MonthlyRevenue> monthlyRevenue() {
+        Map<YearMonth, BigDecimal> byMonth = new TreeMap<>();
+        for (DailyRevenueRollup row : dailyRepository.findAllByOrderByRollupDateAsc()) {
+            // Ngày chỉ có đơn bị huỷ không đóng góp doanh thu cho biểu đồ
+            if (row.getRevenue().signum() == 0) continue;
+            byMonth.merge(YearMonth.from(row.getRollupDate()), row.getRevenue(), BigDecimal::add);
+        }
+        return byMonth.entrySet().stream()
+                .map(e -> new MonthlyRevenue(e.getKey().getYear(), e.getKey().getMonthValue(), e.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Backfill lúc khởi động: rollup trống nhưng đã có đơn (mới triển khai rollup, hoặc DB được khôi phục)
+     * thì Dashboard sẽ báo 0 cho tới khi admin chạy rebuild, nên tự dựng lại một lần.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (dailyRepository.count() == 0 && orderRepository.count() > 0) {
+            log.info("Rollup Dashboard đang trống, dựng lại từ bảng orders lúc khởi động");
+            rebuild();
+        }
+    }
+
+    /**
+     * Xoá và tính lại toàn bộ rollup từ bảng {@code orders}.
+     * Nên chạy lúc ít đơn mới: đơn tạo/huỷ trong lúc rebuild có thể chưa được tính.
+     */
+    @Transactional
+    public RollupRebuildResult rebuild() {
+        log.info("Bắt đầu dựng lại rollup Dashboard từ bảng orders...");
+
+        Map<LocalDate, DailyRevenueRollup> days = new HashMap<>();
+        Map<MonthlyCustomerRollupId, MonthlyCustomerRollup> customers = new HashMap<>();
+        long orders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+
+        try (Stream<OrderRollupSource> sources = orderRepository.streamRollupSources()) {
+            for (OrderRollupSource source : (Iterable<OrderRollupSource>) sources::iterator) {
+                LocalDate day = source.createdAt().atZone(ZoneOffset.UTC).toLocalDate();
+                BigDecimal revenue = source.status() == OrderStatus.CANCELLED ? BigDecimal.ZERO : source.totalAmount();
+
+                DailyRevenueRollup daily = days.computeIfAbsent(day,
+                        d -> new DailyRevenueRollup(d, BigDecimal.ZERO, 0));
+                daily.setRevenue(daily.getRevenue().add(revenue));
+                daily.setOrderCount(daily.getOrderCount() + 1);
+
+                MonthlyCustomerRollupId key = new MonthlyCustomerRollupId(day.withDayOfMonth(1), source.userId());
+                MonthlyCustomerRollup customer = customers.computeIfAbsent(key, k -> new MonthlyCustomerRollup(k, 0));
+                customer.setOrderCount(customer.getOrderCount() + 1);
+
+                orders++;
+                totalRevenue = totalRevenue.add(revenue);
+            }
+        }
+
+        dailyRepository.deleteAllRows();
+        customerRepository.deleteAllRows();
+        dailyRepository.saveAll(days.values());
+        customerRepository.saveAll(customers.values());
+
+        log.info("Đã dựng lại rollup: {} đơn, {} ngày, {} khách-tháng, doanh thu {}",
+                orders, days.size(), customers.size(), totalRevenue);
+        return new RollupRebuildResult(orders, days.size(), customers.size(), totalRevenue);
+    }
+
+    private static LocalDate dayOf(Order order) {
+        Instant createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : Instant.now();
+        return createdAt.atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
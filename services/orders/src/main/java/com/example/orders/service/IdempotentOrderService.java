@@ -0,0 +1,160 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.OrderCreateRequest;
+import com.example.orders.dto.OrderResponse;
+import com.example.orders.exception.IdempotencyConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tạo đơn hàng theo header {@code Idempotency-Key}.
+ * Key được gắn với người gọi. Request lặp lại nhận đúng OrderResponse đã lưu mà không chạy lại
+ * checkout (không gọi lại User/Product Service, không gửi thêm email).
+ * <ul>
+ *   <li>Trong một node: các request trùng key đồng thời chờ trên cùng một future.</li>
+ *   <li>Giữa các node / sau restart: bảng {@code order_idempotency_keys} ({@link OrderIdempotencyStore}).</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotentOrderService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final OrderIdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long ttlMs = 86400000;
+
+    @Value("${app.idempotency.max-size:100000}")
+    private long maxSize = 100000;
+
+    @Value("${app.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs = 30000;
+
+    /**
+     * Lần tạo đơn (đang chạy hoặc đã xong) của một key trên node này.
+     */
+    private record Execution(String requestHash, CompletableFuture<OrderResponse> result) {}
+
+    private Cache<String, Execution> executions;
+
+    @PostConstruct
+    public void init() {
+        this.executions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    public OrderResponse createOrder(String idempotencyKey, OrderCreateRequest orderRequest, String bearerToken) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key phải có từ 1 đến " + MAX_KEY_LENGTH + " ký tự.");
+        }
+
+        String key = callerName() + ":" + idempotencyKey;
+        String requestHash = hash(orderRequest);
+
+        Execution execution = new Execution(requestHash, new CompletableFuture<>());
+        Execution existing = executions.asMap().putIfAbsent(key, execution);
+        if (existing != null) {
+            if (!existing.requestHash().equals(requestHash)) {
+                throw new IdempotencyConflictException("Idempotency-Key đã được dùng cho một request khác.");
+            }
+            log.info("Idempotency-Key đã có trên node này, dùng lại kết quả của request đầu tiên");
+            return await(existing.result());
+        }
+
+        try {
+            OrderResponse response = execute(key, requestHash, orderRequest, bearerToken);
+            execution.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            // Lần chạy lỗi không được ghi nhớ: client retry với cùng key sẽ chạy lại
+            executions.asMap().remove(key, execution);
+            execution.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private OrderResponse execute(String key, String requestHash, OrderCreateRequest orderRequest, String bearerToken) {
+        Optional<OrderIdempotencyStore.StoredResponse> stored = store.find(key);
+        if (stored.isPresent()) {
+            log.info("Trả lại đơn hàng #{} đã tạo trước đó theo Idempotency-Key", stored.get().response().id());
+            return checkSameRequest(stored.get(), requestHash);
+        }
+
+        try {
+            return store.createOnce(key, requestHash, () -> orderService.createOrder(orderRequest, bearerToken));
+        } catch (DataIntegrityViolationException e) {
+            // Node khác đã tạo đơn với cùng key và commit trước
+            return store.find(key)
+                    .map(winner -> checkSameRequest(winner, requestHash))
+                    .orElseThrow(() -> new IdempotencyConflictException(
+                            "Request với Idempotency-Key này đang được xử lý, vui lòng thử lại sau."));
+        }
+    }
+
+    private OrderResponse await(CompletableFuture<OrderResponse> result) {
+        try {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("Request với Idempotency-Key này đang được xử lý, vui lòng thử lại sau.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị gián đoạn khi chờ request trùng Idempotency-Key", e);
+        }
+    }
+
+    private static OrderResponse checkSameRequest(OrderIdempotencyStore.StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException("Idempotency-Key đã được dùng cho một request khác.");
+        }
+        return stored.response();
+    }
+
+    private static String callerName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null) {
+            throw new BadCredentialsException("Không có thông tin xác thực hợp lệ.");
+        }
+        return authentication.getName();
+    }
+
+    private String hash(OrderCreateRequest orderRequest) {
+        try {
+            byte[] payload = objectMapper.writeValueAsString(orderRequest).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Không thể tính hash cho request tạo đơn", e);
+        }
+    }
+}
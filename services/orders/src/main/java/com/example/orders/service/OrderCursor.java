@@ -0,0 +1,28 @@
+package com.example.orders.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Vị trí (createdAt, id) của đơn cuối cùng trên trang, mã hoá base64url để client coi như chuỗi mờ.
+ */
+record OrderCursor(Instant createdAt, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new OrderCursor(Instant.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.OrderExportFormat;
+import com.example.orders.dto.OrderItemResponse;
+import com.example.orders.dto.OrderResponse;
+import com.example.orders.entity.Order;
+import com.example.orders.entity.OrderItem;
+import com.example.orders.repository.OrderItemRepository;
+import com.example.orders.repository.OrderRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Export đơn hàng (kèm items) trong một khoảng thời gian, ghi thẳng ra output stream.
+ * Đọc bằng cursor chỉ tiến của {@link OrderRepository#streamByCreatedAtRange}, nạp items theo lô
+ * và dọn persistence context sau mỗi lô, nên bộ nhớ dùng không phụ thuộc số dòng export.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderExportService {
+
+    private static final String CSV_HEADER =
+            "order_id,user_id,status,payment_method,payment_status,total_amount,created_at,item_id,product_id,product_name,quantity,price";
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.export.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * @return Số đơn hàng đã ghi
+     */
+    @Transactional(readOnly = true)
+    public long export(Instant from, Instant to, OrderExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        ObjectWriter jsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        if (format == OrderExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long exported = 0;
+        List<Order> chunk = new ArrayList<>(chunkSize);
+        try (Stream<Order> orders = orderRepository.streamByCreatedAtRange(from, to)) {
+            for (Order order : (Iterable<Order>) orders::iterator) {
+                chunk.add(order);
+                if (chunk.size() >= chunkSize) {
+                    exported += writeChunk(chunk, format, writer, jsonWriter);
+                }
+            }
+            exported += writeChunk(chunk, format, writer, jsonWriter);
+        }
+
+        writer.flush();
+        log.info("Đã export {} đơn hàng ({}) trong khoảng [{}, {})", exported, format, from, to);
+        return exported;
+    }
+
+    private int writeChunk(List<Order> chunk, OrderExportFormat format, Writer writer, ObjectWriter jsonWriter) throws IOException {
+        if (chunk.isEmpty()) return 0;
+
+        List<Long> orderIds = chunk.stream().map(Order::getId).collect(Collectors.toList());
+        Map<Long, List<OrderItem>> itemsByOrderId = orderItemRepository.findByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(item -> item.getOrder().getId()));
+
+        for (Order order : chunk) {
+            List<OrderItem> items = itemsByOrderId.getOrDefault(order.getId(), List.of());
+            if (format == OrderExportFormat.CSV) {
+                writeCsv(order, items, writer);
+            } else {
+                writer.write(jsonWriter.writeValueAsString(toResponse(order, items)));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+
+        int written = chunk.size();
+        chunk.clear();
+        // Giải phóng các entity đã ghi khỏi persistence context, cursor vẫn tiếp tục đọc
+        entityManager.clear();
+        return written;
+    }
+
+    private static OrderResponse toResponse(Order order, List<OrderItem> items) {
+        List<OrderItemResponse> itemResponses = items.stream()
+                .map(item -> new OrderItemResponse(
+                        item.getId(),
+                        item.getProductId(),
+                        item.getProductName(),
+                        item.getQuantity(),
+                        item.getPrice()))
+                .collect(Collectors.toList());
+
+        return new OrderResponse(
+                order.getId(),
+                order.getUserId(),
+                order.getStatus() != null ? order.getStatus().name() : null,
+                order.getTotalAmount(),
+                itemResponses,
+                order.getCreatedAt() != null ? order.getCreatedAt().atOffset(ZoneOffset.UTC) : null,
+                order.getUpdatedAt() != null ? order.getUpdatedAt().atOffset(ZoneOffset.UTC) : null
+        );
+    }
+
+    private static void writeCsv(Order order, List<OrderItem> items, Writer writer) throws IOException {
+        String orderColumns = String.join(",",
+                String.valueOf(order.getId()),
+                String.valueOf(order.getUserId()),
+                csv(order.getStatus() != null ? order.getStatus().name() : null),
+                csv(order.getPaymentMethod()),
+                csv(order.getPaymentStatus()),
+                order.getTotalAmount() != null ? order.getTotalAmount().toPlainString() : "",
+                order.getCreatedAt() != null ? order.getCreatedAt().toString() : "");
+
+        if (items.isEmpty()) {
+            writer.write(orderColumns);
+            writer.write(",,,,,\n");
+            return;
+        }
+
+        // Mỗi item một dòng, lặp lại thông tin đơn hàng
+        for (OrderItem item : items) {
+            writer.write(orderColumns);
+            writer.write(',');
+            writer.write(String.join(",",
+                    String.valueOf(item.getId()),
+                    String.valueOf(item.getProductId()),
+                    csv(item.getProductName()),
+                    String.valueOf(item.getQuantity()),
+                    item.getPrice() != null ? item.getPrice().toPlainString() : ""));
+            writer.write('\n');
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
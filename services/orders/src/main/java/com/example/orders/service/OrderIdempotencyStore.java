@@ -0,0 +1,100 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.OrderResponse;
+import com.example.orders.entity.OrderIdempotencyKey;
+import com.example.orders.repository.OrderIdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Phần lưu bền của Idempotency-Key trong bảng {@code order_idempotency_keys}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderIdempotencyStore {
+
+    /**
+     * Response đã lưu cho một key cùng hash của request gốc.
+     */
+    public record StoredResponse(String requestHash, OrderResponse response) {}
+
+    private final OrderIdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long ttlMs = 86400000;
+
+    /**
+     * @return Response đã lưu, rỗng nếu chưa có hoặc đã hết hạn
+     */
+    @Transactional
+    public Optional<StoredResponse> find(String key) {
+        Optional<OrderIdempotencyKey> row = repository.findById(key);
+        if (row.isEmpty()) return Optional.empty();
+
+        OrderIdempotencyKey stored = row.get();
+        if (stored.getExpiresAt().isBefore(Instant.now())) {
+            // Hết hạn: xoá để key được dùng lại
+            repository.delete(stored);
+            repository.flush();
+            return Optional.empty();
+        }
+        if (stored.getResponse() == null) return Optional.empty();
+
+        try {
+            return Optional.of(new StoredResponse(stored.getRequestHash(),
+                    objectMapper.readValue(stored.getResponse(), OrderResponse.class)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không đọc được response đã lưu cho Idempotency-Key", e);
+        }
+    }
+
+    /**
+     * Ghi key trước rồi mới chạy {@code createOrder} trong cùng transaction.
+     * Nếu một transaction khác đang giữ cùng key, câu INSERT sẽ chờ transaction đó kết thúc
+     * và ném {@link org.springframework.dao.DataIntegrityViolationException} nếu nó đã commit.
+     */
+    @Transactional
+    public OrderResponse createOnce(String key, String requestHash, Supplier<OrderResponse> createOrder) {
+        Instant now = Instant.now();
+        OrderIdempotencyKey row = OrderIdempotencyKey.builder()
+                .idempotencyKey(key)
+                .requestHash(requestHash)
+                .createdAt(now)
+                .expiresAt(now.plus(Duration.ofMillis(ttlMs)))
+                .build();
+        repository.saveAndFlush(row);
+
+        OrderResponse response = createOrder.get();
+
+        try {
+            row.setOrderId(response.id());
+            row.setResponse(objectMapper.writeValueAsString(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể lưu response cho Idempotency-Key", e);
+        }
+        return response;
+    }
+
+    @Scheduled(initialDelayString = "${app.idempotency.cleanup-interval-ms:3600000}",
+               fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = repository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("Đã xoá {} Idempotency-Key hết hạn", deleted);
+        }
+    }
+}
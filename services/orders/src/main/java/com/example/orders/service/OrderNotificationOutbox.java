@@ -0,0 +1,83 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.SendOrderEmailRequest;
+import com.example.orders.entity.Order;
+import com.example.orders.entity.OrderOutbox;
+import com.example.orders.entity.OutboxStatus;
+import com.example.orders.repository.OrderOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Ghi thông báo email đơn hàng vào bảng {@code order_outbox}.
+ * Bắt buộc chạy trong transaction của người gọi để bản ghi outbox và đơn hàng
+ * cùng commit hoặc cùng rollback; việc gửi thật do {@link OrderOutboxDispatcher} đảm nhận.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderNotificationOutbox {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Order order) {
+        outboxRepository.save(toOutbox(order, Instant.now()));
+        log.debug("Đã ghi outbox thông báo email cho đơn hàng #{} ({})", order.getId(), order.getStatus());
+    }
+
+    /**
+     * Ghi thông báo cho cả một lô đơn hàng trong một lần saveAll.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<Order> orders) {
+        Instant now = Instant.now();
+        outboxRepository.saveAll(orders.stream()
+                .map(order -> toOutbox(order, now))
+                .collect(Collectors.toList()));
+        log.debug("Đã ghi outbox thông báo email cho {} đơn hàng", orders.size());
+    }
+
+    private OrderOutbox toOutbox(Order order, Instant now) {
+        List<SendOrderEmailRequest.OrderItemDto> itemDtos = order.getItems().stream()
+                .map(item -> new SendOrderEmailRequest.OrderItemDto(
+                        item.getProductName(),
+                        item.getQuantity(),
+                        item.getPrice()))
+                .collect(Collectors.toList());
+
+        SendOrderEmailRequest emailRequest = SendOrderEmailRequest.builder()
+                .userId(order.getUserId())
+                .orderId(order.getId())
+                .status(order.getStatus().name())
+                .totalAmount(order.getTotalAmount())
+                .items(itemDtos)
+                .build();
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(emailRequest);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize thông báo email cho đơn hàng #" + order.getId(), e);
+        }
+
+        return OrderOutbox.builder()
+                .orderId(order.getId())
+                .payload(payload)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+    }
+}
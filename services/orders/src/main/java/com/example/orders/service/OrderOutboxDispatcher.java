@@ -0,0 +1,171 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.SendOrderEmailRequest;
+import com.example.orders.entity.OrderOutbox;
+import com.example.orders.entity.OutboxStatus;
+import com.example.orders.repository.OrderOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background job drain bảng {@code order_outbox} theo lô.
+ * Mỗi lượt nhận (claim) tối đa {@code batch-size} bản ghi đến hạn trong một transaction ngắn rồi commit ngay,
+ * sau đó mới gửi một request batch sang User Service ở ngoài transaction, để lời gọi HTTP không giữ
+ * row lock và connection DB. Kết quả được ghi lại trong transaction thứ hai: thành công thì DELIVERED,
+ * thất bại thì lùi lịch retry theo exponential backoff.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.outbox.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderOutboxDispatcher {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final UserServiceClient userServiceClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.outbox.dispatcher.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${app.outbox.dispatcher.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${app.outbox.dispatcher.backoff-base-ms:1000}")
+    private long backoffBaseMs = 1000;
+
+    @Value("${app.outbox.dispatcher.backoff-max-ms:300000}")
+    private long backoffMaxMs = 300000;
+
+    @Value("${app.outbox.dispatcher.claim-timeout-ms:60000}")
+    private long claimTimeoutMs = 60000;
+
+    @Value("${app.outbox.retention.delivered-ms:604800000}")
+    private long deliveredRetentionMs = 604800000;
+
+    @Scheduled(fixedDelayString = "${app.outbox.dispatcher.interval-ms:1000}")
+    public void dispatch() {
+        Instant now = Instant.now();
+        Map<Long, SendOrderEmailRequest> claimed = transactionTemplate.execute(status -> claim(now));
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+
+        Exception error = null;
+        try {
+            userServiceClient.sendOrderNotifications(new ArrayList<>(claimed.values()));
+        } catch (Exception e) {
+            error = e;
+        }
+
+        Exception sendError = error;
+        transactionTemplate.executeWithoutResult(status -> complete(claimed.keySet(), Instant.now(), sendError));
+    }
+
+    /**
+     * Khoá các bản ghi đến hạn (SKIP LOCKED) và đẩy {@code nextAttemptAt} lên thêm {@code claim-timeout-ms}
+     * trước khi commit: replica khác sẽ không lấy lại lô đang gửi, còn nếu node chết giữa chừng thì
+     * lô tự đến hạn lại khi hết thời gian claim.
+     */
+    private Map<Long, SendOrderEmailRequest> claim(Instant now) {
+        List<OrderOutbox> batch = outboxRepository.findDueForDispatch(
+                OutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+
+        Map<Long, SendOrderEmailRequest> requests = new LinkedHashMap<>();
+        for (OrderOutbox row : batch) {
+            try {
+                requests.put(row.getId(), objectMapper.readValue(row.getPayload(), SendOrderEmailRequest.class));
+                row.setNextAttemptAt(now.plusMillis(claimTimeoutMs));
+            } catch (Exception e) {
+                // Payload hỏng thì retry cũng vô ích
+                log.error("Payload outbox #{} không hợp lệ, bỏ qua: {}", row.getId(), e.getMessage());
+                row.setStatus(OutboxStatus.FAILED);
+                row.setLastError(truncate(e.getMessage()));
+                meterRegistry.counter("orders.outbox.dispatch", "result", "failed").increment();
+            }
+        }
+        return requests;
+    }
+
+    private void complete(Collection<Long> ids, Instant now, Exception error) {
+        List<OrderOutbox> rows = outboxRepository.findAllById(ids);
+        if (error != null) {
+            log.warn("Gửi lô {} thông báo email thất bại, sẽ retry: {}", rows.size(), error.getMessage());
+            for (OrderOutbox row : rows) {
+                scheduleRetry(row, now, error);
+            }
+            return;
+        }
+
+        for (OrderOutbox row : rows) {
+            row.setStatus(OutboxStatus.DELIVERED);
+            row.setDeliveredAt(now);
+            row.setAttempts(row.getAttempts() + 1);
+            row.setLastError(null);
+        }
+        meterRegistry.counter("orders.outbox.dispatch", "result", "delivered").increment(rows.size());
+        log.info("Đã gửi {} thông báo email đơn hàng từ outbox.", rows.size());
+    }
+
+    /**
+     * Xoá các bản ghi đã DELIVERED quá {@code app.outbox.retention.delivered-ms} để bảng outbox không phình mãi.
+     * Bản ghi FAILED được giữ lại để điều tra.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.retention.interval-ms:3600000}")
+    @Transactional
+    public void purgeDelivered() {
+        int deleted = outboxRepository.deleteByStatusAndDeliveredAtBefore(
+                OutboxStatus.DELIVERED, Instant.now().minusMillis(deliveredRetentionMs));
+        if (deleted > 0) {
+            log.info("Đã xoá {} bản ghi outbox DELIVERED quá hạn lưu giữ.", deleted);
+        }
+    }
+
+    private void scheduleRetry(OrderOutbox row, Instant now, Exception error) {
+        int attempts = row.getAttempts() + 1;
+        row.setAttempts(attempts);
+        row.setLastError(truncate(error.getMessage()));
+
+        if (attempts >= maxAttempts) {
+            log.error("Outbox #{} (đơn hàng #{}) thất bại sau {} lần, ngừng retry.", row.getId(), row.getOrderId(), attempts);
+            row.setStatus(OutboxStatus.FAILED);
+            meterRegistry.counter("orders.outbox.dispatch", "result", "failed").increment();
+            return;
+        }
+
+        row.setNextAttemptAt(now.plusMillis(backoffDelayMs(attempts)));
+        meterRegistry.counter("orders.outbox.dispatch", "result", "retried").increment();
+    }
+
+    /**
+     * Exponential backoff: base * 2^(attempts - 1), giới hạn bởi backoff-max-ms.
+     */
+    long backoffDelayMs(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        return Math.min(backoffBaseMs << shift, backoffMaxMs);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
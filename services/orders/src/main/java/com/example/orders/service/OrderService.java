@@ -1,23 +1,39 @@
 package com.example.orders.service;
 
+import com.example.orders.dto.BulkOrderStatusUpdateRequest;
+import com.example.orders.dto.BulkOrderStatusUpdateResult;
 import com.example.orders.dto.DashboardStats; // <-- Import mới
 import com.example.orders.dto.OrderCreateRequest;
+import com.example.orders.dto.OrderCursorPage;
 import com.example.orders.dto.OrderResponse;
 import com.example.orders.dto.OrderStatusUpdate;
+import com.example.orders.dto.RollupRebuildResult;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface OrderService {
 
     OrderResponse createOrder(OrderCreateRequest orderRequest, String bearerToken);
 
     Page<OrderResponse> getOrders(String userEmail, String bearerToken, Pageable pageable);
 
+    // Phân trang keyset: cursor = null cho trang đầu, không tính tổng số bản ghi
+    OrderCursorPage getOrdersByCursor(String bearerToken, String cursor, int size);
+
     OrderResponse getOrderById(Long orderId, String userEmail, String bearerToken);
 
     Page<OrderResponse> getAllOrders(Pageable pageable);
 
+    OrderCursorPage getAllOrdersByCursor(String cursor, int size);
+
     OrderResponse updateOrderStatus(Long orderId, OrderStatusUpdate statusUpdate);
+
+    // Lỗi của từng đơn được trả về trong kết quả, không làm hỏng cả lô
+    List<BulkOrderStatusUpdateResult> bulkUpdateOrderStatus(BulkOrderStatusUpdateRequest request);
     
     DashboardStats getDashboardStats();
+
+    RollupRebuildResult rebuildDashboardRollups();
 }
\ No newline at end of file
@@ -6,10 +6,14 @@ import com.example.orders.entity.OrderItem;
 import com.example.orders.entity.OrderStatus;
 import com.example.orders.exception.OrderNotFoundException;
 import com.example.orders.repository.OrderRepository;
+import com.example.orders.security.AuthenticatedUser;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -18,18 +22,29 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
 import java.time.OffsetDateTime; // Import thêm để convert
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 
@@ -39,31 +54,63 @@ import java.util.ArrayList;
 @Transactional
 public class OrderServiceImpl implements OrderService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
     private final UserServiceClient userServiceClient;
     private final ProductServiceClient productServiceClient;
+    private final OrderNotificationOutbox orderNotificationOutbox;
+    private final DashboardRollupService dashboardRollupService;
+
+    // Deadline chung cho cặp lời gọi User/Product Service khi tạo đơn
+    @Value("${app.client.checkout-lookup-timeout-ms:5000}")
+    private long lookupTimeoutMs = 5000;
+
+    /**
+     * Xác định userId của người gọi.
+     * Ưu tiên claim {@code uid} trong JWT (đã được {@code JwtAuthenticationFilter} đưa vào principal),
+     * chỉ gọi sang User Service với token cũ chưa có claim này.
+     */
+    private Long resolveUserId(String bearerToken) {
+        Long userId = userIdFromPrincipal();
+        if (userId != null) {
+            return userId;
+        }
 
-    private void triggerEmailNotification(Order order, String token) {
-        try {
-            List<SendOrderEmailRequest.OrderItemDto> itemDtos = order.getItems().stream()
-                .map(item -> new SendOrderEmailRequest.OrderItemDto(
-                        item.getProductName(), 
-                        item.getQuantity(), 
-                        item.getPrice()))
-                .collect(Collectors.toList());
+        UserDto userDto = userServiceClient.getCurrentUser(bearerToken);
+        if (userDto == null || userDto.id() == null) {
+            throw new IllegalStateException("Không thể lấy được ID người dùng từ User Service.");
+        }
+        return userDto.id();
+    }
 
-            SendOrderEmailRequest emailRequest = SendOrderEmailRequest.builder()
-                    .userId(order.getUserId())
-                    .orderId(order.getId())
-                    .status(order.getStatus().name())
-                    .totalAmount(order.getTotalAmount())
-                    .items(itemDtos)
-                    .build();
+    /**
+     * Phiên bản non-blocking của {@link #resolveUserId(String)}, dùng khi cần chạy song song với lời gọi khác.
+     * SecurityContext được đọc ngay tại thread gọi, không đọc trong pipeline reactive.
+     */
+    private Mono<Long> resolveUserIdAsync(String bearerToken) {
+        Long userId = userIdFromPrincipal();
+        if (userId != null) {
+            return Mono.just(userId);
+        }
+        return userServiceClient.getCurrentUserAsync(bearerToken).map(UserDto::id);
+    }
 
-            userServiceClient.sendOrderNotification(emailRequest, token);
-        } catch (Exception e) {
-            log.error("Lỗi khi tạo request gửi mail: {}", e.getMessage());
+    private Long userIdFromPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null
+                && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.userId();
         }
+        return null;
+    }
+
+    /**
+     * Ghi thông báo email vào outbox trong cùng transaction với đơn hàng.
+     * Không còn I/O mạng trên đường checkout; OrderOutboxDispatcher gửi theo lô ở background.
+     */
+    private void triggerEmailNotification(Order order) {
+        orderNotificationOutbox.enqueue(order);
     }
 
     @Override
@@ -76,12 +123,6 @@ public class OrderServiceImpl implements OrderService {
             throw new BadCredentialsException("Không có thông tin xác thực hợp lệ.");
         }
         
-        UserDto userDto = userServiceClient.getCurrentUser(bearerToken);
-        if (userDto == null || userDto.id() == null) {
-             throw new IllegalStateException("Không thể lấy được ID người dùng từ User Service.");
-        }
-        Long userId = userDto.id();
-
         Set<Long> productIds = orderRequest.items().stream()
                 .map(OrderItemRequest::productId)
                 .collect(Collectors.toSet());
@@ -90,7 +131,21 @@ public class OrderServiceImpl implements OrderService {
             throw new IllegalArgumentException("Đơn hàng phải có ít nhất một sản phẩm.");
         }
 
-        List<ProductDto> productDtos = productServiceClient.getProductsByIds(productIds, bearerToken);
+        // Gọi User Service (nếu cần) và Product Service song song, chung một deadline.
+        // Mono.zip huỷ nhánh còn lại ngay khi một nhánh lỗi hoặc hết thời gian chờ.
+        Tuple2<Long, List<ProductDto>> lookups = Mono.zip(
+                        resolveUserIdAsync(bearerToken),
+                        productServiceClient.getProductsByIdsAsync(productIds, bearerToken))
+                .timeout(Duration.ofMillis(lookupTimeoutMs))
+                .onErrorMap(TimeoutException.class, e -> new IllegalStateException(
+                        "Hết thời gian chờ phản hồi từ User/Product Service.", e))
+                .block();
+
+        if (lookups == null) {
+            throw new IllegalStateException("Không nhận được phản hồi từ User/Product Service.");
+        }
+        Long userId = lookups.getT1();
+        List<ProductDto> productDtos = lookups.getT2();
 
         if (productDtos.size() != productIds.size()) {
              throw new IllegalArgumentException("Một số sản phẩm không tồn tại hoặc không thể lấy thông tin.");
@@ -150,7 +205,14 @@ public class OrderServiceImpl implements OrderService {
         Order savedOrder = orderRepository.save(order);
         log.info("Đã lưu đơn hàng thành công với ID: {}", savedOrder.getId());
 
-        triggerEmailNotification(savedOrder, bearerToken);
+        // Giữ hàng khi đã có orderId: thiếu hàng (409) ném InsufficientStockException và đơn bị rollback.
+        // Đơn rollback sau khi đã gửi lệnh giữ (kể cả lời gọi hết hạn không rõ kết quả) thì trả lại hàng.
+        Long orderId = savedOrder.getId();
+        afterRollback(() -> settleStock(orderId, productServiceClient::releaseStock, "trả lại hàng"));
+        productServiceClient.reserveStock(orderId, quantities(orderRequest.items()));
+
+        dashboardRollupService.recordOrderCreated(savedOrder);
+        triggerEmailNotification(savedOrder);
 
         return mapOrderToOrderResponse(savedOrder);
     }
@@ -158,15 +220,32 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional(readOnly = true)
     public Page<OrderResponse> getOrders(String userEmail, String bearerToken, Pageable pageable) {
-        UserDto userDto = userServiceClient.getCurrentUser(bearerToken);
-        return orderRepository.findByUserId(userDto.id(), pageable).map(this::mapOrderToOrderResponse);
+        Long userId = resolveUserId(bearerToken);
+        return loadOrderPage(orderRepository.findIdsByUserId(userId, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderCursorPage getOrdersByCursor(String bearerToken, String cursor, int size) {
+        Long userId = resolveUserId(bearerToken);
+        int pageSize = cursorPageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = orderRepository.findFirstIdsByUserId(userId, limit);
+        } else {
+            OrderCursor position = OrderCursor.decode(cursor);
+            ids = orderRepository.findIdsByUserIdBefore(userId, position.createdAt(), position.id(), limit);
+        }
+        return loadCursorPage(ids, pageSize);
     }
 
     @Override
     @Transactional(readOnly = true)
     public OrderResponse getOrderById(Long orderId, String userEmail, String bearerToken) {
-        UserDto userDto = userServiceClient.getCurrentUser(bearerToken);
-        Order order = orderRepository.findByIdAndUserId(orderId, userDto.id())
+        Long userId = resolveUserId(bearerToken);
+        Order order = orderRepository.findByIdAndUserId(orderId, userId)
                 .orElseThrow(() -> new OrderNotFoundException("Không tìm thấy đơn hàng hoặc bạn không có quyền xem."));
 
         return mapOrderToOrderResponse(order);
@@ -176,7 +255,23 @@ public class OrderServiceImpl implements OrderService {
     @Transactional(readOnly = true)
     public Page<OrderResponse> getAllOrders(Pageable pageable) {
         log.info("Admin đang lấy toàn bộ danh sách đơn hàng...");
-        return orderRepository.findAll(pageable).map(this::mapOrderToOrderResponse);
+        return loadOrderPage(orderRepository.findAllIds(pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderCursorPage getAllOrdersByCursor(String cursor, int size) {
+        int pageSize = cursorPageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = orderRepository.findFirstIds(limit);
+        } else {
+            OrderCursor position = OrderCursor.decode(cursor);
+            ids = orderRepository.findIdsBefore(position.createdAt(), position.id(), limit);
+        }
+        return loadCursorPage(ids, pageSize);
     }
 
     @Override
@@ -187,61 +282,137 @@ public class OrderServiceImpl implements OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException("Không tìm thấy đơn hàng với ID: " + orderId));
 
-        OrderStatus newStatus;
-        try {
-            if (statusUpdate.getStatus() == null) throw new IllegalArgumentException("Status không được null");
-            newStatus = OrderStatus.valueOf(statusUpdate.getStatus().trim().toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Trạng thái không hợp lệ: " + statusUpdate.getStatus());
-        }
+        OrderStatus newStatus = parseStatus(statusUpdate.getStatus());
 
-        validateStatusTransition(order.getStatus(), newStatus);
+        OrderStatus oldStatus = order.getStatus();
+        validateStatusTransition(oldStatus, newStatus);
+
+        log.info("Chuyển đổi trạng thái đơn hàng {}: {} -> {}", orderId, oldStatus, newStatus);
+        Instant now = Instant.now();
+
+        if (newStatus == OrderStatus.CANCELLED) {
+            // UPDATE có điều kiện chặn 2 request huỷ cùng lúc: chỉ request đổi được dòng mới trừ rollup
+            boolean cancelledNow = orderRepository.markCancelled(orderId, now) == 1;
+            order.setStatus(OrderStatus.CANCELLED);
+            order.setUpdatedAt(now);
+            if (!cancelledNow) {
+                log.info("Đơn hàng {} đã được huỷ bởi request khác, bỏ qua", orderId);
+                return mapOrderToOrderResponse(order);
+            }
+            dashboardRollupService.recordOrderCancelled(order);
+            afterCommit(() -> settleStock(orderId, productServiceClient::releaseStock, "trả lại hàng"));
+            triggerEmailNotification(order);
+            return mapOrderToOrderResponse(order);
+        }
 
-        log.info("Chuyển đổi trạng thái đơn hàng {}: {} -> {}", orderId, order.getStatus(), newStatus);
         order.setStatus(newStatus);
         
-        order.setUpdatedAt(Instant.now());
+        order.setUpdatedAt(now);
         
         Order savedOrder = orderRepository.save(order);
-
-        triggerEmailNotification(savedOrder, "");
+        if (newStatus == OrderStatus.DELIVERED && oldStatus != OrderStatus.DELIVERED) {
+            afterCommit(() -> settleStock(orderId, productServiceClient::commitStock, "chốt hàng"));
+        }
+        triggerEmailNotification(savedOrder);
 
         return mapOrderToOrderResponse(savedOrder);
     }
 
+    @Override
+    @Transactional
+    public List<BulkOrderStatusUpdateResult> bulkUpdateOrderStatus(BulkOrderStatusUpdateRequest request) {
+        List<BulkOrderStatusUpdateRequest.Item> updates = request.updates();
+        log.info("Admin yêu cầu cập nhật trạng thái hàng loạt cho {} đơn hàng", updates.size());
+
+        // Nạp tất cả đơn (kèm items cho payload thông báo) trong 1 query
+        Set<Long> orderIds = updates.stream()
+                .map(BulkOrderStatusUpdateRequest.Item::orderId)
+                .collect(Collectors.toSet());
+        Map<Long, Order> ordersById = orderRepository.findAllWithItemsByIdIn(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        List<BulkOrderStatusUpdateResult> results = new ArrayList<>(updates.size());
+        Map<Long, Order> changed = new LinkedHashMap<>();
+        List<Order> toCancel = new ArrayList<>();
+        List<Order> cancelled = new ArrayList<>();
+        Instant now = Instant.now();
+
+        for (BulkOrderStatusUpdateRequest.Item update : updates) {
+            Order order = ordersById.get(update.orderId());
+            if (order == null) {
+                results.add(new BulkOrderStatusUpdateResult(update.orderId(), false, null,
+                        "Không tìm thấy đơn hàng với ID: " + update.orderId()));
+                continue;
+            }
+
+            OrderStatus oldStatus = order.getStatus();
+            try {
+                OrderStatus newStatus = parseStatus(update.status());
+                validateStatusTransition(oldStatus, newStatus);
+                if (newStatus == OrderStatus.CANCELLED && oldStatus != OrderStatus.CANCELLED) {
+                    // Không đổi entity ở đây: auto-flush trước câu UPDATE có điều kiện sẽ ghi đè trạng thái
+                    toCancel.add(order);
+                } else if (newStatus != oldStatus) {
+                    order.setStatus(newStatus);
+                    order.setUpdatedAt(now);
+                    changed.put(order.getId(), order);
+                    if (newStatus == OrderStatus.DELIVERED) {
+                        Long orderId = order.getId();
+                        afterCommit(() -> settleStock(orderId, productServiceClient::commitStock, "chốt hàng"));
+                    }
+                }
+                results.add(new BulkOrderStatusUpdateResult(order.getId(), true, newStatus.name(), null));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                results.add(new BulkOrderStatusUpdateResult(order.getId(), false, oldStatus.name(), e.getMessage()));
+            }
+        }
+
+        // Huỷ bằng UPDATE có điều kiện như updateOrderStatus: đơn đã bị request khác huỷ thì không trừ rollup lần nữa
+        for (Order order : toCancel) {
+            if (orderRepository.markCancelled(order.getId(), now) == 1) {
+                cancelled.add(order);
+                changed.put(order.getId(), order);
+                Long orderId = order.getId();
+                afterCommit(() -> settleStock(orderId, productServiceClient::releaseStock, "trả lại hàng"));
+            }
+            order.setStatus(OrderStatus.CANCELLED);
+            order.setUpdatedAt(now);
+        }
+
+        // Các UPDATE được Hibernate gom thành JDBC batch khi flush (hibernate.jdbc.batch_size)
+        orderRepository.flush();
+
+        if (!cancelled.isEmpty()) {
+            dashboardRollupService.recordOrdersCancelled(cancelled);
+        }
+        if (!changed.isEmpty()) {
+            orderNotificationOutbox.enqueueAll(List.copyOf(changed.values()));
+        }
+
+        log.info("Cập nhật hàng loạt xong: {}/{} đơn thay đổi trạng thái", changed.size(), updates.size());
+        return results;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public DashboardStats getDashboardStats() {
-        OrderStatus cancelledStatus = OrderStatus.CANCELLED;
+        // Chỉ đọc rollup (duy trì theo từng đơn), không quét bảng orders
+        BigDecimal totalRevenue = dashboardRollupService.totalRevenue();
+        long totalOrders = dashboardRollupService.totalOrders();
 
-        BigDecimal totalRevenue = orderRepository.sumTotalRevenue(cancelledStatus);
-        if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        YearMonth thisMonth = YearMonth.from(today);
 
-        long totalOrders = orderRepository.count();
+        long newCustomers = dashboardRollupService.customersInMonth(thisMonth);
 
-        Instant now = Instant.now();
-        ZonedDateTime zdtNow = now.atZone(ZoneOffset.UTC);
-        
-        Instant startOfMonth = zdtNow.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).toInstant();
-        
-        // FIX 1: Convert Instant -> OffsetDateTime cho Repository
-        long newCustomers = orderRepository.countDistinctUsersInPeriod(
-            startOfMonth.atOffset(ZoneOffset.UTC), 
-            now.atOffset(ZoneOffset.UTC)
-        );
-
-        double revenueGrowth = calculateRevenueGrowth(now, cancelledStatus);
+        double revenueGrowth = calculateRevenueGrowth(today);
 
-        List<MonthlyRevenue> rawMonthlyStats = orderRepository.getMonthlyRevenue(cancelledStatus);
-        
-        List<DashboardStats.MonthlyStats> chartData = rawMonthlyStats.stream()
+        List<DashboardStats.MonthlyStats> chartData = dashboardRollupService.monthlyRevenue().stream()
                 .map(m -> new DashboardStats.MonthlyStats("Tháng " + m.month(), m.total()))
                 .collect(Collectors.toList());
 
         Pageable top5 = PageRequest.of(0, 5, Sort.by("createdAt").descending());
-        List<OrderResponse> recentSales = orderRepository.findAll(top5).stream()
-                .map(this::mapOrderToOrderResponse)
-                .collect(Collectors.toList());
+        List<OrderResponse> recentSales = loadOrders(orderRepository.findAllIds(top5).getContent());
 
         return new DashboardStats(
                 totalRevenue,
@@ -252,28 +423,19 @@ public class OrderServiceImpl implements OrderService {
                 recentSales
         );
     }
+
+    @Override
+    @Transactional
+    public RollupRebuildResult rebuildDashboardRollups() {
+        return dashboardRollupService.rebuild();
+    }
     
-    private double calculateRevenueGrowth(Instant now, OrderStatus cancelledStatus) {
-        ZonedDateTime zdtNow = now.atZone(ZoneOffset.UTC);
-        
-        Instant startOfThisMonth = zdtNow.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).toInstant();
-        Instant startOfLastMonth = zdtNow.minusMonths(1).withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).toInstant();
-        Instant endOfLastMonth = startOfThisMonth.minusMillis(1); 
-
-        // FIX 2: Convert Instant -> OffsetDateTime cho Repository
-        BigDecimal thisMonthRev = orderRepository.sumRevenueInPeriod(
-            startOfThisMonth.atOffset(ZoneOffset.UTC), 
-            now.atOffset(ZoneOffset.UTC), 
-            cancelledStatus
-        );
-        if (thisMonthRev == null) thisMonthRev = BigDecimal.ZERO;
-        
-        BigDecimal lastMonthRev = orderRepository.sumRevenueInPeriod(
-            startOfLastMonth.atOffset(ZoneOffset.UTC), 
-            endOfLastMonth.atOffset(ZoneOffset.UTC), 
-            cancelledStatus
-        );
-        if (lastMonthRev == null) lastMonthRev = BigDecimal.ZERO;
+    private double calculateRevenueGrowth(LocalDate today) {
+        YearMonth thisMonth = YearMonth.from(today);
+        YearMonth lastMonth = thisMonth.minusMonths(1);
+
+        BigDecimal thisMonthRev = dashboardRollupService.revenueBetween(thisMonth.atDay(1), today);
+        BigDecimal lastMonthRev = dashboardRollupService.revenueBetween(lastMonth.atDay(1), lastMonth.atEndOfMonth());
 
         if (lastMonthRev.compareTo(BigDecimal.ZERO) == 0) {
             return thisMonthRev.compareTo(BigDecimal.ZERO) > 0 ? 100.0 : 0.0;
@@ -285,6 +447,15 @@ public class OrderServiceImpl implements OrderService {
                 .doubleValue();
     }
 
+    private OrderStatus parseStatus(String status) {
+        try {
+            if (status == null) throw new IllegalArgumentException("Status không được null");
+            return OrderStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Trạng thái không hợp lệ: " + status);
+        }
+    }
+
     private void validateStatusTransition(OrderStatus currentStatus, OrderStatus newStatus) {
         if (currentStatus == newStatus) return;
         if (currentStatus == OrderStatus.DELIVERED || currentStatus == OrderStatus.CANCELLED) {
@@ -305,6 +476,101 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    /**
+     * Gộp số lượng theo sản phẩm (một sản phẩm có thể xuất hiện nhiều dòng với ghi chú khác nhau).
+     */
+    private static Map<Long, Integer> quantities(List<OrderItemRequest> items) {
+        return items.stream().collect(Collectors.toMap(OrderItemRequest::productId, OrderItemRequest::quantity,
+                Integer::sum, TreeMap::new));
+    }
+
+    /**
+     * Trả/chốt hàng sau khi trạng thái đơn đã được lưu. Lỗi chỉ được ghi log: đơn vẫn đổi trạng thái,
+     * dòng giữ hàng ở Products Service giữ nguyên (RESERVED) cho tới khi được xử lý lại.
+     */
+    private void settleStock(Long orderId, Consumer<Long> call, String action) {
+        try {
+            call.accept(orderId);
+        } catch (RuntimeException e) {
+            log.error("Không {} được cho đơn #{}: {}", action, orderId, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private Page<OrderResponse> loadOrderPage(Page<Long> idPage) {
+        return new PageImpl<>(loadOrders(idPage.getContent()), idPage.getPageable(), idPage.getTotalElements());
+    }
+
+    private List<OrderResponse> loadOrders(List<Long> orderIds) {
+        return loadOrderEntities(orderIds).stream()
+                .map(this::mapOrderToOrderResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Nạp Order kèm items cho danh sách id trong 1 query và giữ nguyên thứ tự của pha phân trang.
+     */
+    private List<Order> loadOrderEntities(List<Long> orderIds) {
+        if (orderIds.isEmpty()) return List.of();
+
+        Map<Long, Order> ordersById = orderRepository.findAllWithItemsByIdIn(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        return orderIds.stream()
+                .map(ordersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Dựng trang cursor từ danh sách id đã lấy dư 1 phần tử (size + 1) để biết còn trang sau hay không.
+     */
+    private OrderCursorPage loadCursorPage(List<Long> idsWithLookahead, int size) {
+        boolean hasNext = idsWithLookahead.size() > size;
+        List<Order> orders = loadOrderEntities(hasNext ? idsWithLookahead.subList(0, size) : idsWithLookahead);
+
+        String nextCursor = null;
+        if (hasNext && !orders.isEmpty()) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        List<OrderResponse> content = orders.stream()
+                .map(this::mapOrderToOrderResponse)
+                .collect(Collectors.toList());
+        return new OrderCursorPage(content, nextCursor, hasNext);
+    }
+
+    private static int cursorPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
     private OrderResponse mapOrderToOrderResponse(Order order) {
         if (order == null) return null;
 
@@ -1,7 +1,10 @@
 package com.example.orders.service;
 
 import com.example.orders.dto.ProductDto; 
+import reactor.core.publisher.Mono;
+
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -22,4 +25,32 @@ public interface ProductServiceClient {
      */
     List<ProductDto> getProductsByIds(Set<Long> productIds, String bearerToken);
 
+    /**
+     * Phiên bản non-blocking của {@link #getProductsByIds(Set, String)}.
+     * Lời gọi chỉ thực sự được gửi khi Mono được subscribe, và bị huỷ nếu subscriber huỷ.
+     *
+     * @return Mono phát ra danh sách ProductDto, hoặc lỗi như mô tả ở phiên bản blocking.
+     */
+    Mono<List<ProductDto>> getProductsByIdsAsync(Set<Long> productIds, String bearerToken);
+
+    /**
+     * Giữ hàng cho đơn (tất cả các dòng hoặc không dòng nào) qua route nội bộ của Products Service.
+     * Giữ theo orderId: gọi lại cho cùng đơn trả lại kết quả cũ, không trừ tồn kho lần nữa.
+     *
+     * @param quantities Số lượng theo productId
+     * @throws com.example.orders.exception.InsufficientStockException Nếu có dòng không đủ hàng (409).
+     * @throws RuntimeException Nếu có lỗi kết nối hoặc lỗi server từ Products Service.
+     */
+    void reserveStock(Long orderId, Map<Long, Integer> quantities);
+
+    /**
+     * Trả lại tồn kho đã giữ cho đơn bị huỷ. Không làm gì nếu đơn không có dòng giữ hàng (đơn cũ).
+     */
+    void releaseStock(Long orderId);
+
+    /**
+     * Chốt hàng đã giữ cho đơn đã giao. Không làm gì nếu đơn không có dòng giữ hàng (đơn cũ).
+     */
+    void commitStock(Long orderId);
+
 }
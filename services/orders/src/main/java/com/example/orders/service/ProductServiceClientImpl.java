@@ -1,33 +1,133 @@
 package com.example.orders.service;
 
 import com.example.orders.dto.ProductDto;
+import com.example.orders.dto.StockReservationRequest;
+import com.example.orders.dto.StockReservationResult;
+import com.example.orders.exception.InsufficientStockException;
+import com.example.orders.resilience.Bulkhead;
+import com.example.orders.resilience.CircuitBreaker;
+import com.example.orders.resilience.DownstreamGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Client gọi Product Service, được bảo vệ bởi bulkhead + circuit breaker ({@link DownstreamGuard}).
+ * {@code GET /api/products/batch} là idempotent nên có thể bật hedging: nếu sau p95 độ trễ quan sát được
+ * vẫn chưa có phản hồi thì gửi thêm một request và lấy kết quả về trước.
+ * Giữ/trả/chốt hàng đi qua route nội bộ {@code /api/internal/inventory/reservations} (không cần token người dùng,
+ * vì huỷ/giao đơn do admin thực hiện) và không hedge: chúng không idempotent theo thời gian như một lượt đọc.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ProductServiceClientImpl implements ProductServiceClient {
 
+    static final String DOWNSTREAM = "products-service";
+    static final String RESERVATIONS_PATH = "/api/internal/inventory/reservations";
+
+    @Qualifier("productsWebClient")
     private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.client.products-service.url}")
     private String productsServiceUrl;
 
+    @Value("${app.client.products-service.bulkhead.max-concurrent-calls:50}")
+    private int maxConcurrentCalls = 50;
+
+    @Value("${app.client.products-service.circuit-breaker.window-size:50}")
+    private int windowSize = 50;
+
+    @Value("${app.client.products-service.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls = 20;
+
+    @Value("${app.client.products-service.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold = 0.5;
+
+    @Value("${app.client.products-service.circuit-breaker.open-duration-ms:10000}")
+    private long openDurationMs = 10000;
+
+    @Value("${app.client.products-service.circuit-breaker.half-open-calls:5}")
+    private int halfOpenCalls = 5;
+
+    // Ngắn hơn app.client.checkout-lookup-timeout-ms để lời gọi chậm được breaker tính là lỗi
+    @Value("${app.client.products-service.call-timeout-ms:4000}")
+    private long callTimeoutMs = 4000;
+
+    @Value("${app.client.products-service.hedge.enabled:false}")
+    private boolean hedgeEnabled = false;
+
+    // Chưa đủ mẫu để tính p95 thì dùng độ trễ tối thiểu này; cũng là sàn của độ trễ hedge
+    @Value("${app.client.products-service.hedge.min-delay-ms:50}")
+    private long hedgeMinDelayMs = 50;
+
+    @Value("${app.client.products-service.hedge.min-samples:20}")
+    private long hedgeMinSamples = 20;
+
+    private DownstreamGuard guard;
+    private Timer latency;
+    private Counter hedgesFired;
+    private Counter hedgesWon;
+
+    /**
+     * Kết quả của một lần gọi khi hedging, kèm cờ cho biết do request hedge trả về.
+     */
+    private record Attempt(List<ProductDto> products, boolean hedge) {}
+
+    @PostConstruct
+    public void init() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                Duration.ofMillis(openDurationMs), halfOpenCalls, Clock.systemUTC());
+        // Lỗi 4xx (IllegalArgumentException, thiếu hàng) nghĩa là Product Service vẫn phản hồi bình thường
+        this.guard = new DownstreamGuard(DOWNSTREAM, circuitBreaker, new Bulkhead(maxConcurrentCalls),
+                error -> !(error instanceof IllegalArgumentException || error instanceof InsufficientStockException),
+                Duration.ofMillis(callTimeoutMs), meterRegistry);
+
+        this.latency = Timer.builder("orders.products_client.latency")
+                .description("Độ trễ các lời gọi thành công tới /api/products/batch")
+                .publishPercentiles(0.95)
+                .register(meterRegistry);
+        this.hedgesFired = Counter.builder("orders.products_client.hedge.fired")
+                .description("Số request hedge đã gửi")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("orders.products_client.hedge.won")
+                .description("Số lần request hedge trả về trước request gốc")
+                .register(meterRegistry);
+    }
+
     @Override
     public List<ProductDto> getProductsByIds(Set<Long> productIds, String bearerToken) {
+        return getProductsByIdsAsync(productIds, bearerToken).block();
+    }
+
+    @Override
+    public Mono<List<ProductDto>> getProductsByIdsAsync(Set<Long> productIds, String bearerToken) {
         if (productIds == null || productIds.isEmpty()) {
             log.warn("productIds rỗng hoặc null, không gọi Product Service.");
-            return List.of();
+            return Mono.just(List.of());
         }
 
         String idsParam = productIds.stream()
@@ -38,33 +138,165 @@ public class ProductServiceClientImpl implements ProductServiceClient {
         
         log.debug("Gọi Product Service URI: {}", uri); 
 
-        List<ProductDto> productDtos = webClient.get()
-                .uri(uri)
-                .header("Authorization", bearerToken) 
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, response -> {
-                    log.error("Lỗi Client khi gọi Product Service ({}) tại URI [{}]: {}",
-                            response.statusCode(), uri, response.bodyToMono(String.class));
-                    return response.bodyToMono(String.class)
-                            .flatMap(body -> Mono.error(new IllegalArgumentException("Không tìm thấy sản phẩm hoặc request không hợp lệ: " + body)));
-                })
-                .onStatus(HttpStatusCode::is5xxServerError, response -> {
-                    log.error("Lỗi Server khi gọi Product Service ({}) tại URI [{}]: {}",
-                            response.statusCode(), uri, response.bodyToMono(String.class));
-                    return response.bodyToMono(String.class)
-                            .flatMap(body -> Mono.error(new RuntimeException("Lỗi phía Product Service: " + body)));
-                })
-                .bodyToFlux(ProductDto.class)
-                .collectList()
+        return guard.protect(() -> hedgeEnabled ? fetchHedged(uri, bearerToken) : fetch(uri, bearerToken))
+                .flatMap(productDtos -> {
+                    if (productDtos.size() != productIds.size()) {
+                        log.warn("Số lượng sản phẩm trả về từ Product Service ({}) không khớp yêu cầu ({}) cho các ID: {}",
+                                productDtos.size(), productIds.size(), productIds);
+                        return Mono.error(new IllegalArgumentException("Không thể lấy thông tin đầy đủ cho tất cả sản phẩm yêu cầu."));
+                    }
+                    log.info("Lấy thành công thông tin {} sản phẩm từ Product Service.", productDtos.size());
+                    return Mono.just(productDtos);
+                });
+    }
+
+    @Override
+    public void reserveStock(Long orderId, Map<Long, Integer> quantities) {
+        StockReservationRequest request = new StockReservationRequest(orderId, quantities.entrySet().stream()
+                .map(line -> new StockReservationRequest.Item(line.getKey(), line.getValue()))
+                .toList());
+        String uri = productsServiceUrl + RESERVATIONS_PATH;
+
+        guard.protect(() -> webClient.post()
+                        .uri(uri)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(request)
+                        .retrieve()
+                        .onStatus(status -> status.value() == HttpStatus.CONFLICT.value(), response -> response
+                                .bodyToMono(StockReservationResult.class)
+                                .map(result -> (Throwable) new InsufficientStockException(insufficientStockMessage(orderId, result)))
+                                .defaultIfEmpty(new InsufficientStockException("Không đủ hàng cho đơn #" + orderId)))
+                        .onStatus(HttpStatusCode::isError, response -> reservationError(response.statusCode(), uri, response.bodyToMono(String.class)))
+                        .toBodilessEntity())
+                .block();
+        log.info("Đã giữ hàng cho đơn #{} ({} sản phẩm)", orderId, quantities.size());
+    }
+
+    @Override
+    public void releaseStock(Long orderId) {
+        settleReservation(orderId, "release");
+    }
+
+    @Override
+    public void commitStock(Long orderId) {
+        settleReservation(orderId, "commit");
+    }
+
+    private void settleReservation(Long orderId, String action) {
+        String uri = productsServiceUrl + RESERVATIONS_PATH + "/" + orderId + "/" + action;
+
+        guard.protect(() -> webClient.post()
+                        .uri(uri)
+                        .retrieve()
+                        // Đơn tạo trước khi có giữ hàng: không có gì để trả/chốt
+                        .onStatus(status -> status.value() == HttpStatus.NOT_FOUND.value(), response -> {
+                            log.info("Đơn #{} không có dòng giữ hàng, bỏ qua {}", orderId, action);
+                            return Mono.empty();
+                        })
+                        .onStatus(HttpStatusCode::isError, response -> reservationError(response.statusCode(), uri, response.bodyToMono(String.class)))
+                        .toBodilessEntity())
                 .block();
+    }
+
+    private static Mono<Throwable> reservationError(HttpStatusCode status, String uri, Mono<String> body) {
+        log.error("Lỗi khi gọi giữ hàng của Product Service ({}) tại URI [{}]", status, uri);
+        return body.defaultIfEmpty("")
+                .map(text -> status.is4xxClientError()
+                        ? new IllegalArgumentException("Yêu cầu giữ hàng không hợp lệ: " + text)
+                        : new RuntimeException("Lỗi phía Product Service: " + text));
+    }
 
-        if (productDtos == null || productDtos.size() != productIds.size()) {
-            log.warn("Số lượng sản phẩm trả về từ Product Service ({}) không khớp yêu cầu ({}) cho các ID: {}",
-                    productDtos != null ? productDtos.size() : 0, productIds.size(), productIds);
-            throw new IllegalArgumentException("Không thể lấy thông tin đầy đủ cho tất cả sản phẩm yêu cầu.");
+    private static String insufficientStockMessage(Long orderId, StockReservationResult result) {
+        // 409 không kèm kết quả từng dòng: đơn đang được giữ hàng bởi request khác
+        if (result.lines() == null) {
+            return "Không giữ được hàng cho đơn #" + orderId;
         }
+        return "Không đủ hàng: " + result.lines().stream()
+                .filter(line -> !line.success())
+                .map(line -> "sản phẩm #" + line.productId() + " - " + Objects.requireNonNullElse(line.error(), "không giữ được"))
+                .collect(Collectors.joining("; "));
+    }
+
+    private Mono<List<ProductDto>> fetch(String uri, String bearerToken) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.get()
+                    .uri(uri)
+                    .header("Authorization", bearerToken)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, response -> {
+                        log.error("Lỗi Client khi gọi Product Service ({}) tại URI [{}]: {}",
+                                response.statusCode(), uri, response.bodyToMono(String.class));
+                        return response.bodyToMono(String.class)
+                                .flatMap(body -> Mono.error(new IllegalArgumentException("Không tìm thấy sản phẩm hoặc request không hợp lệ: " + body)));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, response -> {
+                        log.error("Lỗi Server khi gọi Product Service ({}) tại URI [{}]: {}",
+                                response.statusCode(), uri, response.bodyToMono(String.class));
+                        return response.bodyToMono(String.class)
+                                .flatMap(body -> Mono.error(new RuntimeException("Lỗi phía Product Service: " + body)));
+                    })
+                    .bodyToFlux(ProductDto.class)
+                    .collectList()
+                    .doOnSuccess(products -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Gửi request gốc; nếu sau {@link #hedgeDelay()} chưa có phản hồi và bulkhead còn chỗ thì gửi thêm
+     * một request giống hệt. Kết quả về trước thắng, request còn lại bị huỷ.
+     * Chỉ báo lỗi khi mọi request đã gửi đều lỗi.
+     */
+    private Mono<List<ProductDto>> fetchHedged(String uri, String bearerToken) {
+        return Mono.defer(() -> {
+            AtomicInteger running = new AtomicInteger(1);
+
+            Mono<Attempt> primary = fetch(uri, bearerToken)
+                    .map(products -> new Attempt(products, false))
+                    .onErrorResume(error -> lastFailure(running, error));
+
+            Mono<Attempt> hedge = Mono.delay(hedgeDelay())
+                    .flatMap(tick -> {
+                        // Request hedge cũng chiếm một chỗ trong bulkhead; hết chỗ thì chỉ chờ request gốc
+                        if (!guard.getBulkhead().tryAcquire()) {
+                            return Mono.<Attempt>never();
+                        }
+                        running.incrementAndGet();
+                        hedgesFired.increment();
+                        log.debug("Product Service chậm hơn p95, gửi request hedge: {}", uri);
+                        return fetch(uri, bearerToken)
+                                .map(products -> new Attempt(products, true))
+                                .onErrorResume(error -> lastFailure(running, error))
+                                .doFinally(signal -> guard.getBulkhead().release());
+                    });
+
+            return Mono.firstWithSignal(primary, hedge)
+                    .map(attempt -> {
+                        if (attempt.hedge()) hedgesWon.increment();
+                        return attempt.products();
+                    });
+        });
+    }
+
+    private static Mono<Attempt> lastFailure(AtomicInteger running, Throwable error) {
+        // Request khác vẫn đang chạy: bỏ qua lỗi này và chờ kết quả của nó
+        return running.decrementAndGet() == 0 ? Mono.error(error) : Mono.never();
+    }
+
+    Duration hedgeDelay() {
+        if (latency.count() < hedgeMinSamples) {
+            return Duration.ofMillis(hedgeMinDelayMs);
+        }
+        double p95Ms = hedgeMinDelayMs;
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                p95Ms = percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Duration.ofMillis(Math.max(hedgeMinDelayMs, (long) p95Ms));
+    }
 
-        log.info("Lấy thành công thông tin {} sản phẩm từ Product Service.", productDtos.size());
-        return productDtos;
+    DownstreamGuard getGuard() {
+        return guard;
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,22 @@ package com.example.orders.service;
 
 import com.example.orders.dto.SendOrderEmailRequest;
 import com.example.orders.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface UserServiceClient {
     UserDto getCurrentUser(String bearerToken);
-    void sendOrderNotification(SendOrderEmailRequest request, String token);
+
+    /**
+     * Phiên bản non-blocking của {@link #getCurrentUser(String)}.
+     * Lời gọi chỉ thực sự được gửi khi Mono được subscribe.
+     */
+    Mono<UserDto> getCurrentUserAsync(String bearerToken);
+
+    /**
+     * Gửi một lô thông báo email đơn hàng sang User Service (blocking).
+     * Ném exception nếu User Service không nhận lô, để outbox dispatcher retry.
+     */
+    void sendOrderNotifications(List<SendOrderEmailRequest> requests);
 }
\ No newline at end of file
@@ -2,8 +2,10 @@ package com.example.orders.service;
 
 import com.example.orders.dto.SendOrderEmailRequest;
 import com.example.orders.dto.UserDto;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
@@ -12,71 +14,84 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class UserServiceClientImpl implements UserServiceClient {
 
+    // Số lần phải gọi /api/users/me (token cũ chưa có claim uid). Kỳ vọng giảm dần về 0.
+    private static final String CURRENT_USER_CALLS_METRIC = "orders.users_client.current_user.calls";
+
+    @Qualifier("usersWebClient")
     private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.client.users-service.url}")
     private String usersServiceUrl;
 
     @Override
     public UserDto getCurrentUser(String bearerToken) {
+        return getCurrentUserAsync(bearerToken).block();
+    }
+
+    @Override
+    public Mono<UserDto> getCurrentUserAsync(String bearerToken) {
         if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
             log.warn("Token không hợp lệ hoặc thiếu.");
-            throw new BadCredentialsException("Token không hợp lệ.");
+            return Mono.error(new BadCredentialsException("Token không hợp lệ."));
         }
 
         String uri = usersServiceUrl + "/api/users/me";
-        log.debug("Gọi User Service URI: {}", uri);
 
-        UserDto userDto = webClient.get()
-                .uri(uri)
-                .header("Authorization", bearerToken) 
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, response -> {
-                    log.error("Lỗi Client khi gọi User Service ({}): Token không hợp lệ hoặc user không tồn tại.", response.statusCode());
-                    return response.bodyToMono(String.class)
-                            .flatMap(body -> Mono.error(new BadCredentialsException("Thông tin xác thực không hợp lệ: " + body)));
-                })
-                .onStatus(HttpStatusCode::is5xxServerError, response -> {
-                    log.error("Lỗi Server khi gọi User Service ({}): {}", response.statusCode(), uri);
-                    return response.bodyToMono(String.class)
-                            .flatMap(body -> Mono.error(new RuntimeException("Lỗi phía User Service: " + body)));
-                })
-                .bodyToMono(UserDto.class)
-                .block();
+        return Mono.defer(() -> {
+            meterRegistry.counter(CURRENT_USER_CALLS_METRIC).increment();
+            log.debug("Gọi User Service URI: {}", uri);
 
-        if (userDto == null || userDto.id() == null) {
-            log.error("Không nhận được ID người dùng hợp lệ từ User Service.");
-            throw new IllegalStateException("Không thể lấy được ID người dùng từ User Service.");
-        }
-
-        log.info("Lấy thành công thông tin userId: {} từ token.", userDto.id());
-        return userDto;
+            return webClient.get()
+                    .uri(uri)
+                    .header("Authorization", bearerToken)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, response -> {
+                        log.error("Lỗi Client khi gọi User Service ({}): Token không hợp lệ hoặc user không tồn tại.", response.statusCode());
+                        return response.bodyToMono(String.class)
+                                .flatMap(body -> Mono.error(new BadCredentialsException("Thông tin xác thực không hợp lệ: " + body)));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, response -> {
+                        log.error("Lỗi Server khi gọi User Service ({}): {}", response.statusCode(), uri);
+                        return response.bodyToMono(String.class)
+                                .flatMap(body -> Mono.error(new RuntimeException("Lỗi phía User Service: " + body)));
+                    })
+                    .bodyToMono(UserDto.class);
+        })
+                .defaultIfEmpty(new UserDto(null, null, null))
+                .flatMap(userDto -> {
+                    if (userDto.id() == null) {
+                        log.error("Không nhận được ID người dùng hợp lệ từ User Service.");
+                        return Mono.error(new IllegalStateException("Không thể lấy được ID người dùng từ User Service."));
+                    }
+                    log.info("Lấy thành công thông tin userId: {} từ token.", userDto.id());
+                    return Mono.just(userDto);
+                });
     }
 
     @Override
-    public void sendOrderNotification(SendOrderEmailRequest request, String token) {
-        String uri = usersServiceUrl + "/api/internal/email/send-order-notification";
-        
-        String bearerToken = (token != null && token.startsWith("Bearer ")) ? token : "Bearer " + token;
+    public void sendOrderNotifications(List<SendOrderEmailRequest> requests) {
+        String uri = usersServiceUrl + "/api/internal/email/send-order-notifications";
 
-        log.info("Đang gửi tín hiệu email tới: {} cho Order #{}", uri, request.getOrderId());
+        log.info("Đang gửi lô {} tín hiệu email tới: {}", requests.size(), uri);
 
         webClient.post()
                 .uri(uri)
-                .header("Authorization", bearerToken)
                 .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(request)
+                .bodyValue(requests)
                 .retrieve()
-                .toBodilessEntity() 
-                .subscribe(
-                    response -> log.info("Đã gửi thành công tín hiệu email cho đơn hàng #{}", request.getOrderId()),
-                    
-                    error -> log.error("Gửi email thất bại: {}", error.getMessage())
-                );
+                .onStatus(HttpStatusCode::isError, response -> response.bodyToMono(String.class)
+                        .defaultIfEmpty("")
+                        .flatMap(body -> Mono.error(new RuntimeException(
+                                "User Service từ chối lô thông báo (" + response.statusCode() + "): " + body))))
+                .toBodilessEntity()
+                .block();
     }
-}
\ No newline at end of file
+}
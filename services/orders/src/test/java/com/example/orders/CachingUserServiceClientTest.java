@@ -0,0 +1,132 @@
+package com.example.orders;
+
+import com.example.orders.dto.UserDto;
+import com.example.orders.security.JwtTokenProvider;
+import com.example.orders.service.CachingUserServiceClient;
+import com.example.orders.service.UserServiceClientImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CachingUserServiceClient Tests")
+class CachingUserServiceClientTest {
+
+    private static final String SECRET = "ZGV2c2Vjb3BzLXByb2plY3QtdGVzdC1zZWNyZXQta2V5LW11c3QtYmUtbG9uZy1lbm91Z2g=";
+
+    @Mock
+    private UserServiceClientImpl delegate;
+
+    private JwtTokenProvider jwtTokenProvider;
+    private SimpleMeterRegistry meterRegistry;
+    private CachingUserServiceClient client;
+
+    private final UserDto mockUser = new UserDto(1L, "Test User", "test@example.com");
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationMs", 3600000L);
+        jwtTokenProvider.init();
+
+        meterRegistry = new SimpleMeterRegistry();
+        client = new CachingUserServiceClient(delegate, jwtTokenProvider, meterRegistry);
+        ReflectionTestUtils.setField(client, "ttlMs", 60000L);
+        ReflectionTestUtils.setField(client, "maxSize", 100L);
+        client.init();
+    }
+
+    private String bearerFor(String email) {
+        return "Bearer " + jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(email, null, Collections.emptyList()));
+    }
+
+    @Test
+    @DisplayName("getCurrentUser: Lần gọi thứ hai cùng subject lấy từ cache")
+    void testGetCurrentUser_SecondCallIsCacheHit() {
+        String token = bearerFor("test@example.com");
+        when(delegate.getCurrentUserAsync(token)).thenReturn(Mono.just(mockUser));
+
+        assertThat(client.getCurrentUser(token)).isEqualTo(mockUser);
+        assertThat(client.getCurrentUser(token)).isEqualTo(mockUser);
+
+        verify(delegate, times(1)).getCurrentUserAsync(token);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("getCurrentUser: Các lượt miss đồng thời chỉ gọi User Service một lần")
+    void testGetCurrentUser_ConcurrentMissesAreCoalesced() throws Exception {
+        String token = bearerFor("test@example.com");
+        when(delegate.getCurrentUserAsync(token)).thenReturn(Mono.just(mockUser).delayElement(Duration.ofMillis(200)));
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserDto>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return client.getCurrentUser(token);
+            }));
+        }
+        start.countDown();
+        for (Future<UserDto> result : results) {
+            assertThat(result.get()).isEqualTo(mockUser);
+        }
+        pool.shutdown();
+
+        verify(delegate, times(1)).getCurrentUserAsync(token);
+    }
+
+    @Test
+    @DisplayName("getCurrentUser: Entry không sống lâu hơn exp của token")
+    void testGetCurrentUser_EntryExpiresWithToken() throws Exception {
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationMs", 1000L);
+        String shortLivedToken = bearerFor("test@example.com");
+        when(delegate.getCurrentUserAsync(shortLivedToken)).thenReturn(Mono.just(mockUser));
+
+        client.getCurrentUser(shortLivedToken);
+        Thread.sleep(1100);
+        client.getCurrentUser(shortLivedToken);
+
+        verify(delegate, times(2)).getCurrentUserAsync(shortLivedToken);
+    }
+
+    @Test
+    @DisplayName("getCurrentUser: Lỗi từ User Service không bị cache và giữ nguyên kiểu exception")
+    void testGetCurrentUser_FailureIsNotCached() {
+        String token = bearerFor("test@example.com");
+        when(delegate.getCurrentUserAsync(token))
+                .thenReturn(Mono.error(new BadCredentialsException("Thông tin xác thực không hợp lệ")))
+                .thenReturn(Mono.just(mockUser));
+
+        assertThrows(BadCredentialsException.class, () -> client.getCurrentUser(token));
+        assertThat(client.getCurrentUser(token)).isEqualTo(mockUser);
+
+        verify(delegate, times(2)).getCurrentUserAsync(token);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.orders;
+
+import com.example.orders.dto.OrderCreateRequest;
+import com.example.orders.dto.OrderItemRequest;
+import com.example.orders.dto.ProductDto;
+import com.example.orders.dto.UserDto;
+import com.example.orders.entity.Order;
+import com.example.orders.repository.OrderRepository;
+import com.example.orders.security.AuthenticatedUser;
+import com.example.orders.service.DashboardRollupService;
+import com.example.orders.service.OrderNotificationOutbox;
+import com.example.orders.service.OrderServiceImpl;
+import com.example.orders.service.ProductServiceClientImpl;
+import com.example.orders.service.UserServiceClientImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test so sánh số checkout chạy đồng thời tối đa giữa hai chế độ xử lý request:
+ * pool platform thread cố định (như Tomcat mặc định) và mỗi request một virtual thread
+ * ({@code spring.threads.virtual.enabled=true}). User/Product Service đều chậm nên mỗi checkout
+ * giữ thread trong lúc {@code block()}.
+ */
+@DisplayName("Checkout Concurrency Tests")
+class CheckoutConcurrencyTest {
+
+    private static final long HOP_DELAY_MS = 200;
+    private static final int PLATFORM_THREADS = 20; // Thu nhỏ từ server.tomcat.threads.max=200
+    private static final int CHECKOUTS = 100;
+    private static final String MOCK_TOKEN = "Bearer fake.token.string";
+
+    private MockWebServer usersServer;
+    private MockWebServer productsServer;
+    private ConnectionProvider connectionProvider;
+    private OrderServiceImpl orderService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final OrderCreateRequest request = new OrderCreateRequest(
+            "Khách Hàng Test", "123 Đường Test", "0909123456", null, "COD",
+            List.of(new OrderItemRequest(101L, 1, null)));
+
+    @BeforeEach
+    void setUp() throws IOException {
+        usersServer = new MockWebServer();
+        productsServer = new MockWebServer();
+
+        String userBody = objectMapper.writeValueAsString(new UserDto(1L, "Test User", "test@example.com"));
+        String productBody = objectMapper.writeValueAsString(
+                List.of(new ProductDto(101L, "Sản phẩm 1", new BigDecimal("50.00"), "img1.jpg", 100)));
+
+        usersServer.setDispatcher(delayedJson(userBody));
+        productsServer.setDispatcher(delayedJson(productBody));
+        usersServer.start();
+        productsServer.start();
+
+        // Đủ kết nối cho mọi checkout để pool HTTP không phải là nút thắt của phép đo
+        connectionProvider = ConnectionProvider.builder("checkout-load").maxConnections(CHECKOUTS * 2).build();
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+
+        UserServiceClientImpl userClient = new UserServiceClientImpl(webClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userClient, "usersServiceUrl", baseUrl(usersServer));
+        ProductServiceClientImpl productClient = new ProductServiceClientImpl(webClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(productClient, "productsServiceUrl", baseUrl(productsServer));
+        // Bulkhead đủ rộng để đo giới hạn của thread chứ không phải của bulkhead
+        ReflectionTestUtils.setField(productClient, "maxConcurrentCalls", CHECKOUTS);
+        productClient.init();
+
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(1L);
+            return order;
+        });
+
+        orderService = new OrderServiceImpl(orderRepository, userClient, productClient, mock(OrderNotificationOutbox.class), mock(DashboardRollupService.class));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionProvider.dispose();
+        usersServer.shutdown();
+        productsServer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Virtual thread: số checkout đồng thời không bị giới hạn bởi kích thước pool thread")
+    void testMaxInFlightCheckouts_PlatformVsVirtual() throws Exception {
+        int platformMax;
+        try (ExecutorService platform = Executors.newFixedThreadPool(PLATFORM_THREADS)) {
+            platformMax = runCheckouts(platform);
+        }
+
+        int virtualMax;
+        try (ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+            virtualMax = runCheckouts(virtual);
+        }
+
+        assertThat(platformMax).isLessThanOrEqualTo(PLATFORM_THREADS);
+        assertThat(virtualMax).isGreaterThan(PLATFORM_THREADS * 3);
+    }
+
+    /**
+     * @return Số checkout đang chạy cùng lúc lớn nhất quan sát được
+     */
+    private int runCheckouts(ExecutorService executor) throws Exception {
+        inFlight.set(0);
+        maxInFlight.set(0);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            results.add(executor.submit(this::checkout));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        return maxInFlight.get();
+    }
+
+    private void checkout() {
+        // Token cũ chưa có claim uid -> buộc phải gọi User Service
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(null, "test@example.com"), null, Collections.emptyList()));
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            orderService.createOrder(request, MOCK_TOKEN);
+        } finally {
+            inFlight.decrementAndGet();
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static Dispatcher delayedJson(String body) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(body)
+                        .setHeadersDelay(HOP_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+
+    private static String baseUrl(MockWebServer server) {
+        String url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.orders;
+
+import com.example.orders.dto.OrderCreateRequest;
+import com.example.orders.dto.OrderItemRequest;
+import com.example.orders.dto.ProductDto;
+import com.example.orders.dto.UserDto;
+import com.example.orders.entity.Order;
+import com.example.orders.repository.OrderRepository;
+import com.example.orders.security.AuthenticatedUser;
+import com.example.orders.service.DashboardRollupService;
+import com.example.orders.service.OrderNotificationOutbox;
+import com.example.orders.service.OrderServiceImpl;
+import com.example.orders.service.ProductServiceClientImpl;
+import com.example.orders.service.UserServiceClientImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đo độ trễ createOrder khi User Service và Product Service cùng chậm.
+ * Hai lời gọi chạy song song nên p50 phải gần max(hop1, hop2), không phải tổng của chúng.
+ * Phép đo thời gian gắn tag benchmark; tính song song được kiểm tra bằng điểm hẹn, không dựa vào đồng hồ.
+ */
+@DisplayName("Checkout Latency Tests")
+class CheckoutLatencyTest {
+
+    private static final long HOP_DELAY_MS = 300;
+    private static final String MOCK_TOKEN = "Bearer fake.token.string";
+
+    private MockWebServer usersServer;
+    private MockWebServer productsServer;
+    private OrderServiceImpl orderService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String userBody;
+    private String productBody;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        usersServer = new MockWebServer();
+        productsServer = new MockWebServer();
+
+        userBody = objectMapper.writeValueAsString(new UserDto(1L, "Test User", "test@example.com"));
+        productBody = objectMapper.writeValueAsString(
+                List.of(new ProductDto(101L, "Sản phẩm 1", new BigDecimal("50.00"), "img1.jpg", 100)));
+
+        usersServer.setDispatcher(delayedJson(userBody));
+        productsServer.setDispatcher(delayedJson(productBody));
+        usersServer.start();
+        productsServer.start();
+
+        UserServiceClientImpl userClient = new UserServiceClientImpl(WebClient.create(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userClient, "usersServiceUrl", baseUrl(usersServer));
+        ProductServiceClientImpl productClient = new ProductServiceClientImpl(WebClient.create(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(productClient, "productsServiceUrl", baseUrl(productsServer));
+        productClient.init();
+
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(1L);
+            return order;
+        });
+
+        orderService = new OrderServiceImpl(orderRepository, userClient, productClient, mock(OrderNotificationOutbox.class), mock(DashboardRollupService.class));
+
+        // Token cũ chưa có claim uid -> buộc phải gọi User Service
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(null, "test@example.com"), null, Collections.emptyList()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        SecurityContextHolder.clearContext();
+        usersServer.shutdown();
+        productsServer.shutdown();
+    }
+
+    private static OrderCreateRequest orderRequest() {
+        return new OrderCreateRequest(
+                "Khách Hàng Test", "123 Đường Test", "0909123456", null, "COD",
+                List.of(new OrderItemRequest(101L, 1, null)));
+    }
+
+    @Test
+    @DisplayName("createOrder: Lời gọi User Service và Product Service cùng đang chờ trả lời một lúc")
+    void testCreateOrder_LookupsOverlap() {
+        CountDownLatch arrived = new CountDownLatch(2);
+        AtomicBoolean overlapped = new AtomicBoolean(true);
+        usersServer.setDispatcher(rendezvousJson(userBody, arrived, overlapped));
+        productsServer.setDispatcher(rendezvousJson(productBody, arrived, overlapped));
+
+        orderService.createOrder(orderRequest(), MOCK_TOKEN);
+
+        assertThat(arrived.getCount()).isZero();
+        assertThat(overlapped).isTrue();
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark createOrder: p50 gần max(hop1, hop2) thay vì hop1 + hop2")
+    void testCreateOrder_LookupsRunConcurrently() {
+        OrderCreateRequest request = orderRequest();
+
+        // Làm nóng kết nối và JIT
+        orderService.createOrder(request, MOCK_TOKEN);
+
+        List<Long> samples = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            long start = System.nanoTime();
+            orderService.createOrder(request, MOCK_TOKEN);
+            samples.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        Collections.sort(samples);
+        long p50 = samples.get(samples.size() / 2);
+
+        assertThat(p50).isGreaterThanOrEqualTo(HOP_DELAY_MS);
+        assertThat(p50).isLessThan(HOP_DELAY_MS * 2 - 100);
+    }
+
+    /**
+     * Chỉ trả lời khi lời gọi còn lại cũng đã tới. Nếu hai lời gọi chạy tuần tự, lời gọi đầu chờ hết hạn
+     * và {@code overlapped} bị đặt về false.
+     */
+    private static Dispatcher rendezvousJson(String body, CountDownLatch arrived, AtomicBoolean overlapped) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                arrived.countDown();
+                if (!arrived.await(2, TimeUnit.SECONDS)) {
+                    overlapped.set(false);
+                }
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(body);
+            }
+        };
+    }
+
+    private static Dispatcher delayedJson(String body) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // Lệnh giữ hàng chạy sau khi lưu đơn, không thuộc phần tra cứu song song đang đo -> không trễ
+                long delay = request.getPath().startsWith("/api/internal/") ? 0 : HOP_DELAY_MS;
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(body)
+                        .setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+
+    private static String baseUrl(MockWebServer server) {
+        String url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.orders;
+
+import com.example.orders.resilience.CircuitBreaker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CircuitBreaker Tests")
+class CircuitBreakerTest {
+
+    /**
+     * Đồng hồ có thể chỉnh tay để chuyển OPEN -> HALF_OPEN mà không phải chờ.
+     */
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final MutableClock clock = new MutableClock();
+    private final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), 2, clock);
+
+    private void call(boolean fail) {
+        CircuitBreaker.Permit permit = breaker.tryAcquirePermission();
+        assertThat(permit).isNotNull();
+        if (fail) breaker.onFailure(permit); else breaker.onSuccess(permit);
+    }
+
+    @Test
+    @DisplayName("Mở mạch khi tỉ lệ lỗi trong cửa sổ đạt ngưỡng, chưa mở khi chưa đủ số lời gọi tối thiểu")
+    void testOpensOnFailureRate() {
+        call(true);
+        call(true);
+        call(false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(false); // 2/4 lỗi = 50%
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        call(true);  // Cửa sổ trượt: 2/4 lỗi (lỗi đầu tiên bị đẩy ra) -> mở
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNull();
+    }
+
+    @Test
+    @DisplayName("Hết thời gian mở: cho một số lời gọi thử, tất cả thành công thì đóng mạch")
+    void testHalfOpen_ClosesAfterSuccessfulProbes() {
+        for (int i = 0; i < 4; i++) call(true);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        clock.advance(Duration.ofSeconds(10));
+        CircuitBreaker.Permit first = breaker.tryAcquirePermission();
+        CircuitBreaker.Permit second = breaker.tryAcquirePermission();
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(breaker.tryAcquirePermission()).isNull(); // Chỉ 2 lời gọi thử
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Lời gọi thử lỗi thì mở mạch lại; lời gọi thử bị huỷ trả lại lượt thử")
+    void testHalfOpen_ReopensOnFailure() {
+        for (int i = 0; i < 4; i++) call(true);
+        clock.advance(Duration.ofSeconds(10));
+
+        CircuitBreaker.Permit cancelled = breaker.tryAcquirePermission();
+        assertThat(breaker.tryAcquirePermission()).isNotNull();
+        breaker.onIgnored(cancelled);
+        CircuitBreaker.Permit retry = breaker.tryAcquirePermission();
+        assertThat(retry).isNotNull();
+
+        breaker.onFailure(retry);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNull();
+    }
+
+    @Test
+    @DisplayName("Lời gọi bắt đầu khi CLOSED, kết thúc khi HALF_OPEN không được tính là lời gọi thử")
+    void testHalfOpen_IgnoresPermitsIssuedWhileClosed() {
+        CircuitBreaker.Permit slowSuccess = breaker.tryAcquirePermission();
+        CircuitBreaker.Permit slowCancelled = breaker.tryAcquirePermission();
+        CircuitBreaker.Permit slowFailure = breaker.tryAcquirePermission();
+        for (int i = 0; i < 4; i++) call(true);
+        clock.advance(Duration.ofSeconds(10));
+
+        CircuitBreaker.Permit probe = breaker.tryAcquirePermission();
+        assertThat(probe).isNotNull();
+        breaker.onSuccess(slowSuccess);
+        breaker.onIgnored(slowCancelled);
+        breaker.onFailure(slowFailure);
+
+        // Lượt thử không bị trả lại sai (vẫn còn đúng 1 lượt), mạch không đóng/mở theo lời gọi cũ
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNotNull();
+        assertThat(breaker.tryAcquirePermission()).isNull();
+    }
+}
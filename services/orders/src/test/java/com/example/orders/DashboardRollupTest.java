@@ -0,0 +1,209 @@
+package com.example.orders;
+
+import com.example.orders.dto.DashboardStats;
+import com.example.orders.dto.OrderStatusUpdate;
+import com.example.orders.dto.RollupRebuildResult;
+import com.example.orders.entity.Order;
+import com.example.orders.entity.OrderItem;
+import com.example.orders.entity.OrderStatus;
+import com.example.orders.repository.DailyRevenueRollupRepository;
+import com.example.orders.repository.MonthlyCustomerRollupRepository;
+import com.example.orders.repository.OrderRepository;
+import com.example.orders.service.DashboardRollupService;
+import com.example.orders.service.OrderNotificationOutbox;
+import com.example.orders.service.OrderServiceImpl;
+import com.example.orders.service.ProductServiceClient;
+import com.example.orders.service.UserServiceClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Rollup Dashboard được cập nhật theo từng đơn và khớp với kết quả rebuild từ bảng orders.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Mỗi bước commit riêng như các request thật
+@Import({OrderServiceImpl.class, DashboardRollupService.class})
+@DisplayName("Dashboard Rollup Tests")
+class DashboardRollupTest {
+
+    @Autowired
+    private OrderServiceImpl orderService;
+    @Autowired
+    private DashboardRollupService dashboardRollupService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private DailyRevenueRollupRepository dailyRepository;
+    @Autowired
+    private MonthlyCustomerRollupRepository customerRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private UserServiceClient userServiceClient;
+    @MockBean
+    private ProductServiceClient productServiceClient;
+    @MockBean
+    private OrderNotificationOutbox orderNotificationOutbox;
+
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            orderRepository.deleteAll();
+            dailyRepository.deleteAllRows();
+            customerRepository.deleteAllRows();
+        });
+    }
+
+    private Order placeOrder(long userId, String amount) {
+        Order order = Order.builder()
+                .userId(userId)
+                .customerName("Khách Hàng Test")
+                .shippingAddress("123 Đường Test")
+                .phoneNumber("0909123456")
+                .status(OrderStatus.PENDING)
+                .paymentMethod("COD")
+                .totalAmount(new BigDecimal(amount))
+                .build();
+        order.addItem(OrderItem.builder().productId(101L).productName("Sản phẩm 1").quantity(1).price(new BigDecimal(amount)).build());
+        return tx.execute(status -> {
+            Order saved = orderRepository.save(order);
+            dashboardRollupService.recordOrderCreated(saved);
+            return saved;
+        });
+    }
+
+    private void cancel(Order order) {
+        OrderStatusUpdate update = new OrderStatusUpdate();
+        update.setStatus("CANCELLED");
+        orderService.updateOrderStatus(order.getId(), update);
+    }
+
+    @Test
+    @DisplayName("getDashboardStats: Đọc doanh thu, số đơn, khách hàng từ rollup")
+    void testGetDashboardStats_ReadsRollups() {
+        placeOrder(1L, "100.00");
+        placeOrder(1L, "50.00");
+        placeOrder(2L, "30.00");
+
+        DashboardStats stats = orderService.getDashboardStats();
+
+        assertThat(stats.totalRevenue()).isEqualByComparingTo("180.00");
+        assertThat(stats.totalOrders()).isEqualTo(3);
+        assertThat(stats.newCustomers()).isEqualTo(2);
+        assertThat(stats.monthlyRevenue()).hasSize(1);
+        assertThat(stats.monthlyRevenue().get(0).total()).isEqualByComparingTo("180.00");
+        assertThat(stats.recentSales()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("updateOrderStatus: Huỷ đơn trừ doanh thu đúng một lần")
+    void testCancelOrder_SubtractsRevenueOnce() {
+        placeOrder(1L, "100.00");
+        Order cancelled = placeOrder(2L, "40.00");
+
+        cancel(cancelled);
+
+        // Đơn đã huỷ không thể chuyển trạng thái nữa, rollup không bị trừ lần hai
+        assertThrows(IllegalStateException.class, () -> {
+            OrderStatusUpdate update = new OrderStatusUpdate();
+            update.setStatus("CONFIRMED");
+            orderService.updateOrderStatus(cancelled.getId(), update);
+        });
+        cancel(cancelled);
+
+        DashboardStats stats = orderService.getDashboardStats();
+        assertThat(stats.totalRevenue()).isEqualByComparingTo("100.00");
+        assertThat(stats.totalOrders()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("updateOrderStatus: Hai request huỷ cùng một đơn chỉ trừ doanh thu một lần")
+    void testConcurrentCancel_SubtractsRevenueOnce() {
+        placeOrder(1L, "100.00");
+        Order order = placeOrder(2L, "40.00");
+
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+
+        // Request 1 đọc đơn khi còn PENDING, request 2 huỷ và commit trước, rồi request 1 mới huỷ
+        tx.executeWithoutResult(status -> {
+            assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.PENDING);
+            requiresNew.executeWithoutResult(inner -> cancel(order));
+            cancel(order);
+        });
+
+        DashboardStats stats = orderService.getDashboardStats();
+        assertThat(stats.totalRevenue()).isEqualByComparingTo("100.00");
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    @Test
+    @DisplayName("monthlyRevenue: Tháng chỉ có đơn bị huỷ không xuất hiện trên biểu đồ")
+    void testMonthlyRevenue_SkipsMonthsWithoutRevenue() {
+        Order order = placeOrder(1L, "40.00");
+        cancel(order);
+
+        DashboardStats stats = orderService.getDashboardStats();
+
+        assertThat(stats.totalOrders()).isEqualTo(1);
+        assertThat(stats.monthlyRevenue()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("rebuildIfEmpty: Rollup trống nhưng đã có đơn thì được dựng lại lúc khởi động")
+    void testRebuildIfEmpty_BackfillsEmptyRollups() {
+        placeOrder(1L, "100.00");
+        placeOrder(2L, "25.00");
+        tx.executeWithoutResult(status -> {
+            dailyRepository.deleteAllRows();
+            customerRepository.deleteAllRows();
+        });
+        assertThat(orderService.getDashboardStats().totalOrders()).isZero();
+
+        dashboardRollupService.rebuildIfEmpty();
+
+        DashboardStats stats = orderService.getDashboardStats();
+        assertThat(stats.totalRevenue()).isEqualByComparingTo("125.00");
+        assertThat(stats.totalOrders()).isEqualTo(2);
+        assertThat(stats.newCustomers()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("rebuild: Kết quả tính lại khớp với rollup cập nhật theo từng đơn")
+    void testRebuild_MatchesIncrementalRollups() {
+        placeOrder(1L, "100.00");
+        placeOrder(2L, "75.50");
+        Order cancelled = placeOrder(3L, "20.00");
+        cancel(cancelled);
+
+        DashboardStats incremental = orderService.getDashboardStats();
+
+        RollupRebuildResult result = orderService.rebuildDashboardRollups();
+        DashboardStats rebuilt = orderService.getDashboardStats();
+
+        assertThat(result.orders()).isEqualTo(3);
+        assertThat(result.totalRevenue()).isEqualByComparingTo("175.50");
+        assertThat(rebuilt.totalRevenue()).isEqualByComparingTo(incremental.totalRevenue());
+        assertThat(rebuilt.totalOrders()).isEqualTo(incremental.totalOrders());
+        assertThat(rebuilt.newCustomers()).isEqualTo(incremental.newCustomers());
+        assertThat(rebuilt.revenueGrowth()).isEqualTo(incremental.revenueGrowth());
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.orders;
+
+import com.example.orders.dto.OrderCreateRequest;
+import com.example.orders.dto.OrderItemRequest;
+import com.example.orders.dto.OrderResponse;
+import com.example.orders.exception.IdempotencyConflictException;
+import com.example.orders.service.IdempotentOrderService;
+import com.example.orders.service.OrderIdempotencyStore;
+import com.example.orders.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("IdempotentOrderService Tests")
+class IdempotentOrderServiceTest {
+
+    private static final String MOCK_EMAIL = "test.user@example.com";
+    private static final String MOCK_TOKEN = "Bearer dummy.token.123";
+
+    @Mock
+    private OrderService orderService;
+    @Mock
+    private OrderIdempotencyStore store;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IdempotentOrderService service;
+
+    private final OrderCreateRequest request = new OrderCreateRequest(
+            "Khách Hàng Test", "123 Đường Test", "0909123456", null, "COD",
+            List.of(new OrderItemRequest(101L, 2, null)));
+    private final OrderResponse response = new OrderResponse(
+            1L, 1L, "PENDING", new BigDecimal("100.00"), List.of(), null, null);
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotentOrderService(orderService, store, objectMapper);
+        service.init();
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(MOCK_EMAIL, null, List.of()));
+        SecurityContextHolder.setContext(context);
+
+        when(store.find(anyString())).thenReturn(Optional.empty());
+        when(store.createOnce(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Supplier<OrderResponse> createOrder = invocation.getArgument(2);
+            return createOrder.get();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("createOrder: Gửi lại cùng key chỉ tạo đơn một lần")
+    void testCreateOrder_SameKey_CreatesOnce() {
+        when(orderService.createOrder(request, MOCK_TOKEN)).thenReturn(response);
+
+        OrderResponse first = service.createOrder("key-1", request, MOCK_TOKEN);
+        OrderResponse second = service.createOrder("key-1", request, MOCK_TOKEN);
+
+        assertThat(second).isEqualTo(first);
+        verify(orderService, times(1)).createOrder(request, MOCK_TOKEN);
+        verify(store, times(1)).createOnce(eq(MOCK_EMAIL + ":key-1"), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("createOrder: Request trùng key đồng thời chờ kết quả của request đầu tiên")
+    void testCreateOrder_ConcurrentDuplicates_WaitForFirst() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(request, MOCK_TOKEN)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+
+        SecurityContext context = SecurityContextHolder.getContext();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<OrderResponse> first = executor.submit(() -> {
+                SecurityContextHolder.setContext(context);
+                return service.createOrder("key-1", request, MOCK_TOKEN);
+            });
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<OrderResponse> duplicate = executor.submit(() -> {
+                SecurityContextHolder.setContext(context);
+                return service.createOrder("key-1", request, MOCK_TOKEN);
+            });
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(response);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(response);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(orderService, times(1)).createOrder(request, MOCK_TOKEN);
+    }
+
+    @Test
+    @DisplayName("createOrder: Cùng key nhưng payload khác trả về 409")
+    void testCreateOrder_SameKeyDifferentPayload_Conflict() {
+        when(orderService.createOrder(any(), eq(MOCK_TOKEN))).thenReturn(response);
+        service.createOrder("key-1", request, MOCK_TOKEN);
+
+        OrderCreateRequest other = new OrderCreateRequest(
+                "Khách Hàng Test", "123 Đường Test", "0909123456", null, "COD",
+                List.of(new OrderItemRequest(101L, 5, null)));
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> service.createOrder("key-1", other, MOCK_TOKEN));
+        verify(orderService, times(1)).createOrder(any(), any());
+    }
+
+    @Test
+    @DisplayName("createOrder: Key đã lưu trong DB (node khác/trước restart) trả lại response mà không checkout lại")
+    void testCreateOrder_StoredResponse_SkipsCheckout() {
+        service.createOrder("warmup", request, MOCK_TOKEN); // Lấy hash của request qua store
+        String hash = captureHash();
+
+        when(store.find(MOCK_EMAIL + ":key-2"))
+                .thenReturn(Optional.of(new OrderIdempotencyStore.StoredResponse(hash, response)));
+        clearInvocations(orderService);
+
+        OrderResponse result = service.createOrder("key-2", request, MOCK_TOKEN);
+
+        assertThat(result).isEqualTo(response);
+        verify(orderService, never()).createOrder(any(), any());
+    }
+
+    @Test
+    @DisplayName("createOrder: Node khác commit trước với cùng key thì đọc lại response của node đó")
+    void testCreateOrder_LostRaceAcrossNodes_ReturnsWinner() {
+        service.createOrder("warmup", request, MOCK_TOKEN);
+        String hash = captureHash();
+
+        when(store.createOnce(eq(MOCK_EMAIL + ":key-3"), anyString(), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(store.find(MOCK_EMAIL + ":key-3"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new OrderIdempotencyStore.StoredResponse(hash, response)));
+
+        assertThat(service.createOrder("key-3", request, MOCK_TOKEN)).isEqualTo(response);
+    }
+
+    @Test
+    @DisplayName("createOrder: Lần tạo đơn lỗi không được ghi nhớ, retry cùng key sẽ chạy lại")
+    void testCreateOrder_Failure_NotRemembered() {
+        when(orderService.createOrder(request, MOCK_TOKEN))
+                .thenThrow(new IllegalStateException("Sản phẩm hết hàng"))
+                .thenReturn(response);
+
+        assertThrows(IllegalStateException.class, () -> service.createOrder("key-1", request, MOCK_TOKEN));
+        assertThat(service.createOrder("key-1", request, MOCK_TOKEN)).isEqualTo(response);
+        verify(orderService, times(2)).createOrder(request, MOCK_TOKEN);
+    }
+
+    @Test
+    @DisplayName("createOrder: Key rỗng hoặc quá dài bị từ chối")
+    void testCreateOrder_InvalidKey() {
+        assertThrows(IllegalArgumentException.class, () -> service.createOrder(" ", request, MOCK_TOKEN));
+        assertThrows(IllegalArgumentException.class, () -> service.createOrder("k".repeat(256), request, MOCK_TOKEN));
+        verifyNoInteractions(orderService);
+    }
+
+    private String captureHash() {
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        verify(store, atLeastOnce()).createOnce(eq(MOCK_EMAIL + ":warmup"), hash.capture(), any());
+        return hash.getValue();
+    }
+}
@@ -8,6 +8,8 @@ import com.example.orders.dto.OrderItemResponse;
 import com.example.orders.exception.OrderNotFoundException;
 import com.example.orders.security.JwtAuthenticationEntryPoint;
 import com.example.orders.security.JwtTokenProvider;
+import com.example.orders.service.IdempotentOrderService;
+import com.example.orders.service.OrderExportService;
 import com.example.orders.service.OrderService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -49,6 +51,12 @@ class OrderControllerTest {
     @MockBean
     private OrderService orderService;
 
+    @MockBean
+    private OrderExportService orderExportService;
+
+    @MockBean
+    private IdempotentOrderService idempotentOrderService;
+
     @MockBean
     private JwtTokenProvider jwtTokenProvider;
     
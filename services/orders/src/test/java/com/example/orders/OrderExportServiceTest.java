@@ -0,0 +1,126 @@
+package com.example.orders;
+
+import com.example.orders.dto.OrderExportFormat;
+import com.example.orders.entity.Order;
+import com.example.orders.entity.OrderItem;
+import com.example.orders.entity.OrderStatus;
+import com.example.orders.service.OrderExportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(OrderExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@DisplayName("OrderExportService Tests")
+class OrderExportServiceTest {
+
+    private static final int ORDERS_IN_RANGE = 10;
+
+    @Autowired
+    private OrderExportService exportService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Instant from = Instant.parse("2026-09-01T00:00:00Z");
+    private final Instant to = Instant.parse("2026-10-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS_IN_RANGE; i++) {
+            persistOrder(from.plus(i, ChronoUnit.DAYS));
+        }
+        // Ngoài khoảng export
+        persistOrder(from.minusSeconds(1));
+        persistOrder(to);
+        entityManager.flush();
+        entityManager.clear();
+
+        ReflectionTestUtils.setField(exportService, "chunkSize", 4);
+    }
+
+    private void persistOrder(Instant createdAt) {
+        Order order = Order.builder()
+                .userId(1L)
+                .customerName("Khách Hàng Test")
+                .shippingAddress("123 Đường Test")
+                .phoneNumber("0909123456")
+                .status(OrderStatus.DELIVERED)
+                .paymentMethod("COD")
+                .paymentStatus("PAID")
+                .totalAmount(new BigDecimal("100.00"))
+                .build();
+        order.addItem(OrderItem.builder().productId(101L).productName("Trà sữa, size L").quantity(1).price(new BigDecimal("60.00")).build());
+        order.addItem(OrderItem.builder().productId(102L).productName("Bánh \"ngọt\"").quantity(2).price(new BigDecimal("20.00")).build());
+        entityManager.persist(order);
+        entityManager.flush();
+        // @CreatedDate ghi đè createdAt khi persist, nên đặt lại bằng câu UPDATE
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Order o SET o.createdAt = :createdAt WHERE o.id = :id")
+                .setParameter("createdAt", createdAt)
+                .setParameter("id", order.getId())
+                .executeUpdate();
+    }
+
+    @Test
+    @DisplayName("export NDJSON: Mỗi đơn một dòng, items nạp theo lô, persistence context được dọn")
+    void testExport_Ndjson_StreamsInChunks() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export(from, to, OrderExportFormat.NDJSON, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(exported).isEqualTo(ORDERS_IN_RANGE);
+        assertThat(lines).hasSize(ORDERS_IN_RANGE);
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            assertThat(node.get("items")).hasSize(2);
+        }
+
+        // 1 cursor + 1 query items cho mỗi lô 4 đơn (4 + 4 + 2)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + 3);
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("export CSV: Header + một dòng mỗi item, giá trị đặc biệt được escape")
+    void testExport_Csv_OneRowPerItem() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(from, to, OrderExportFormat.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines.get(0)).startsWith("order_id,user_id,status");
+        assertThat(lines).hasSize(1 + ORDERS_IN_RANGE * 2);
+        assertThat(lines.get(1)).contains("\"Trà sữa, size L\"");
+        assertThat(lines.get(2)).contains("\"Bánh \"\"ngọt\"\"\"");
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.orders;
+
+import com.example.orders.dto.OrderResponse;
+import com.example.orders.entity.OrderIdempotencyKey;
+import com.example.orders.repository.OrderIdempotencyKeyRepository;
+import com.example.orders.service.OrderIdempotencyStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Dòng của "node khác" phải commit trước
+@Import(OrderIdempotencyStore.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@DisplayName("OrderIdempotencyStore Tests")
+class OrderIdempotencyStoreTest {
+
+    @Autowired
+    private OrderIdempotencyStore store;
+    @Autowired
+    private OrderIdempotencyKeyRepository repository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final OrderResponse response = new OrderResponse(
+            1L, 1L, "PENDING", new BigDecimal("100.00"), List.of(), null, null);
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> repository.deleteAll());
+    }
+
+    @Test
+    @DisplayName("createOnce: Lưu key cùng response của đơn vừa tạo")
+    void testCreateOnce_StoresResponse() {
+        OrderResponse result = store.createOnce("user@example.com:key-1", "hash-1", () -> response);
+
+        assertThat(result).isEqualTo(response);
+        assertThat(store.find("user@example.com:key-1"))
+                .hasValueSatisfying(stored -> {
+                    assertThat(stored.requestHash()).isEqualTo("hash-1");
+                    assertThat(stored.response()).isEqualTo(response);
+                });
+    }
+
+    @Test
+    @DisplayName("createOnce: Key đã được node khác commit thì ném lỗi trùng khoá, không ghi đè và không tạo đơn")
+    void testCreateOnce_KeyAlreadyExists_Throws() {
+        Instant now = Instant.now();
+        repository.saveAndFlush(OrderIdempotencyKey.builder()
+                .idempotencyKey("user@example.com:key-2")
+                .requestHash("winner-hash")
+                .orderId(7L)
+                .response("{\"id\":7}")
+                .createdAt(now)
+                .expiresAt(now.plus(Duration.ofDays(1)))
+                .build());
+
+        AtomicInteger created = new AtomicInteger();
+        assertThrows(DataIntegrityViolationException.class,
+                () -> store.createOnce("user@example.com:key-2", "loser-hash", () -> {
+                    created.incrementAndGet();
+                    return response;
+                }));
+
+        assertThat(created).hasValue(0);
+        OrderIdempotencyKey row = repository.findById("user@example.com:key-2").orElseThrow();
+        assertThat(row.getRequestHash()).isEqualTo("winner-hash");
+        assertThat(row.getOrderId()).isEqualTo(7L);
+        assertThat(row.getResponse()).isEqualTo("{\"id\":7}");
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.orders;
+
+import com.example.orders.dto.SendOrderEmailRequest;
+import com.example.orders.entity.OrderOutbox;
+import com.example.orders.entity.OutboxStatus;
+import com.example.orders.repository.OrderOutboxRepository;
+import com.example.orders.service.OrderOutboxDispatcher;
+import com.example.orders.service.UserServiceClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OrderOutboxDispatcher Tests")
+class OrderOutboxDispatcherTest {
+
+    @Mock
+    private OrderOutboxRepository outboxRepository;
+    @Mock
+    private UserServiceClient userServiceClient;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OrderOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OrderOutboxDispatcher(outboxRepository, userServiceClient, objectMapper, new SimpleMeterRegistry(),
+                new TransactionTemplate(transactionManager));
+    }
+
+    private void givenDue(OrderOutbox... rows) {
+        when(outboxRepository.findDueForDispatch(eq(OutboxStatus.PENDING), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(rows));
+        lenient().when(outboxRepository.findAllById(anyCollection())).thenReturn(List.of(rows));
+    }
+
+    private OrderOutbox pendingRow(long id, long orderId, int attempts) throws Exception {
+        SendOrderEmailRequest request = SendOrderEmailRequest.builder()
+                .userId(1L)
+                .orderId(orderId)
+                .status("PENDING")
+                .totalAmount(new BigDecimal("100.00"))
+                .items(List.of())
+                .build();
+        return OrderOutbox.builder()
+                .id(id)
+                .orderId(orderId)
+                .payload(objectMapper.writeValueAsString(request))
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(Instant.now().minusSeconds(1))
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    @Test
+    @DisplayName("dispatch: Gửi cả lô trong một lời gọi và đánh dấu DELIVERED")
+    @SuppressWarnings("unchecked")
+    void testDispatch_Success_ShouldSendOneBatchAndMarkDelivered() throws Exception {
+        OrderOutbox row1 = pendingRow(1L, 10L, 0);
+        OrderOutbox row2 = pendingRow(2L, 11L, 0);
+        givenDue(row1, row2);
+
+        dispatcher.dispatch();
+
+        ArgumentCaptor<List<SendOrderEmailRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userServiceClient, times(1)).sendOrderNotifications(captor.capture());
+        assertThat(captor.getValue()).extracting(SendOrderEmailRequest::getOrderId).containsExactly(10L, 11L);
+
+        assertThat(row1.getStatus()).isEqualTo(OutboxStatus.DELIVERED);
+        assertThat(row2.getStatus()).isEqualTo(OutboxStatus.DELIVERED);
+        assertThat(row1.getDeliveredAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("dispatch: User Service lỗi thì giữ PENDING và lùi lịch retry")
+    void testDispatch_Failure_ShouldScheduleRetryWithBackoff() throws Exception {
+        OrderOutbox row = pendingRow(1L, 10L, 2);
+        givenDue(row);
+        doThrow(new RuntimeException("User Service down")).when(userServiceClient).sendOrderNotifications(anyList());
+
+        Instant before = Instant.now();
+        dispatcher.dispatch();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(row.getAttempts()).isEqualTo(3);
+        assertThat(row.getLastError()).contains("User Service down");
+        // Lần thử thứ 3: base(1000ms) * 2^2 = 4000ms
+        assertThat(row.getNextAttemptAt()).isAfterOrEqualTo(before.plusMillis(4000));
+    }
+
+    @Test
+    @DisplayName("dispatch: Vượt quá số lần retry thì chuyển FAILED")
+    void testDispatch_MaxAttemptsReached_ShouldMarkFailed() throws Exception {
+        OrderOutbox row = pendingRow(1L, 10L, 9);
+        givenDue(row);
+        doThrow(new RuntimeException("User Service down")).when(userServiceClient).sendOrderNotifications(anyList());
+
+        dispatcher.dispatch();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(row.getAttempts()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("dispatch: Outbox rỗng thì không gọi User Service")
+    void testDispatch_EmptyOutbox_ShouldDoNothing() {
+        when(outboxRepository.findDueForDispatch(eq(OutboxStatus.PENDING), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        dispatcher.dispatch();
+
+        verifyNoInteractions(userServiceClient);
+    }
+
+    @Test
+    @DisplayName("dispatch: Claim được commit trước khi gọi User Service, kết quả ghi ở transaction thứ hai")
+    void testDispatch_ShouldSendOutsideClaimTransaction() throws Exception {
+        OrderOutbox row = pendingRow(1L, 10L, 0);
+        givenDue(row);
+
+        Instant before = Instant.now();
+        doAnswer(invocation -> {
+            // Lúc gửi, lô đã được claim (đẩy nextAttemptAt) nhưng chưa DELIVERED
+            assertThat(row.getStatus()).isEqualTo(OutboxStatus.PENDING);
+            assertThat(row.getNextAttemptAt()).isAfterOrEqualTo(before.plusMillis(60000));
+            return null;
+        }).when(userServiceClient).sendOrderNotifications(anyList());
+
+        dispatcher.dispatch();
+
+        InOrder inOrder = inOrder(transactionManager, outboxRepository, userServiceClient);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outboxRepository).findDueForDispatch(eq(OutboxStatus.PENDING), any(Instant.class), any(Pageable.class));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(userServiceClient).sendOrderNotifications(anyList());
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outboxRepository).findAllById(anyCollection());
+        inOrder.verify(transactionManager).commit(any());
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.DELIVERED);
+    }
+
+    @Test
+    @DisplayName("purgeDelivered: Chỉ xoá bản ghi DELIVERED quá hạn lưu giữ")
+    void testPurgeDelivered_ShouldDeleteDeliveredOlderThanRetention() {
+        Instant before = Instant.now();
+        when(outboxRepository.deleteByStatusAndDeliveredAtBefore(eq(OutboxStatus.DELIVERED), any(Instant.class)))
+                .thenReturn(3);
+
+        dispatcher.purgeDelivered();
+
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(outboxRepository).deleteByStatusAndDeliveredAtBefore(eq(OutboxStatus.DELIVERED), cutoff.capture());
+        // Mặc định giữ 7 ngày
+        assertThat(cutoff.getValue()).isBeforeOrEqualTo(before.minus(Duration.ofDays(7)).plusSeconds(1));
+        assertThat(cutoff.getValue()).isAfter(before.minus(Duration.ofDays(7)).minusSeconds(5));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.orders;
+
+import com.example.orders.dto.BulkOrderStatusUpdateRequest;
+import com.example.orders.dto.BulkOrderStatusUpdateResult;
+import com.example.orders.dto.OrderCursorPage;
+import com.example.orders.dto.OrderResponse;
+import com.example.orders.entity.Order;
+import com.example.orders.entity.OrderItem;
+import com.example.orders.entity.OrderStatus;
+import com.example.orders.service.DashboardRollupService;
+import com.example.orders.service.OrderNotificationOutbox;
+import com.example.orders.service.OrderServiceImpl;
+import com.example.orders.service.ProductServiceClient;
+import com.example.orders.service.UserServiceClient;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Đếm số câu SQL khi liệt kê đơn hàng.
+ * Số query mỗi trang phải cố định, không tăng theo số đơn trong trang (không N+1 trên order_items).
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(OrderServiceImpl.class)
+@DisplayName("Order Query Count Tests")
+class OrderQueryCountTest {
+
+    private static final int ORDER_COUNT = 30;
+
+    @Autowired
+    private OrderServiceImpl orderService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private UserServiceClient userServiceClient;
+    @MockBean
+    private ProductServiceClient productServiceClient;
+    @MockBean
+    private OrderNotificationOutbox orderNotificationOutbox;
+    @MockBean
+    private DashboardRollupService dashboardRollupService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Order order = Order.builder()
+                    .userId(1L)
+                    .customerName("Khách Hàng " + i)
+                    .shippingAddress("123 Đường Test")
+                    .phoneNumber("0909123456")
+                    .status(OrderStatus.PENDING)
+                    .paymentMethod("COD")
+                    .totalAmount(new BigDecimal("100.00"))
+                    .build();
+            order.addItem(OrderItem.builder().productId(101L).productName("Sản phẩm 1").quantity(1).price(new BigDecimal("50.00")).build());
+            order.addItem(OrderItem.builder().productId(102L).productName("Sản phẩm 2").quantity(1).price(new BigDecimal("50.00")).build());
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private long statementsForPage(int pageSize) {
+        statistics.clear();
+        Page<OrderResponse> page = orderService.getAllOrders(PageRequest.of(0, pageSize, Sort.by("createdAt").descending()));
+        assertThat(page.getContent()).hasSize(pageSize);
+        assertThat(page.getContent()).allSatisfy(order -> assertThat(order.items()).hasSize(2));
+        long count = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        return count;
+    }
+
+    @Test
+    @DisplayName("getAllOrders: Số câu SQL không đổi khi tăng kích thước trang")
+    void testGetAllOrders_StatementCountIndependentOfPageSize() {
+        long smallPage = statementsForPage(5);
+        long largePage = statementsForPage(20);
+
+        // id theo trang + count + Order/items của cả trang
+        assertThat(smallPage).isLessThanOrEqualTo(3);
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    @Test
+    @DisplayName("getAllOrders: Giữ đúng thứ tự sắp xếp của trang")
+    void testGetAllOrders_PreservesPageOrder() {
+        Page<OrderResponse> page = orderService.getAllOrders(PageRequest.of(0, 10, Sort.by("id").descending()));
+
+        assertThat(page.getTotalElements()).isEqualTo(ORDER_COUNT);
+        assertThat(page.getContent()).extracting(OrderResponse::id).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+    }
+
+    @Test
+    @DisplayName("getAllOrdersByCursor: Duyệt hết các trang, không trùng, không sót, không có COUNT")
+    void testGetAllOrdersByCursor_WalksAllPagesWithoutCount() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            OrderCursorPage page = orderService.getAllOrdersByCursor(cursor, 7);
+            // id theo trang + Order/items của cả trang
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            entityManager.clear();
+
+            page.content().forEach(order -> seen.add(order.id()));
+            assertThat(page.hasNext()).isEqualTo(page.nextCursor() != null);
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(5);
+        assertThat(seen).hasSize(ORDER_COUNT).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("getAllOrdersByCursor: Cursor sai định dạng bị từ chối")
+    void testGetAllOrdersByCursor_InvalidCursor_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.getAllOrdersByCursor("not-a-cursor", 10));
+    }
+
+    @Test
+    @DisplayName("bulkUpdateOrderStatus: Các UPDATE được gửi thành một JDBC batch")
+    void testBulkUpdateOrderStatus_UpdatesAreBatched() {
+        List<BulkOrderStatusUpdateRequest.Item> updates = orderService.getAllOrders(PageRequest.of(0, 20)).getContent().stream()
+                .map(order -> new BulkOrderStatusUpdateRequest.Item(order.id(), "CONFIRMED"))
+                .toList();
+        entityManager.clear();
+
+        statistics.clear();
+        List<BulkOrderStatusUpdateResult> results = orderService.bulkUpdateOrderStatus(new BulkOrderStatusUpdateRequest(updates));
+
+        assertThat(results).hasSize(20).allMatch(BulkOrderStatusUpdateResult::success);
+        // 1 query nạp đơn + 1 câu UPDATE dạng batch cho cả 20 đơn
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
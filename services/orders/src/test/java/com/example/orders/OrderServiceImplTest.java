@@ -1,17 +1,24 @@
 package com.example.orders;
 
+import com.example.orders.dto.BulkOrderStatusUpdateRequest;
+import com.example.orders.dto.BulkOrderStatusUpdateResult;
 import com.example.orders.dto.ProductDto;
 import com.example.orders.dto.UserDto;
 import com.example.orders.dto.OrderCreateRequest;
 import com.example.orders.dto.OrderItemRequest;
 import com.example.orders.dto.OrderResponse;
+import com.example.orders.dto.OrderStatusUpdate;
 
 import com.example.orders.entity.Order;
 import com.example.orders.entity.OrderStatus;
+import com.example.orders.exception.InsufficientStockException;
 import com.example.orders.exception.OrderNotFoundException;
 import com.example.orders.repository.OrderRepository;
+import com.example.orders.security.AuthenticatedUser;
 import com.example.orders.service.ProductServiceClient;
 import com.example.orders.service.UserServiceClient;
+import com.example.orders.service.DashboardRollupService;
+import com.example.orders.service.OrderNotificationOutbox;
 import com.example.orders.service.OrderServiceImpl;
 
 import org.junit.jupiter.api.AfterEach;
@@ -31,11 +38,14 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -53,6 +63,10 @@ class OrderServiceImplTest {
     @Mock
     private ProductServiceClient productServiceClient;
     @Mock
+    private OrderNotificationOutbox orderNotificationOutbox;
+    @Mock
+    private DashboardRollupService dashboardRollupService;
+    @Mock
     private Authentication authentication;
     @Mock
     private SecurityContext securityContext;
@@ -101,11 +115,11 @@ class OrderServiceImplTest {
     @Test
     @DisplayName("createOrder: Tạo đơn hàng thành công (Happy Path)")
     void testCreateOrder_Success() {
-        when(userServiceClient.getCurrentUser(MOCK_TOKEN)).thenReturn(mockUserDto);
+        when(userServiceClient.getCurrentUserAsync(MOCK_TOKEN)).thenReturn(Mono.just(mockUserDto));
         Set<Long> productIds = Set.of(101L, 102L);
         
-        when(productServiceClient.getProductsByIds(productIds, MOCK_TOKEN))
-                .thenReturn(List.of(mockProduct1, mockProduct2));
+        when(productServiceClient.getProductsByIdsAsync(productIds, MOCK_TOKEN))
+                .thenReturn(Mono.just(List.of(mockProduct1, mockProduct2)));
                 
         ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
         when(orderRepository.save(orderCaptor.capture())).thenAnswer(invocation -> {
@@ -126,9 +140,14 @@ class OrderServiceImplTest {
         assertThat(response.totalAmount()).isEqualByComparingTo(new BigDecimal("200.00")); // (50*2) + (100*1)
         assertThat(response.items()).hasSize(2);
         
-        verify(userServiceClient, times(1)).getCurrentUser(MOCK_TOKEN);
-        verify(productServiceClient, times(1)).getProductsByIds(productIds, MOCK_TOKEN);
+        verify(userServiceClient, times(1)).getCurrentUserAsync(MOCK_TOKEN);
+        verify(productServiceClient, times(1)).getProductsByIdsAsync(productIds, MOCK_TOKEN);
         verify(orderRepository, times(1)).save(any(Order.class));
+        // Thông báo email được ghi vào outbox, không gọi HTTP trên đường checkout
+        verify(orderNotificationOutbox, times(1)).enqueue(any(Order.class));
+        verify(dashboardRollupService, times(1)).recordOrderCreated(any(Order.class));
+        // Giữ hàng theo orderId vừa lưu, gộp số lượng theo sản phẩm
+        verify(productServiceClient, times(1)).reserveStock(1L, Map.of(101L, 2, 102L, 1));
 
         Order savedOrder = orderCaptor.getValue();
         assertThat(savedOrder.getUserId()).isEqualTo(MOCK_USER_ID);
@@ -152,11 +171,11 @@ class OrderServiceImplTest {
     @Test
     @DisplayName("createOrder: Ném lỗi IllegalArgumentException khi sản phẩm không đủ")
     void testCreateOrder_ProductMismatch_ShouldThrowException() {
-        when(userServiceClient.getCurrentUser(MOCK_TOKEN)).thenReturn(mockUserDto);
+        when(userServiceClient.getCurrentUserAsync(MOCK_TOKEN)).thenReturn(Mono.just(mockUserDto));
         Set<Long> productIds = Set.of(101L, 102L);
         
-        when(productServiceClient.getProductsByIds(productIds, MOCK_TOKEN))
-                .thenReturn(List.of(mockProduct1)); // Chỉ trả về 1 sản phẩm thay vì 2
+        when(productServiceClient.getProductsByIdsAsync(productIds, MOCK_TOKEN))
+                .thenReturn(Mono.just(List.of(mockProduct1))); // Chỉ trả về 1 sản phẩm thay vì 2
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             orderService.createOrder(mockOrderRequest, MOCK_TOKEN);
@@ -176,12 +195,12 @@ class OrderServiceImplTest {
         );
         
         // Mock user để pass qua bước xác thực đầu tiên
-        when(userServiceClient.getCurrentUser(MOCK_TOKEN)).thenReturn(mockUserDto);
+        when(userServiceClient.getCurrentUserAsync(MOCK_TOKEN)).thenReturn(Mono.just(mockUserDto));
         
         // Mock product service để trả về sản phẩm (tránh lỗi product mismatch trước khi check quantity)
         Set<Long> productIds = Set.of(101L);
-        when(productServiceClient.getProductsByIds(productIds, MOCK_TOKEN))
-                .thenReturn(List.of(mockProduct1));
+        when(productServiceClient.getProductsByIdsAsync(productIds, MOCK_TOKEN))
+                .thenReturn(Mono.just(List.of(mockProduct1)));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             orderService.createOrder(badRequest, MOCK_TOKEN);
@@ -191,15 +210,52 @@ class OrderServiceImplTest {
         verify(orderRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("createOrder: Lỗi từ Product Service huỷ lời gọi User Service đang chạy song song")
+    void testCreateOrder_ProductFailure_ShouldCancelUserLookup() {
+        AtomicBoolean userLookupCancelled = new AtomicBoolean(false);
+        when(userServiceClient.getCurrentUserAsync(MOCK_TOKEN))
+                .thenReturn(Mono.<UserDto>never().doOnCancel(() -> userLookupCancelled.set(true)));
+        when(productServiceClient.getProductsByIdsAsync(Set.of(101L, 102L), MOCK_TOKEN))
+                .thenReturn(Mono.error(new IllegalArgumentException("Không tìm thấy sản phẩm")));
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(mockOrderRequest, MOCK_TOKEN));
+
+        assertThat(userLookupCancelled).isTrue();
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("createOrder: Products Service báo thiếu hàng (409) thì ném InsufficientStockException, không ghi rollup/outbox")
+    void testCreateOrder_InsufficientStock_ShouldThrowException() {
+        when(userServiceClient.getCurrentUserAsync(MOCK_TOKEN)).thenReturn(Mono.just(mockUserDto));
+        when(productServiceClient.getProductsByIdsAsync(Set.of(101L, 102L), MOCK_TOKEN))
+                .thenReturn(Mono.just(List.of(mockProduct1, mockProduct2)));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order orderToSave = invocation.getArgument(0);
+            orderToSave.setId(2L);
+            return orderToSave;
+        });
+        doThrow(new InsufficientStockException("Sản phẩm #101 không đủ hàng"))
+                .when(productServiceClient).reserveStock(eq(2L), any());
+
+        assertThrows(InsufficientStockException.class,
+                () -> orderService.createOrder(mockOrderRequest, MOCK_TOKEN));
+
+        verify(dashboardRollupService, never()).recordOrderCreated(any());
+        verify(orderNotificationOutbox, never()).enqueue(any());
+    }
+
     @Test
     @DisplayName("getOrders: Lấy danh sách đơn hàng (Pageable) thành công")
     void testGetOrders_Success() {
         Pageable pageable = PageRequest.of(0, 10);
         Order mockOrder = Order.builder().id(1L).userId(MOCK_USER_ID).status(OrderStatus.DELIVERED).totalAmount(BigDecimal.TEN).build();
-        Page<Order> mockPage = new PageImpl<>(List.of(mockOrder), pageable, 1);
+        Page<Long> idPage = new PageImpl<>(List.of(1L), pageable, 1);
 
         when(userServiceClient.getCurrentUser(MOCK_TOKEN)).thenReturn(mockUserDto);
-        when(orderRepository.findByUserId(MOCK_USER_ID, pageable)).thenReturn(mockPage);
+        when(orderRepository.findIdsByUserId(MOCK_USER_ID, pageable)).thenReturn(idPage);
+        when(orderRepository.findAllWithItemsByIdIn(List.of(1L))).thenReturn(List.of(mockOrder));
 
         Page<OrderResponse> responsePage = orderService.getOrders(MOCK_EMAIL, MOCK_TOKEN, pageable);
 
@@ -208,9 +264,26 @@ class OrderServiceImplTest {
         assertThat(responsePage.getContent().get(0).id()).isEqualTo(1L);
         
         verify(userServiceClient, times(1)).getCurrentUser(MOCK_TOKEN);
-        verify(orderRepository, times(1)).findByUserId(MOCK_USER_ID, pageable);
+        verify(orderRepository, times(1)).findIdsByUserId(MOCK_USER_ID, pageable);
+        verify(orderRepository, times(1)).findAllWithItemsByIdIn(List.of(1L));
     }
     
+    @Test
+    @DisplayName("getOrders: Dùng userId trong JWT, không gọi sang User Service")
+    void testGetOrders_WithUserIdClaim_ShouldNotCallUserService() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Order mockOrder = Order.builder().id(1L).userId(MOCK_USER_ID).status(OrderStatus.DELIVERED).totalAmount(BigDecimal.TEN).build();
+
+        when(authentication.getPrincipal()).thenReturn(new AuthenticatedUser(MOCK_USER_ID, MOCK_EMAIL));
+        when(orderRepository.findIdsByUserId(MOCK_USER_ID, pageable)).thenReturn(new PageImpl<>(List.of(1L), pageable, 1));
+        when(orderRepository.findAllWithItemsByIdIn(List.of(1L))).thenReturn(List.of(mockOrder));
+
+        Page<OrderResponse> responsePage = orderService.getOrders(MOCK_EMAIL, MOCK_TOKEN, pageable);
+
+        assertThat(responsePage.getContent()).hasSize(1);
+        verifyNoInteractions(userServiceClient);
+    }
+
     @Test
     @DisplayName("getOrderById: Lấy chi tiết đơn hàng thành công")
     void testGetOrderById_Success() {
@@ -243,4 +316,108 @@ class OrderServiceImplTest {
         
         verify(orderRepository, times(1)).findByIdAndUserId(orderId, MOCK_USER_ID);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("updateOrderStatus: Huỷ đơn thì trả lại hàng đã giữ")
+    void testUpdateOrderStatus_Cancelled_ReleasesStock() {
+        Order confirmed = Order.builder().id(6L).userId(MOCK_USER_ID).status(OrderStatus.CONFIRMED).totalAmount(BigDecimal.TEN).build();
+        when(orderRepository.findById(6L)).thenReturn(Optional.of(confirmed));
+        when(orderRepository.markCancelled(eq(6L), any())).thenReturn(1);
+
+        orderService.updateOrderStatus(6L, statusUpdate("CANCELLED"));
+
+        verify(productServiceClient, times(1)).releaseStock(6L);
+        verify(productServiceClient, never()).commitStock(any());
+    }
+
+    @Test
+    @DisplayName("updateOrderStatus: Đơn đã bị request khác huỷ thì không trả lại hàng lần nữa")
+    void testUpdateOrderStatus_ConcurrentCancel_NoRelease() {
+        Order confirmed = Order.builder().id(6L).userId(MOCK_USER_ID).status(OrderStatus.CONFIRMED).totalAmount(BigDecimal.TEN).build();
+        when(orderRepository.findById(6L)).thenReturn(Optional.of(confirmed));
+        when(orderRepository.markCancelled(eq(6L), any())).thenReturn(0);
+
+        orderService.updateOrderStatus(6L, statusUpdate("CANCELLED"));
+
+        verify(productServiceClient, never()).releaseStock(any());
+    }
+
+    @Test
+    @DisplayName("updateOrderStatus: Giao hàng xong (DELIVERED) thì chốt hàng đã giữ; lỗi chốt hàng không làm hỏng cập nhật")
+    void testUpdateOrderStatus_Delivered_CommitsStock() {
+        Order shipping = Order.builder().id(7L).userId(MOCK_USER_ID).status(OrderStatus.SHIPPING).totalAmount(BigDecimal.TEN).build();
+        when(orderRepository.findById(7L)).thenReturn(Optional.of(shipping));
+        when(orderRepository.save(shipping)).thenReturn(shipping);
+        doThrow(new RuntimeException("Products Service lỗi")).when(productServiceClient).commitStock(7L);
+
+        OrderResponse response = orderService.updateOrderStatus(7L, statusUpdate("DELIVERED"));
+
+        assertThat(response.status()).isEqualTo("DELIVERED");
+        verify(productServiceClient, times(1)).commitStock(7L);
+        verify(productServiceClient, never()).releaseStock(any());
+    }
+
+    @Test
+    @DisplayName("bulkUpdateOrderStatus: Nạp 1 lần, kết quả riêng từng đơn, ghi outbox 1 lần cho cả lô")
+    @SuppressWarnings("unchecked")
+    void testBulkUpdateOrderStatus_MixedResults() {
+        Order confirmed1 = Order.builder().id(1L).userId(MOCK_USER_ID).status(OrderStatus.CONFIRMED).totalAmount(BigDecimal.TEN).build();
+        Order confirmed2 = Order.builder().id(2L).userId(MOCK_USER_ID).status(OrderStatus.CONFIRMED).totalAmount(BigDecimal.TEN).build();
+        Order delivered = Order.builder().id(3L).userId(MOCK_USER_ID).status(OrderStatus.DELIVERED).totalAmount(BigDecimal.TEN).build();
+        Order pending = Order.builder().id(4L).userId(MOCK_USER_ID).status(OrderStatus.PENDING).totalAmount(BigDecimal.ONE).build();
+        when(orderRepository.findAllWithItemsByIdIn(any())).thenReturn(List.of(confirmed1, confirmed2, delivered, pending));
+        when(orderRepository.markCancelled(eq(4L), any())).thenReturn(1);
+
+        BulkOrderStatusUpdateRequest request = new BulkOrderStatusUpdateRequest(List.of(
+                new BulkOrderStatusUpdateRequest.Item(1L, "SHIPPING"),
+                new BulkOrderStatusUpdateRequest.Item(2L, "shipping"),
+                new BulkOrderStatusUpdateRequest.Item(3L, "SHIPPING"),
+                new BulkOrderStatusUpdateRequest.Item(4L, "CANCELLED"),
+                new BulkOrderStatusUpdateRequest.Item(99L, "SHIPPING")));
+
+        List<BulkOrderStatusUpdateResult> results = orderService.bulkUpdateOrderStatus(request);
+
+        assertThat(results).extracting(BulkOrderStatusUpdateResult::success).containsExactly(true, true, false, true, false);
+        assertThat(results.get(2).status()).isEqualTo("DELIVERED");
+        assertThat(results.get(4).error()).contains("99");
+        assertThat(confirmed1.getStatus()).isEqualTo(OrderStatus.SHIPPING);
+        assertThat(delivered.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(pending.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+
+        verify(orderRepository, times(1)).findAllWithItemsByIdIn(any());
+        verify(orderRepository, times(1)).flush();
+        verify(orderRepository, never()).save(any());
+        verify(dashboardRollupService, times(1)).recordOrdersCancelled(List.of(pending));
+
+        ArgumentCaptor<List<Order>> outboxCaptor = ArgumentCaptor.forClass(List.class);
+        verify(orderNotificationOutbox, times(1)).enqueueAll(outboxCaptor.capture());
+        assertThat(outboxCaptor.getValue()).containsExactly(confirmed1, confirmed2, pending);
+        verify(orderNotificationOutbox, never()).enqueue(any());
+        // Chỉ đơn huỷ được mới trả lại hàng; không đơn nào chuyển sang DELIVERED nên không chốt hàng
+        verify(productServiceClient, times(1)).releaseStock(4L);
+        verify(productServiceClient, never()).commitStock(any());
+    }
+
+    @Test
+    @DisplayName("bulkUpdateOrderStatus: Đơn đã bị request khác huỷ thì không trừ rollup và không gửi thông báo lần nữa")
+    void testBulkUpdateOrderStatus_ConcurrentCancel_NotCountedTwice() {
+        Order pending = Order.builder().id(5L).userId(MOCK_USER_ID).status(OrderStatus.PENDING).totalAmount(BigDecimal.ONE).build();
+        when(orderRepository.findAllWithItemsByIdIn(any())).thenReturn(List.of(pending));
+        when(orderRepository.markCancelled(eq(5L), any())).thenReturn(0);
+
+        List<BulkOrderStatusUpdateResult> results = orderService.bulkUpdateOrderStatus(new BulkOrderStatusUpdateRequest(
+                List.of(new BulkOrderStatusUpdateRequest.Item(5L, "CANCELLED"))));
+
+        assertThat(results).extracting(BulkOrderStatusUpdateResult::success).containsExactly(true);
+        assertThat(pending.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        verify(dashboardRollupService, never()).recordOrdersCancelled(any());
+        verify(orderNotificationOutbox, never()).enqueueAll(any());
+        verify(productServiceClient, never()).releaseStock(any());
+    }
+
+    private static OrderStatusUpdate statusUpdate(String status) {
+        OrderStatusUpdate update = new OrderStatusUpdate();
+        update.setStatus(status);
+        return update;
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.orders;
 
 import com.example.orders.dto.ProductDto;
+import com.example.orders.exception.DownstreamUnavailableException;
+import com.example.orders.exception.InsufficientStockException;
+import com.example.orders.resilience.CircuitBreaker;
 import com.example.orders.service.ProductServiceClient;
 import com.example.orders.service.ProductServiceClientImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
@@ -15,8 +19,13 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -28,18 +37,40 @@ class ProductServiceClientImplTest {
     private MockWebServer mockWebServer;
     private ProductServiceClient productServiceClient;
     private ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private String baseUrl;
 
     @BeforeEach
     void setUp() throws IOException {
         mockWebServer = new MockWebServer();
         mockWebServer.start();
 
-        String baseUrl = mockWebServer.url("/").toString();
+        baseUrl = mockWebServer.url("/").toString();
+        productServiceClient = newClient(client -> {});
+    }
+
+    /**
+     * Tạo client mới (registry metric riêng) sau khi áp dụng cấu hình của từng test.
+     */
+    private ProductServiceClientImpl newClient(Consumer<ProductServiceClientImpl> config) {
+        meterRegistry = new SimpleMeterRegistry();
+        ProductServiceClientImpl client = new ProductServiceClientImpl(WebClient.create(baseUrl), meterRegistry);
+        ReflectionTestUtils.setField(client, "productsServiceUrl", baseUrl.substring(0, baseUrl.length() - 1)); // Bỏ dấu / ở cuối
+        config.accept(client);
+        client.init();
+        return client;
+    }
 
-        WebClient webClient = WebClient.create(baseUrl);
+    private String productsBody() throws Exception {
+        return objectMapper.writeValueAsString(
+                List.of(new ProductDto(101L, "Sản phẩm 1", new BigDecimal("50.00"), "img1.jpg", 100)));
+    }
 
-        productServiceClient = new ProductServiceClientImpl(webClient);
-        ReflectionTestUtils.setField(productServiceClient, "productsServiceUrl", baseUrl.substring(0, baseUrl.length() - 1)); // Bỏ dấu / ở cuối
+    private MockResponse okResponse() throws Exception {
+        return new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(productsBody());
     }
 
     @AfterEach
@@ -106,4 +137,166 @@ class ProductServiceClientImplTest {
 
         assertThat(ex.getMessage()).contains("Lỗi phía Product Service");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Circuit breaker: Mở mạch sau chuỗi lỗi 5xx và từ chối ngay mà không gọi Product Service")
+    void testCircuitBreaker_OpensAndFailsFast() {
+        ProductServiceClientImpl client = newClient(c -> {
+            ReflectionTestUtils.setField(c, "windowSize", 3);
+            ReflectionTestUtils.setField(c, "minimumCalls", 3);
+            ReflectionTestUtils.setField(c, "openDurationMs", 60000L);
+        });
+        for (int i = 0; i < 3; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody("Lỗi server nội bộ"));
+            assertThrows(RuntimeException.class, () -> client.getProductsByIds(Set.of(101L), "Bearer token"));
+        }
+
+        assertThrows(DownstreamUnavailableException.class, () -> client.getProductsByIds(Set.of(101L), "Bearer token"));
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+        assertThat(meterRegistry.get("orders.downstream.circuit.state").gauge().value()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("orders.downstream.rejected").tag("reason", "circuit_open").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Circuit breaker: Product Service chậm hơn deadline checkout vẫn được tính là lỗi và mở mạch")
+    void testCircuitBreaker_SlowResponsesOpenBeforeCallerDeadline() throws Exception {
+        ProductServiceClientImpl client = newClient(c -> {
+            ReflectionTestUtils.setField(c, "windowSize", 3);
+            ReflectionTestUtils.setField(c, "minimumCalls", 3);
+            ReflectionTestUtils.setField(c, "openDurationMs", 60000L);
+            ReflectionTestUtils.setField(c, "callTimeoutMs", 200L);
+        });
+        for (int i = 0; i < 3; i++) {
+            mockWebServer.enqueue(okResponse().setHeadersDelay(1, TimeUnit.SECONDS));
+            // Deadline của checkout (Mono.zip(...).timeout) dài hơn timeout của từng lời gọi
+            assertThrows(RuntimeException.class, () -> client.getProductsByIdsAsync(Set.of(101L), "Bearer token")
+                    .timeout(Duration.ofMillis(500))
+                    .block());
+        }
+
+        assertThat(meterRegistry.get("orders.downstream.circuit.state").gauge().value())
+                .isEqualTo(CircuitBreaker.State.OPEN.ordinal());
+        assertThrows(DownstreamUnavailableException.class, () -> client.getProductsByIds(Set.of(101L), "Bearer token"));
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Circuit breaker: Lỗi 4xx không làm mở mạch")
+    void testCircuitBreaker_ClientErrorsDoNotOpen() throws Exception {
+        ProductServiceClientImpl client = newClient(c -> {
+            ReflectionTestUtils.setField(c, "windowSize", 3);
+            ReflectionTestUtils.setField(c, "minimumCalls", 3);
+        });
+        for (int i = 0; i < 3; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(404).setBody("Không tìm thấy sản phẩm"));
+            assertThrows(IllegalArgumentException.class, () -> client.getProductsByIds(Set.of(101L), "Bearer token"));
+        }
+        mockWebServer.enqueue(okResponse());
+
+        assertThat(client.getProductsByIds(Set.of(101L), "Bearer token")).hasSize(1);
+        assertThat(meterRegistry.get("orders.downstream.circuit.state").gauge().value()).isEqualTo(0.0);
+    }
+
+    @Test
+    @DisplayName("Bulkhead: Từ chối ngay khi số lời gọi đồng thời đã đạt giới hạn")
+    void testBulkhead_RejectsWhenFull() throws Exception {
+        ProductServiceClientImpl client = newClient(c -> ReflectionTestUtils.setField(c, "maxConcurrentCalls", 1));
+        mockWebServer.enqueue(okResponse().setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<List<ProductDto>> inFlight = client.getProductsByIdsAsync(Set.of(101L), "Bearer token").toFuture();
+        assertThat(mockWebServer.takeRequest(1, TimeUnit.SECONDS)).isNotNull();
+
+        assertThrows(DownstreamUnavailableException.class, () -> client.getProductsByIds(Set.of(101L), "Bearer token"));
+        assertThat(inFlight.get(2, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Hedging: Request gốc chậm thì request hedge trả về trước")
+    void testHedging_SlowPrimary_HedgeWins() throws Exception {
+        ProductServiceClientImpl client = newClient(c -> {
+            ReflectionTestUtils.setField(c, "hedgeEnabled", true);
+            ReflectionTestUtils.setField(c, "hedgeMinDelayMs", 50L);
+        });
+        mockWebServer.enqueue(okResponse().setHeadersDelay(2, TimeUnit.SECONDS)); // Request gốc
+        mockWebServer.enqueue(okResponse());                                      // Request hedge
+
+        long start = System.nanoTime();
+        List<ProductDto> result = client.getProductsByIds(Set.of(101L), "Bearer token");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(result).hasSize(1);
+        assertThat(elapsedMs).isLessThan(1000);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("orders.products_client.hedge.fired").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("orders.products_client.hedge.won").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Hedging: Request gốc nhanh thì không gửi request hedge")
+    void testHedging_FastPrimary_NoHedge() throws Exception {
+        ProductServiceClientImpl client = newClient(c -> {
+            ReflectionTestUtils.setField(c, "hedgeEnabled", true);
+            ReflectionTestUtils.setField(c, "hedgeMinDelayMs", 500L);
+        });
+        mockWebServer.enqueue(okResponse());
+
+        assertThat(client.getProductsByIds(Set.of(101L), "Bearer token")).hasSize(1);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders.products_client.hedge.fired").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("reserveStock: Gửi giữ hàng qua route nội bộ, không kèm token người dùng")
+    void testReserveStock_PostsToInternalRoute() throws Exception {
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"orderId\":7,\"success\":true,\"status\":\"RESERVED\",\"lines\":[]}"));
+
+        productServiceClient.reserveStock(7L, Map.of(101L, 2));
+
+        var recordedRequest = mockWebServer.takeRequest();
+        assertThat(recordedRequest.getMethod()).isEqualTo("POST");
+        assertThat(recordedRequest.getPath()).isEqualTo("/api/internal/inventory/reservations");
+        assertThat(recordedRequest.getHeader("Authorization")).isNull();
+        assertThat(recordedRequest.getBody().readUtf8())
+                .isEqualTo("{\"orderId\":7,\"items\":[{\"productId\":101,\"quantity\":2}]}");
+    }
+
+    @Test
+    @DisplayName("reserveStock: 409 ném InsufficientStockException kèm sản phẩm thiếu hàng, breaker không tính là lỗi")
+    void testReserveStock_Conflict_ThrowsInsufficientStock() {
+        ProductServiceClientImpl client = newClient(c -> {
+            ReflectionTestUtils.setField(c, "windowSize", 3);
+            ReflectionTestUtils.setField(c, "minimumCalls", 3);
+        });
+        for (int i = 0; i < 3; i++) {
+            mockWebServer.enqueue(new MockResponse()
+                    .setResponseCode(409)
+                    .setHeader("Content-Type", "application/json")
+                    .setBody("{\"orderId\":7,\"success\":false,\"lines\":[{\"productId\":101,\"quantity\":5,"
+                            + "\"success\":false,\"error\":\"Không đủ hàng (còn 1)\"}]}"));
+            InsufficientStockException e = assertThrows(InsufficientStockException.class,
+                    () -> client.reserveStock(7L, Map.of(101L, 5)));
+            assertThat(e.getMessage()).contains("#101").contains("còn 1");
+        }
+
+        assertThat(meterRegistry.get("orders.downstream.circuit.state").gauge().value()).isEqualTo(0.0);
+    }
+
+    @Test
+    @DisplayName("releaseStock/commitStock: Đơn không có dòng giữ hàng (404) được bỏ qua")
+    void testSettleStock_NotFound_Ignored() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setHeader("Content-Type", "application/json").setBody("{}"));
+
+        productServiceClient.releaseStock(7L);
+        productServiceClient.commitStock(8L);
+
+        assertThat(mockWebServer.takeRequest().getPath()).isEqualTo("/api/internal/inventory/reservations/7/release");
+        assertThat(mockWebServer.takeRequest().getPath()).isEqualTo("/api/internal/inventory/reservations/8/commit");
+    }
+}
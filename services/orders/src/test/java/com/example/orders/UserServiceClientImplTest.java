@@ -5,6 +5,7 @@ import com.example.orders.service.UserServiceClient;
 import com.example.orders.service.UserServiceClientImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
@@ -25,6 +26,7 @@ class UserServiceClientImplTest {
 
     private MockWebServer mockWebServer;
     private UserServiceClient userServiceClient;
+    private SimpleMeterRegistry meterRegistry;
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
@@ -37,7 +39,8 @@ class UserServiceClientImplTest {
 
         objectMapper.registerModule(new JavaTimeModule());
 
-        userServiceClient = new UserServiceClientImpl(WebClient.create(baseUrl));
+        meterRegistry = new SimpleMeterRegistry();
+        userServiceClient = new UserServiceClientImpl(WebClient.create(baseUrl), meterRegistry);
         ReflectionTestUtils.setField(userServiceClient, "usersServiceUrl", baseUrl.substring(0, baseUrl.length() - 1)); // Bỏ dấu /
     }
 
@@ -67,6 +70,9 @@ class UserServiceClientImplTest {
         assertThat(recordedRequest.getMethod()).isEqualTo("GET");
         assertThat(recordedRequest.getPath()).isEqualTo("/api/users/me"); 
         assertThat(recordedRequest.getHeader("Authorization")).isEqualTo("Bearer valid.token");
+
+        // Mỗi lần gọi remote đều phải được đếm để theo dõi lượng token cũ còn lại
+        assertThat(meterRegistry.counter("orders.users_client.current_user.calls").count()).isEqualTo(1.0);
     }
 
     @Test
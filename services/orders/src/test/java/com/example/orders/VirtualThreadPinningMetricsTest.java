@@ -0,0 +1,56 @@
+package com.example.orders;
+
+import com.example.orders.config.VirtualThreadPinningMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("VirtualThreadPinningMetrics Tests")
+class VirtualThreadPinningMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Object lock = new Object();
+    private VirtualThreadPinningMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new VirtualThreadPinningMetrics(meterRegistry);
+        ReflectionTestUtils.setField(metrics, "pinnedThresholdMs", 10L);
+        metrics.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.stop();
+    }
+
+    @Test
+    @DisplayName("Virtual thread chờ trong khối synchronized được ghi vào jvm.threads.virtual.pinned")
+    void testPinnedVirtualThread_IsRecorded() throws Exception {
+        Thread pinned = Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        pinned.join();
+
+        Timer timer = meterRegistry.get("jvm.threads.virtual.pinned").timer();
+        // Sự kiện JFR được đẩy ra stream theo chu kỳ flush (~1 giây)
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (timer.count() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.orders;
+
+import com.example.orders.config.WebClientConfig;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("WebClientConfig Tests")
+class WebClientConfigTest {
+
+    private final WebClientConfig config = new WebClientConfig();
+    private MockWebServer mockWebServer;
+    private ConnectionProvider usersProvider;
+    private ConnectionProvider productsProvider;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(config, "timeoutMs", 2000);
+        ReflectionTestUtils.setField(config, "usersMaxConnections", 5);
+        ReflectionTestUtils.setField(config, "usersPendingAcquireMaxCount", 50);
+        ReflectionTestUtils.setField(config, "productsMaxConnections", 10);
+        ReflectionTestUtils.setField(config, "productsPendingAcquireMaxCount", 100);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(config, "maxIdleTimeMs", 15000L);
+        ReflectionTestUtils.setField(config, "maxLifeTimeMs", 300000L);
+        ReflectionTestUtils.setField(config, "evictIntervalMs", 10000L);
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (usersProvider != null) usersProvider.dispose();
+        if (productsProvider != null) productsProvider.dispose();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Mỗi service phía sau có pool kết nối riêng, đặt tên và giới hạn theo cấu hình")
+    void testConnectionProviders_PerDownstream() {
+        usersProvider = config.usersConnectionProvider();
+        productsProvider = config.productsConnectionProvider();
+
+        assertThat(usersProvider).isNotSameAs(productsProvider);
+        assertThat(usersProvider.name()).isEqualTo("users-service");
+        assertThat(usersProvider.maxConnections()).isEqualTo(5);
+        assertThat(productsProvider.name()).isEqualTo("products-service");
+        assertThat(productsProvider.maxConnections()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Bật h2c: server chỉ hỗ trợ HTTP/1.1 thì vẫn gọi được (fallback)")
+    void testHttp2Enabled_FallsBackToHttp11() {
+        ReflectionTestUtils.setField(config, "http2Enabled", true);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"ok\":true}"));
+
+        productsProvider = config.productsConnectionProvider();
+        WebClient webClient = ReflectionTestUtils.invokeMethod(config, "buildWebClient", productsProvider);
+
+        String body = webClient.get()
+                .uri(mockWebServer.url("/api/products/batch?ids=1").toString())
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(5));
+
+        assertThat(body).contains("ok");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Kết nối idle lâu hơn timeout-ms (nhưng chưa tới max-idle-time) vẫn được dùng lại")
+    void testIdleLongerThanTimeout_ConnectionReused() throws Exception {
+        ReflectionTestUtils.setField(config, "timeoutMs", 300);
+        for (int i = 0; i < 2; i++) {
+            mockWebServer.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setHeader("Content-Type", "application/json")
+                    .setBody("{\"ok\":true}"));
+        }
+
+        productsProvider = config.productsConnectionProvider();
+        WebClient webClient = ReflectionTestUtils.invokeMethod(config, "buildWebClient", productsProvider);
+        String url = mockWebServer.url("/api/products/batch?ids=1").toString();
+
+        webClient.get().uri(url).retrieve().bodyToMono(String.class).block(Duration.ofSeconds(5));
+        Thread.sleep(900);
+        String body = webClient.get().uri(url).retrieve().bodyToMono(String.class).block(Duration.ofSeconds(5));
+
+        assertThat(body).contains("ok");
+        RecordedRequest first = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest second = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        assertThat(first.getSequenceNumber()).isZero();
+        // Số thứ tự tăng trên cùng một kết nối: 1 nghĩa là kết nối cũ được dùng lại
+        assertThat(second.getSequenceNumber()).isEqualTo(1);
+    }
+}
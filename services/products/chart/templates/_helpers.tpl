@@ -101,3 +101,23 @@ app.kubernetes.io/component: products
 {{- default "default" .Values.serviceAccount.name -}}
 {{- end -}}
 {{- end -}}
+
+{{/* ============================================================
+  🔧 Hàm: products.singleInstance
+  Mục đích:
+    - Trả về "true" khi bật tính năng giữ trạng thái trong bộ nhớ của một instance
+      (HOT_STOCK_ENABLED=true hoặc REVIEW_WRITE_BEHIND_ENABLED=true trong container.env).
+    - Khi đó chỉ được chạy đúng 1 Pod, kể cả lúc deploy:
+        + hai Pod cùng bán trên bộ đếm riêng của mình sẽ bán vượt tồn kho;
+        + Pod mới tính lại thống kê đánh giá từ bảng reviews trong lúc Pod cũ còn giữ
+          phần chưa flush, rồi Pod cũ flush khi dừng sẽ cộng trùng.
+============================================================ */}}
+{{- define "products.singleInstance" -}}
+{{- $single := false -}}
+{{- range .Values.container.env -}}
+{{- if and (has .name (list "HOT_STOCK_ENABLED" "REVIEW_WRITE_BEHIND_ENABLED")) (eq (toString .value) "true") -}}
+{{- $single = true -}}
+{{- end -}}
+{{- end -}}
+{{- $single -}}
+{{- end -}}
@@ -18,6 +18,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns(allowedOrigins) 
                 .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("ETag") // Client tự gửi lại If-None-Match cho GET danh mục/sản phẩm
                 .allowCredentials(true) 
                 .maxAge(3600);
     }
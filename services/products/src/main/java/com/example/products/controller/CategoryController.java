@@ -2,15 +2,20 @@ package com.example.products.controller;
 
 import com.example.products.dto.CategoryCreateRequest;
 import com.example.products.dto.CategoryDto;
+import com.example.products.service.CategoryCatalog;
 import com.example.products.service.CategoryService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -22,8 +27,18 @@ public class CategoryController {
 
     @GetMapping
     @Operation(summary = "Lấy tất cả danh mục")
-    public ResponseEntity<List<CategoryDto>> getAllCategories() {
-        return ResponseEntity.ok(categoryService.getAllCategories());
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = CategoryDto.class))))
+    public ResponseEntity<byte[]> getAllCategories(WebRequest request) {
+        // JSON đã serialize sẵn trong bộ nhớ, ETag đi cùng bản chụp
+        CategoryCatalog.Snapshot catalog = categoryService.getCatalog();
+        if (request.checkNotModified(catalog.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalog.json());
     }
 
     @PostMapping
@@ -0,0 +1,45 @@
+package com.example.products.controller;
+
+import com.example.products.dto.StockReservationRequest;
+import com.example.products.dto.StockReservationResult;
+import com.example.products.service.InventoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Giữ/trả/chốt hàng. {@code /api/inventory/**} dành cho admin; Orders Service gọi qua route nội bộ
+ * {@code /api/internal/inventory/**} (như {@code /api/internal/**} của Users Service), không chặn bằng token
+ * vì huỷ/giao đơn do admin thực hiện, không có token của khách hàng để chuyển tiếp.
+ */
+@RestController
+@RequestMapping({"/api/inventory/reservations", "/api/internal/inventory/reservations"})
+@RequiredArgsConstructor
+@Tag(name = "Inventory", description = "Giữ hàng / trả hàng cho đơn hàng")
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    @PostMapping
+    @Operation(summary = "Giữ hàng cho đơn (tất cả hoặc không). Trả 409 kèm kết quả từng dòng nếu thiếu hàng")
+    public ResponseEntity<StockReservationResult> reserve(@Valid @RequestBody StockReservationRequest request) {
+        StockReservationResult result = inventoryService.reserve(request);
+        return ResponseEntity.status(result.success() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    @PostMapping("/{orderId}/release")
+    @Operation(summary = "Trả lại tồn kho đã giữ cho đơn bị huỷ")
+    public StockReservationResult release(@PathVariable Long orderId) {
+        return inventoryService.release(orderId);
+    }
+
+    @PostMapping("/{orderId}/commit")
+    @Operation(summary = "Chốt hàng đã giữ cho đơn hoàn tất")
+    public StockReservationResult commit(@PathVariable Long orderId) {
+        return inventoryService.commit(orderId);
+    }
+}
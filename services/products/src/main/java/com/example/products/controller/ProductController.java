@@ -12,13 +12,18 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.example.products.dto.ProductCreateRequest;
 import com.example.products.dto.ProductCriteria; 
+import com.example.products.dto.ProductSuggestion;
+import com.example.products.dto.ProductSummary;
 import com.example.products.dto.ProductUpdateRequest;
 import com.example.products.entity.Product;
+import com.example.products.service.ProductLeaderboards;
 import com.example.products.service.ProductService;
+import com.example.products.service.ProductSuggester;
 
 import java.math.BigDecimal;
 import java.net.URI;
@@ -31,14 +36,16 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService service;
+    private final ProductSuggester suggester;
 
-    public ProductController(ProductService service) {
+    public ProductController(ProductService service, ProductSuggester suggester) {
         this.service = service;
+        this.suggester = suggester;
     }
 
     @GetMapping
-    @Operation(summary = "Danh sách sản phẩm (Lọc nâng cao: Tên, Giá, Danh mục, Sắp xếp)")
-    public ResponseEntity<Page<Product>> list(
+    @Operation(summary = "Danh sách sản phẩm dạng rút gọn (Lọc nâng cao: Tên, Giá, Danh mục, Sắp xếp). Chi tiết đầy đủ ở /{id}")
+    public ResponseEntity<Page<ProductSummary>> list(
             @Parameter(description = "Từ khóa tìm theo tên")
             @RequestParam(required = false) String search,
 
@@ -55,23 +62,65 @@ public class ProductController {
             @RequestParam(required = false, defaultValue = "newest") String sort, 
 
             @Parameter(hidden = true)
-            @PageableDefault(size = 10) Pageable pageable
+            @PageableDefault(size = 10) Pageable pageable,
+
+            WebRequest request
     ) {
+        // ETag lấy trước khi đọc dữ liệu: nếu có thay đổi xen giữa, lần hỏi sau vẫn nhận được bản mới
+        String etag = service.catalogVersion();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         ProductCriteria criteria = new ProductCriteria(search, categoryId, minPrice, maxPrice, sort);
         
-        return ResponseEntity.ok(service.getAllProducts(criteria, pageable));
+        return ResponseEntity.ok().eTag(etag).body(service.getAllProducts(criteria, pageable));
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Chi tiết sản phẩm theo ID")
-    public ResponseEntity<Product> get(@PathVariable Long id) {
-        return ResponseEntity.ok(service.getById(id));
+    @Operation(summary = "Chi tiết sản phẩm theo ID (hỗ trợ If-None-Match)")
+    public ResponseEntity<Product> get(@PathVariable Long id, WebRequest request) {
+        String etag = service.version(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(service.getById(id));
     }
 
     @GetMapping("/top")
     @Operation(summary = "Top 10 sản phẩm cập nhật gần nhất")
-    public ResponseEntity<List<Product>> top10() {
-        return ResponseEntity.ok(service.getTop10());
+    public ResponseEntity<List<Product>> top10(WebRequest request) {
+        String etag = service.catalogVersion();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(service.getTop10());
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Gợi ý tên sản phẩm khi gõ tìm kiếm (không dấu, theo độ phổ biến)")
+    public ResponseEntity<List<ProductSuggestion>> suggest(
+            @Parameter(description = "Chuỗi đang gõ, khớp đầu một từ trong tên")
+            @RequestParam String q,
+
+            @Parameter(description = "Số gợi ý tối đa (1-" + ProductSuggester.MAX_LIMIT + ")")
+            @RequestParam(defaultValue = "5") int limit
+    ) {
+        return ResponseEntity.ok(suggester.suggest(q, limit));
+    }
+
+    @GetMapping("/leaderboard")
+    @Operation(summary = "Bảng xếp hạng sản phẩm: bán chạy, đánh giá cao, mới cập nhật (toàn bộ hoặc theo danh mục)")
+    public ResponseEntity<List<ProductSummary>> leaderboard(
+            @Parameter(description = "Kiểu xếp hạng: best_selling, top_rated, newest")
+            @RequestParam(defaultValue = "best_selling") String by,
+
+            @Parameter(description = "ID danh mục, bỏ trống để xếp hạng toàn bộ")
+            @RequestParam(required = false) Long categoryId,
+
+            @Parameter(description = "Số sản phẩm tối đa (1-" + ProductLeaderboards.MAX_LIMIT + ")")
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(service.getLeaderboard(by, categoryId, limit));
     }
 
     @GetMapping("/batch")
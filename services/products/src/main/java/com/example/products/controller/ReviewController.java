@@ -1,5 +1,6 @@
 package com.example.products.controller;
 
+import com.example.products.dto.RatingSummary;
 import com.example.products.dto.ReviewCreateRequest;
 import com.example.products.dto.ReviewResponse;
 import com.example.products.service.ReviewService;
@@ -12,7 +13,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/reviews")
@@ -33,9 +36,24 @@ public class ReviewController {
 
     @GetMapping("/product/{productId}")
     @Operation(summary = "Lấy danh sách đánh giá của sản phẩm")
-    public Page<ReviewResponse> getProductReviews(
+    public ResponseEntity<Page<ReviewResponse>> getProductReviews(
             @PathVariable Long productId,
-            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
-        return reviewService.getReviewsByProduct(productId, pageable);
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        String etag = reviewService.reviewsVersion(productId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(reviewService.getReviewsByProduct(productId, pageable));
+    }
+
+    @GetMapping("/product/{productId}/summary")
+    @Operation(summary = "Điểm trung bình và biểu đồ số đánh giá theo từng mức sao của sản phẩm")
+    public ResponseEntity<RatingSummary> getRatingSummary(@PathVariable Long productId, WebRequest request) {
+        String etag = reviewService.reviewsVersion(productId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(reviewService.getRatingSummary(productId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.example.products.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Các cột của một sản phẩm cần cho bảng xếp hạng trong bộ nhớ (bán chạy, đánh giá cao, mới nhất).
+ */
+public record ProductRankSource(
+    Long id,
+    String name,
+    BigDecimal price,
+    String image,
+    Integer stockQuantity,
+    Integer sold,
+    Long categoryId,
+    Integer reviewCount,
+    Long ratingSum,
+    OffsetDateTime updatedAt
+) {}
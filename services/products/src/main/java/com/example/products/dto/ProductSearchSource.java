@@ -0,0 +1,16 @@
+package com.example.products.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Các cột của một sản phẩm cần cho chỉ mục tìm kiếm trong bộ nhớ (tìm theo chữ, lọc, sắp xếp).
+ */
+public record ProductSearchSource(
+    Long id,
+    String name,
+    String description,
+    Long categoryId,
+    BigDecimal price,
+    OffsetDateTime updatedAt
+) {}
@@ -0,0 +1,15 @@
+package com.example.products.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Một gợi ý cho ô tìm kiếm (typeahead). {@code sold} và {@code averageRating} dùng để xếp hạng.
+ */
+public record ProductSuggestion(
+    Long id,
+    String name,
+    String image,
+    BigDecimal price,
+    Integer sold,
+    Double averageRating
+) {}
@@ -0,0 +1,33 @@
+package com.example.products.dto;
+
+import com.example.products.entity.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Một ô sản phẩm trên trang danh sách: không có mô tả, không nhúng Category.
+ * Trang chi tiết vẫn trả nguyên {@link Product}.
+ */
+public record ProductSummary(
+    Long id,
+    String name,
+    BigDecimal price,
+    String image,
+    Integer stockQuantity,
+    Double averageRating,
+    Integer sold,
+    Long categoryId
+) {
+    public static ProductSummary fromEntity(Product product) {
+        return new ProductSummary(
+            product.getId(),
+            product.getName(),
+            product.getPrice(),
+            product.getImage(),
+            product.getStockQuantity(),
+            product.getAverageRating(),
+            product.getSold(),
+            product.getCategory() != null ? product.getCategory().getId() : null
+        );
+    }
+}
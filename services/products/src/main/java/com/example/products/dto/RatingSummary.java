@@ -0,0 +1,27 @@
+package com.example.products.dto;
+
+import com.example.products.entity.Product;
+
+import java.util.List;
+
+/**
+ * Thống kê đánh giá của một sản phẩm cho biểu đồ sao, đọc từ các cột cộng dồn (không quét bảng reviews).
+ *
+ * @param histogram Số đánh giá theo mức sao, phần tử 0 là 1 sao, phần tử 4 là 5 sao
+ */
+public record RatingSummary(
+    Long productId,
+    Double averageRating,
+    Integer reviewCount,
+    List<Integer> histogram
+) {
+    public static RatingSummary fromEntity(Product product) {
+        return new RatingSummary(
+            product.getId(),
+            product.getAverageRating(),
+            product.getReviewCount(),
+            List.of(product.getRating1(), product.getRating2(), product.getRating3(),
+                    product.getRating4(), product.getRating5())
+        );
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.products.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Yêu cầu giữ hàng cho một đơn: tất cả các dòng cùng thành công, hoặc không dòng nào được giữ.
+ */
+public record StockReservationRequest(
+    @NotNull(message = "Order ID không được để trống")
+    Long orderId,
+
+    @NotEmpty(message = "Danh sách sản phẩm không được để trống")
+    @Size(max = 100, message = "Tối đa 100 sản phẩm mỗi lần giữ hàng")
+    List<@Valid Item> items
+) {
+    public record Item(
+        @NotNull(message = "Product ID không được để trống")
+        Long productId,
+
+        @NotNull(message = "Số lượng không được để trống")
+        @Min(value = 1, message = "Số lượng phải ít nhất là 1")
+        Integer quantity
+    ) {}
+}
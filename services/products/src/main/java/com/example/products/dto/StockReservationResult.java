@@ -0,0 +1,23 @@
+package com.example.products.dto;
+
+import com.example.products.entity.ReservationStatus;
+
+import java.util.List;
+
+/**
+ * Kết quả giữ/trả/chốt hàng của một đơn, kèm kết quả từng dòng.
+ *
+ * @param success Tất cả các dòng đều thành công
+ * @param status  Trạng thái hiện tại của các dòng đã giữ (null nếu giữ hàng thất bại)
+ */
+public record StockReservationResult(
+    Long orderId,
+    boolean success,
+    ReservationStatus status,
+    List<Line> lines
+) {
+    /**
+     * @param error Lý do thất bại của dòng (null nếu thành công)
+     */
+    public record Line(Long productId, int quantity, boolean success, String error) {}
+}
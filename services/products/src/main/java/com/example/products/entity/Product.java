@@ -4,9 +4,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.math.BigDecimal;
@@ -17,6 +21,7 @@ import java.time.OffsetDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
+@DynamicUpdate // Chỉ ghi cột đã đổi: không ghi đè tồn kho/số đã bán được cập nhật trực tiếp bằng SQL
 @Table(name = "products",
         indexes = {
             @Index(name = "idx_products_name", columnList = "name")
@@ -56,7 +61,8 @@ public class Product {
 
     // --- NEW FIELDS FOR RATING & ANALYTICS ---
 
-    @Column(name = "average_rating")
+    // Tính khi đọc từ rating_sum / review_count, không lưu (hai cột được cộng dồn bằng một câu UPDATE khi có đánh giá mới)
+    @Formula("case when review_count > 0 then round(rating_sum * 1.0 / review_count, 1) else 0.0 end")
     @Builder.Default
     @Schema(description = "Điểm đánh giá trung bình (1.0 - 5.0)", example = "4.5")
     private Double averageRating = 0.0;
@@ -66,6 +72,44 @@ public class Product {
     @Schema(description = "Tổng số lượt đánh giá", example = "150")
     private Integer reviewCount = 0;
 
+    @JsonIgnore
+    @Column(name = "rating_sum", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long ratingSum = 0L;
+
+    // Số đánh giá theo từng mức sao (biểu đồ sao trên trang sản phẩm)
+
+    @JsonIgnore
+    @Column(name = "rating_1", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer rating1 = 0;
+
+    @JsonIgnore
+    @Column(name = "rating_2", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer rating2 = 0;
+
+    @JsonIgnore
+    @Column(name = "rating_3", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer rating3 = 0;
+
+    @JsonIgnore
+    @Column(name = "rating_4", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer rating4 = 0;
+
+    @JsonIgnore
+    @Column(name = "rating_5", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer rating5 = 0;
+
     @Column(name = "sold")
     @Builder.Default
     @Schema(description = "Số lượng đã bán (dùng cho Best Seller)", example = "1200")
@@ -0,0 +1,11 @@
+package com.example.products.entity;
+
+/**
+ * Trạng thái giữ hàng của một dòng sản phẩm trong đơn.
+ * RESERVED -> COMMITTED (đơn hoàn tất) hoặc RESERVED -> RELEASED (đơn bị huỷ, trả lại tồn kho).
+ */
+public enum ReservationStatus {
+    RESERVED,
+    COMMITTED,
+    RELEASED
+}
@@ -0,0 +1,58 @@
+package com.example.products.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Số lượng đã giữ của một sản phẩm cho một đơn hàng.
+ * Tồn kho và số đã bán trên {@link Product} được cập nhật trực tiếp bằng UPDATE có điều kiện,
+ * bảng này chỉ ghi lại để release/commit đúng số lượng và đúng một lần.
+ * Với sản phẩm hot đếm trong bộ nhớ, {@code stockApplied = false} cho biết tồn kho chưa được trừ
+ * và dòng đang chờ {@link com.example.products.service.HotStockCounters#flush()}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "stock_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reservation_order_product", columnNames = {"order_id", "product_id"}),
+        indexes = {
+            @Index(name = "idx_reservation_order", columnList = "order_id"),
+            @Index(name = "idx_reservation_stock_applied", columnList = "stock_applied")
+        })
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReservationStatus status;
+
+    @Builder.Default
+    @Column(name = "stock_applied", nullable = false)
+    private boolean stockApplied = true;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
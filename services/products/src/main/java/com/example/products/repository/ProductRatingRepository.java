@@ -0,0 +1,96 @@
+package com.example.products.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cộng dồn thống kê đánh giá của sản phẩm bằng một câu UPDATE nguyên tử, không đọc-sửa-ghi qua JPA:
+ * hai đánh giá đồng thời không thể ghi đè lẫn nhau và chỉ các cột đánh giá bị ghi.
+ * Điểm trung bình được tính khi đọc ({@code rating_sum / review_count}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductRatingRepository {
+
+    // Một câu lệnh cho mỗi mức sao (1-5): tên cột của biểu đồ không truyền được qua tham số
+    private static final String[] ADD_SQL = new String[6];
+
+    static {
+        for (int stars = 1; stars <= 5; stars++) {
+            ADD_SQL[stars] = """
+                    UPDATE products
+                       SET rating_sum = rating_sum + ?, review_count = COALESCE(review_count, 0) + 1,
+                           rating_%1$d = rating_%1$d + 1
+                     WHERE id = ?
+                    """.formatted(stars);
+        }
+    }
+
+    private static final String ADD_BATCH_SQL = """
+            UPDATE products
+               SET rating_sum = rating_sum + ?, review_count = COALESCE(review_count, 0) + ?,
+                   rating_1 = rating_1 + ?, rating_2 = rating_2 + ?, rating_3 = rating_3 + ?,
+                   rating_4 = rating_4 + ?, rating_5 = rating_5 + ?
+             WHERE id = ?
+            """;
+
+    // Tính lại từ bảng reviews (nguồn sự thật) cho sản phẩm có số lượt lệch: dữ liệu từ trước khi có
+    // rating_sum/biểu đồ, hoặc lượt cộng dồn chưa flush bị mất khi instance dừng đột ngột
+    private static final String RECONCILE_SQL = """
+            UPDATE products p
+               SET rating_sum = (SELECT COALESCE(SUM(r.rating), 0) FROM reviews r WHERE r.product_id = p.id),
+                   review_count = (SELECT COUNT(*) FROM reviews r WHERE r.product_id = p.id),
+                   rating_1 = (SELECT COUNT(*) FROM reviews r WHERE r.product_id = p.id AND r.rating = 1),
+                   rating_2 = (SELECT COUNT(*) FROM reviews r WHERE r.product_id = p.id AND r.rating = 2),
+                   rating_3 = (SELECT COUNT(*) FROM reviews r WHERE r.product_id = p.id AND r.rating = 3),
+                   rating_4 = (SELECT COUNT(*) FROM reviews r WHERE r.product_id = p.id AND r.rating = 4),
+                   rating_5 = (SELECT COUNT(*) FROM reviews r WHERE r.product_id = p.id AND r.rating = 5)
+             WHERE COALESCE(p.review_count, 0) <> (SELECT COUNT(*) FROM reviews r WHERE r.product_id = p.id)
+                OR (p.review_count > 0 AND p.rating_sum = 0)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Thêm một đánh giá {@code stars} sao vào thống kê của sản phẩm.
+     *
+     * @return false nếu sản phẩm không tồn tại
+     */
+    public boolean add(Long productId, int stars) {
+        if (stars < 1 || stars > 5) {
+            throw new IllegalArgumentException("Số sao phải từ 1 đến 5: " + stars);
+        }
+        return jdbcTemplate.update(ADD_SQL[stars], stars, productId) == 1;
+    }
+
+    /**
+     * Cộng dồn nhiều sản phẩm trong một lô JDBC.
+     *
+     * @param starCounts productId -> số đánh giá mới theo mức sao (phần tử 0 là 1 sao)
+     */
+    public int[] addAll(Map<Long, long[]> starCounts) {
+        List<Object[]> args = new ArrayList<>(starCounts.size());
+        starCounts.forEach((productId, stars) -> {
+            long sum = 0;
+            long count = 0;
+            for (int i = 0; i < 5; i++) {
+                sum += stars[i] * (i + 1);
+                count += stars[i];
+            }
+            args.add(new Object[]{sum, count, stars[0], stars[1], stars[2], stars[3], stars[4], productId});
+        });
+        return jdbcTemplate.batchUpdate(ADD_BATCH_SQL, args);
+    }
+
+    /**
+     * @return Số sản phẩm được tính lại thống kê từ bảng reviews
+     */
+    public int reconcileFromReviews() {
+        return jdbcTemplate.update(RECONCILE_SQL);
+    }
+}
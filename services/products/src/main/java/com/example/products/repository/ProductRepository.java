@@ -1,19 +1,30 @@
 package com.example.products.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.products.dto.ProductRankSource;
+import com.example.products.dto.ProductSearchSource;
+import com.example.products.dto.ProductSuggestion;
+import com.example.products.dto.ProductSummary;
 import com.example.products.entity.Product;
 
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 @Transactional(readOnly = true)
@@ -42,4 +53,74 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     Page<Product> findByPriceBetweenOrderByPriceAsc(BigDecimal min, BigDecimal max, Pageable pageable);
     
     long countByCategoryId(Long categoryId);
-}
\ No newline at end of file
+
+    /**
+     * Trang danh sách sản phẩm chỉ với các cột của {@link ProductSummary} (không đọc mô tả, không join categories).
+     * Tìm theo từ khoá thường đi qua {@link com.example.products.service.ProductSearchIndex};
+     * {@code pattern} (LIKE) ở đây chỉ dùng khi chỉ mục chưa sẵn sàng.
+     */
+    @Query(value = """
+           select new com.example.products.dto.ProductSummary(
+               p.id, p.name, p.price, p.image, p.stockQuantity, p.averageRating, p.sold, p.category.id)
+           from Product p
+           where (:pattern is null or lower(p.name) like :pattern)
+             and (:categoryId is null or p.category.id = :categoryId)
+             and (:minPrice is null or p.price >= :minPrice)
+             and (:maxPrice is null or p.price <= :maxPrice)
+           """,
+           countQuery = """
+           select count(p)
+           from Product p
+           where (:pattern is null or lower(p.name) like :pattern)
+             and (:categoryId is null or p.category.id = :categoryId)
+             and (:minPrice is null or p.price >= :minPrice)
+             and (:maxPrice is null or p.price <= :maxPrice)
+           """)
+    Page<ProductSummary> findSummaries(
+        @Param("pattern") String pattern,
+        @Param("categoryId") Long categoryId,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        Pageable pageable
+    );
+
+    @Query("select p.id from Product p where p.category.name in :names")
+    List<Long> findIdsByCategoryNameIn(@Param("names") Collection<String> names);
+
+    @Query("select p.category.id from Product p where p.id = :id")
+    Optional<Long> findCategoryIdById(@Param("id") Long id);
+
+    // SELECT ... FOR UPDATE: admin ghi tồn kho tuyệt đối trên giá trị vừa đọc, không để flush/giữ hàng chen giữa
+    @Transactional
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    // Đọc lần lượt toàn bộ sản phẩm (chỉ các cột cần thiết) để dựng chỉ mục tìm kiếm
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+           select new com.example.products.dto.ProductSearchSource(
+               p.id, p.name, p.description, p.category.id, p.price, p.updatedAt)
+           from Product p
+           """)
+    Stream<ProductSearchSource> streamSearchSources();
+
+    // Đọc lần lượt toàn bộ sản phẩm để dựng bộ gợi ý tìm kiếm
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+           select new com.example.products.dto.ProductSuggestion(
+               p.id, p.name, p.image, p.price, p.sold, p.averageRating)
+           from Product p
+           """)
+    Stream<ProductSuggestion> streamSuggestions();
+
+    // Đọc lần lượt toàn bộ sản phẩm để dựng bảng xếp hạng
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+           select new com.example.products.dto.ProductRankSource(
+               p.id, p.name, p.price, p.image, p.stockQuantity, p.sold, p.category.id,
+               p.reviewCount, p.ratingSum, p.updatedAt)
+           from Product p
+           """)
+    Stream<ProductRankSource> streamRankSources();
+}
@@ -1,39 +0,0 @@
-package com.example.products.repository;
-
-import com.example.products.dto.ProductCriteria;
-import com.example.products.entity.Product;
-import org.springframework.data.jpa.domain.Specification;
-import org.springframework.util.StringUtils;
-
-import jakarta.persistence.criteria.Predicate;
-import java.util.ArrayList;
-import java.util.List;
-
-public class ProductSpecification {
-
-    private ProductSpecification() {}
-
-    public static Specification<Product> filterBy(ProductCriteria criteria) {
-        return (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            if (StringUtils.hasText(criteria.search())) {
-                String pattern = "%" + criteria.search().toLowerCase().trim() + "%";
-                predicates.add(cb.like(cb.lower(root.get("name")), pattern));
-            }
-
-            if (criteria.categoryId() != null) {
-                predicates.add(cb.equal(root.get("category").get("id"), criteria.categoryId()));
-            }
-
-            if (criteria.minPrice() != null) {
-                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), criteria.minPrice()));
-            }
-            if (criteria.maxPrice() != null) {
-                predicates.add(cb.lessThanOrEqualTo(root.get("price"), criteria.maxPrice()));
-            }
-
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
-    }
-}
\ No newline at end of file
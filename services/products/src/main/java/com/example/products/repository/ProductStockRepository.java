@@ -0,0 +1,89 @@
+package com.example.products.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cập nhật tồn kho bằng UPDATE có điều kiện gửi theo lô JDBC, không đọc-sửa-ghi qua JPA.
+ * Mỗi câu lệnh tự kiểm tra đủ hàng trong WHERE nên hai request đồng thời không thể cùng trừ
+ * phần tồn kho cuối cùng: request sau chờ khoá dòng rồi thấy điều kiện không còn đúng.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStockRepository {
+
+    private static final String RESERVE_SQL = """
+            UPDATE products
+               SET stock_quantity = stock_quantity - ?, sold = COALESCE(sold, 0) + ?
+             WHERE id = ? AND stock_quantity >= ?
+            """;
+
+    private static final String RELEASE_SQL = """
+            UPDATE products
+               SET stock_quantity = stock_quantity + ?, sold = GREATEST(COALESCE(sold, 0) - ?, 0)
+             WHERE id = ?
+            """;
+
+    private static final String APPLY_SQL = """
+            UPDATE products
+               SET stock_quantity = stock_quantity - ?, sold = COALESCE(sold, 0) + ?
+             WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Trừ tồn kho và tăng số đã bán cho từng dòng (productId -> số lượng).
+     * Người gọi nên truyền các dòng theo thứ tự productId tăng dần để các lô đồng thời
+     * luôn khoá dòng theo cùng thứ tự (tránh deadlock).
+     *
+     * @return Số dòng cập nhật được của từng câu lệnh, cùng thứ tự với {@code lines}; 0 nghĩa là không đủ hàng
+     */
+    public int[] reserve(Map<Long, Integer> lines) {
+        List<Object[]> args = new ArrayList<>(lines.size());
+        lines.forEach((productId, quantity) -> args.add(new Object[]{quantity, quantity, productId, quantity}));
+        return jdbcTemplate.batchUpdate(RESERVE_SQL, args);
+    }
+
+    /**
+     * Trừ tồn kho và tăng số đã bán không kiểm tra điều kiện, cho các dòng đã được giữ trên bộ đếm
+     * trong bộ nhớ ({@link com.example.products.service.HotStockCounters}).
+     */
+    public int[] apply(Map<Long, Integer> lines) {
+        List<Object[]> args = new ArrayList<>(lines.size());
+        lines.forEach((productId, quantity) -> args.add(new Object[]{quantity, quantity, productId}));
+        return jdbcTemplate.batchUpdate(APPLY_SQL, args);
+    }
+
+    /**
+     * Trả lại tồn kho và giảm số đã bán cho từng dòng (productId -> số lượng).
+     */
+    public int[] release(Map<Long, Integer> lines) {
+        List<Object[]> args = new ArrayList<>(lines.size());
+        lines.forEach((productId, quantity) -> args.add(new Object[]{quantity, quantity, productId}));
+        return jdbcTemplate.batchUpdate(RELEASE_SQL, args);
+    }
+
+    /**
+     * @return Tồn kho hiện tại theo productId (sản phẩm không tồn tại thì không có trong map)
+     */
+    public Map<Long, Integer> findStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, stock_quantity FROM products WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", productIds),
+                rs -> {
+                    stock.put(rs.getLong("id"), rs.getInt("stock_quantity"));
+                });
+        return stock;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.products.repository;
+
+import com.example.products.entity.ReservationStatus;
+import com.example.products.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByOrderIdOrderByProductIdAsc(Long orderId);
+
+    /**
+     * Khoá các dòng đang giữ hàng của đơn để release/commit đồng thời không xử lý trùng.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+           select r from StockReservation r
+           where r.orderId = :orderId and r.status = :status
+           order by r.productId asc
+           """)
+    List<StockReservation> lockByOrderIdAndStatus(@Param("orderId") Long orderId,
+                                                  @Param("status") ReservationStatus status);
+
+    /**
+     * Khoá các dòng giữ hàng hot chưa được trừ vào {@code stock_quantity} để flush theo lô.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+           select r from StockReservation r
+           where r.stockApplied = false
+           order by r.productId asc
+           """)
+    List<StockReservation> lockUnapplied();
+}
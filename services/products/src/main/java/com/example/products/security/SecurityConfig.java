@@ -47,7 +47,12 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/products", "/api/products/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.PATCH, "/api/products/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/products/**").hasAuthority("ROLE_ADMIN")
-                        
+
+                        // Giữ/trả/chốt hàng chỉ dành cho admin, khách hàng không được tự thao tác tồn kho
+                        .requestMatchers("/api/inventory/**").hasAuthority("ROLE_ADMIN")
+                        // Route nội bộ cho Orders Service (không mở ra ngoài qua ingress/frontend)
+                        .requestMatchers("/api/internal/**").permitAll()
+
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
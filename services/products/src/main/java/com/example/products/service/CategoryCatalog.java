@@ -0,0 +1,169 @@
+package com.example.products.service;
+
+import com.example.products.dto.CategoryDto;
+import com.example.products.repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Danh sách danh mục kèm số sản phẩm, giữ sẵn trong bộ nhớ dưới dạng JSON đã serialize
+ * (thay cho LEFT JOIN + GROUP BY trên toàn bảng products ở mỗi lần mở trang chủ).
+ * <ul>
+ *   <li>Nạp một lần khi có lượt đọc đầu tiên, sau đó phục vụ nguyên mảng byte cùng ETag.</li>
+ *   <li>Ghi sản phẩm (tạo, đổi danh mục, xoá) cộng/trừ số sản phẩm sau commit, không truy vấn lại.</li>
+ *   <li>Ghi danh mục xoá bản chụp, lượt đọc sau nạp lại từ DB.</li>
+ *   <li>Lượt nạp chồng lên khoảng giữa lúc một transaction ghi sản phẩm commit trong DB và lúc nó cộng/trừ
+ *       (afterCommit) không được giữ lại: số đếm nạp được có thể đã gồm sản phẩm đó, cộng thêm sẽ tính hai lần.</li>
+ *   <li>Bản chụp hết hạn sau TTL của cache danh mục ({@code app.catalog.cache.ttl-ms}) và được nạp lại:
+ *       lưới an toàn cho thay đổi qua replica khác hoặc sửa tay trong DB. Mỗi lượt nạp cho ETag mới,
+ *       nên ETag cũ không được trả 304 quá một TTL.</li>
+ * </ul>
+ * Bản chụp là bất biến, mỗi thay đổi tạo bản mới (số danh mục nhỏ): dữ liệu và ETag luôn đi cùng nhau.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryCatalog {
+
+    /**
+     * @param json Nội dung trả thẳng cho {@code GET /api/categories}
+     */
+    public record Snapshot(List<CategoryDto> categories, byte[] json, String etag) {}
+
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.catalog.cache.ttl-ms:300000}")
+    private long ttlMs = 300000;
+
+    // Tăng sau mỗi thay đổi (cả lúc bắt đầu commit); lượt nạp chỉ được giữ lại nếu không có thay đổi nào xen giữa
+    private final AtomicLong version = new AtomicLong();
+    // Số transaction ghi sản phẩm đã qua beforeCommit nhưng chưa kết thúc
+    private final AtomicInteger committing = new AtomicInteger();
+    // Số lượt nạp từ DB: nằm trong ETag vì lượt nạp lại sau TTL có thể thấy dữ liệu khác mà version không đổi
+    private final AtomicLong loads = new AtomicLong();
+    // Phân biệt ETag giữa các lần khởi động/instance (bộ đếm bắt đầu lại từ 0)
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private volatile Snapshot snapshot;
+    private volatile long loadedAt;
+
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - loadedAt < ttlMs) {
+            return current;
+        }
+        // Đọc version trước: beforeCommit tăng committing trước version, nên không lọt qua cả hai lần kiểm tra
+        long epoch = version.get();
+        boolean quiet = committing.get() == 0;
+        long load = loads.incrementAndGet();
+        Snapshot loaded = build(categoryRepository.findAllWithProductCount(), load, epoch);
+        synchronized (this) {
+            if (quiet && snapshot == current && version.get() == epoch) {
+                snapshot = loaded;
+                loadedAt = System.currentTimeMillis();
+                log.debug("Đã nạp {} danh mục vào bộ nhớ", loaded.categories().size());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Cộng {@code delta} vào số sản phẩm của danh mục sau khi transaction hiện tại commit.
+     */
+    public void adjustCountAfterCommit(Long categoryId, int delta) {
+        afterCommit(() -> adjust(categoryId, delta));
+    }
+
+    /**
+     * Chuyển một sản phẩm từ danh mục {@code from} sang {@code to} sau commit; không làm gì nếu cùng danh mục.
+     */
+    public void moveAfterCommit(Long from, Long to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        afterCommit(() -> {
+            adjust(from, -1);
+            adjust(to, 1);
+        });
+    }
+
+    public void invalidateAfterCommit() {
+        afterCommit(this::invalidate);
+    }
+
+    private synchronized void adjust(Long categoryId, int delta) {
+        long next = version.incrementAndGet();
+        Snapshot current = snapshot;
+        if (current == null || categoryId == null) {
+            return;
+        }
+        List<CategoryDto> categories = new ArrayList<>(current.categories());
+        for (int i = 0; i < categories.size(); i++) {
+            CategoryDto c = categories.get(i);
+            if (c.id().equals(categoryId)) {
+                categories.set(i, new CategoryDto(c.id(), c.name(), c.icon(), c.description(),
+                        Math.max(0L, c.productCount() + delta)));
+                snapshot = build(categories, loads.get(), next);
+                return;
+            }
+        }
+        // Danh mục chưa có trong bản chụp: nạp lại từ DB
+        snapshot = null;
+    }
+
+    private synchronized void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot build(List<CategoryDto> categories, long load, long version) {
+        try {
+            return new Snapshot(List.copyOf(categories), objectMapper.writeValueAsBytes(categories),
+                    instance + "-" + load + "-" + version);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không serialize được danh sách danh mục", e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Từ đây DB có thể đã có thay đổi mà bản chụp chưa được cộng/trừ
+                committing.incrementAndGet();
+                version.incrementAndGet();
+                started = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (started) {
+                    committing.decrementAndGet();
+                }
+            }
+        });
+    }
+}
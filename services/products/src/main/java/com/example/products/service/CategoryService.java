@@ -9,6 +9,7 @@ import com.example.products.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -21,10 +22,20 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final CategoryCatalog categoryCatalog;
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CategoryDto> getAllCategories() {
-        return categoryRepository.findAllWithProductCount();
+        return categoryCatalog.get().categories();
+    }
+
+    /**
+     * Danh sách danh mục kèm số sản phẩm, đã serialize sẵn cùng ETag; chỉ truy vấn DB khi bản chụp vừa bị xoá.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CategoryCatalog.Snapshot getCatalog() {
+        return categoryCatalog.get();
     }
 
     public CategoryDto createCategory(CategoryCreateRequest request) {
@@ -39,6 +50,7 @@ public class CategoryService {
                 .build();
 
         Category saved = categoryRepository.save(category);
+        categoryCatalog.invalidateAfterCommit();
         return new CategoryDto(saved.getId(), saved.getName(), saved.getIcon(), saved.getDescription(), 0L);
     }
 
@@ -51,6 +63,9 @@ public class CategoryService {
         category.setIcon(request.icon());
         
         Category updated = categoryRepository.save(category);
+        // Danh mục được nhúng trong từng sản phẩm đã cache
+        catalogCache.evictAllAfterCommit();
+        categoryCatalog.invalidateAfterCommit();
         return new CategoryDto(updated.getId(), updated.getName(), updated.getIcon(), updated.getDescription(), 0L);
     }
 
@@ -64,5 +79,6 @@ public class CategoryService {
         }
 
         categoryRepository.delete(category);
+        categoryCatalog.invalidateAfterCommit();
     }
 }
\ No newline at end of file
@@ -0,0 +1,242 @@
+package com.example.products.service;
+
+import com.example.products.entity.Product;
+import com.example.products.entity.StockReservation;
+import com.example.products.repository.ProductRepository;
+import com.example.products.repository.ProductStockRepository;
+import com.example.products.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Bộ đếm tồn kho trong bộ nhớ cho sản phẩm hot (flash sale), bật bằng {@code app.inventory.hot-stock.enabled}.
+ * <ul>
+ *   <li>Giữ hàng trừ bộ đếm bằng compare-and-set, không khoá dòng {@code products}.</li>
+ *   <li>Dòng {@code stock_reservations} vẫn được ghi đồng bộ với {@code stock_applied = false}
+ *       và là nhật ký để {@link #flush()} trừ {@code stock_quantity} theo lô định kỳ.</li>
+ *   <li>Khởi động lại (kể cả sau crash): áp các dòng chưa flush rồi nạp lại bộ đếm từ {@code stock_quantity}.</li>
+ * </ul>
+ * Bộ đếm chỉ đúng khi mọi request giữ hàng đi qua cùng một instance: chart products ép 1 replica
+ * và chiến lược deploy {@code Recreate} khi bật {@code HOT_STOCK_ENABLED}, để Pod cũ dừng trước khi Pod mới nạp bộ đếm.
+ */
+@Component
+@Slf4j
+public class HotStockCounters {
+
+    private final ProductRepository productRepository;
+    private final ProductStockRepository stockRepository;
+    private final StockReservationRepository reservationRepository;
+    private final ProductCatalogCache catalogCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+
+    @Value("${app.inventory.hot-stock.enabled:false}")
+    private boolean enabled = false;
+
+    // Sản phẩm thuộc các danh mục này được đếm trong bộ nhớ
+    @Value("${app.inventory.hot-stock.category-names:Món Hot}")
+    private Set<String> categoryNames = Set.of("Món Hot");
+
+    // Thêm từng sản phẩm hot theo ID, ngoài các danh mục ở trên
+    @Value("${app.inventory.hot-stock.product-ids:}")
+    private Set<Long> productIds = Set.of();
+
+    public HotStockCounters(ProductRepository productRepository,
+                            ProductStockRepository stockRepository,
+                            StockReservationRepository reservationRepository,
+                            ProductCatalogCache catalogCache,
+                            PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.stockRepository = stockRepository;
+        this.reservationRepository = reservationRepository;
+        this.catalogCache = catalogCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Chạy khi ứng dụng sẵn sàng (sau DataSeeder). Trước đó sản phẩm chưa được đếm
+     * nên giữ hàng đi đường UPDATE có điều kiện, bộ đếm nạp sau vẫn khớp {@code stock_quantity}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Áp các dòng giữ hàng chưa flush vào {@code stock_quantity}, sau đó nạp lại bộ đếm.
+     * Sau crash, các dòng đã commit nhưng chưa flush là nguồn sự thật.
+     */
+    public void reconcile() {
+        int applied = flush();
+
+        Set<Long> hotIds = new HashSet<>(productIds);
+        if (!categoryNames.isEmpty()) {
+            hotIds.addAll(productRepository.findIdsByCategoryNameIn(categoryNames));
+        }
+
+        available.clear();
+        if (!hotIds.isEmpty()) {
+            stockRepository.findStock(hotIds).forEach((id, stock) -> available.put(id, new AtomicInteger(stock)));
+        }
+        log.info("Bộ đếm tồn kho hot: đã áp {} dòng giữ hàng tồn đọng, đang đếm {} sản phẩm: {}",
+                applied, available.size(), available.keySet());
+    }
+
+    /**
+     * Bắt đầu hoặc ngừng đếm sản phẩm sau khi transaction hiện tại commit, khi admin tạo sản phẩm
+     * hoặc đổi danh mục. Bộ đếm mới lấy {@code stock_quantity} đọc lại sau commit.
+     */
+    public void trackAfterCommit(Product product) {
+        if (!enabled) {
+            return;
+        }
+        Long productId = product.getId();
+        boolean hot = productIds.contains(productId)
+                || (product.getCategory() != null && categoryNames.contains(product.getCategory().getName()));
+        if (hot == available.containsKey(productId)) {
+            return;
+        }
+        afterCommit(() -> {
+            if (hot) {
+                Integer stock = stockRepository.findStock(List.of(productId)).get(productId);
+                if (stock != null && available.putIfAbsent(productId, new AtomicInteger(stock)) == null) {
+                    log.info("Bắt đầu đếm tồn kho hot cho sản phẩm #{}: {}", productId, stock);
+                }
+            } else if (available.remove(productId) != null) {
+                log.info("Ngừng đếm tồn kho hot cho sản phẩm #{}", productId);
+            }
+        });
+    }
+
+    /**
+     * Ngừng đếm sản phẩm bị xoá sau khi transaction hiện tại commit.
+     */
+    public void untrackAfterCommit(Long productId) {
+        if (available.containsKey(productId)) {
+            afterCommit(() -> available.remove(productId));
+        }
+    }
+
+    public boolean isTracked(Long productId) {
+        return enabled && available.containsKey(productId);
+    }
+
+    /**
+     * @return Tồn kho còn lại theo bộ đếm, null nếu sản phẩm không được đếm
+     */
+    public Integer available(Long productId) {
+        AtomicInteger counter = available.get(productId);
+        return counter != null ? counter.get() : null;
+    }
+
+    /**
+     * Trừ bộ đếm nếu còn đủ hàng. Nếu transaction hiện tại rollback, số đã trừ được cộng lại.
+     *
+     * @return false nếu không đủ hàng hoặc sản phẩm vừa ngừng được đếm (xem lại bằng {@link #isTracked})
+     */
+    public boolean tryReserve(Long productId, int quantity) {
+        AtomicInteger counter = available.get(productId);
+        if (counter == null) {
+            return false;
+        }
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - quantity)) {
+                break;
+            }
+        }
+        onRollback(() -> counter.addAndGet(quantity));
+        return true;
+    }
+
+    /**
+     * Cộng lại bộ đếm sau khi transaction hiện tại commit (huỷ đơn, admin nhập thêm hàng).
+     */
+    public void addAfterCommit(Long productId, int quantity) {
+        AtomicInteger counter = available.get(productId);
+        if (counter == null || quantity == 0) {
+            return;
+        }
+        afterCommit(() -> counter.addAndGet(quantity));
+    }
+
+    /**
+     * Trừ {@code stock_quantity} cho các dòng giữ hàng chưa áp, gộp theo sản phẩm trong một lô UPDATE.
+     * Các dòng được khoá trong lúc flush nên release đồng thời không xử lý trùng.
+     *
+     * @return Số dòng giữ hàng đã áp
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.hot-stock.flush-interval-ms:200}")
+    public int flush() {
+        if (!enabled) {
+            return 0;
+        }
+        Integer applied = transactionTemplate.execute(status -> {
+            List<StockReservation> pending = reservationRepository.lockUnapplied();
+            if (pending.isEmpty()) {
+                return 0;
+            }
+
+            Map<Long, Integer> lines = pending.stream()
+                    .collect(Collectors.toMap(StockReservation::getProductId, StockReservation::getQuantity,
+                            Integer::sum, TreeMap::new));
+            stockRepository.apply(lines);
+            catalogCache.evictAfterCommit(lines.keySet());
+            pending.forEach(reservation -> reservation.setStockApplied(true));
+
+            log.debug("Đã flush {} dòng giữ hàng hot vào tồn kho: {}", pending.size(), lines);
+            return pending.size();
+        });
+        return applied != null ? applied : 0;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void onRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    undo.run();
+                }
+            }
+        });
+    }
+}
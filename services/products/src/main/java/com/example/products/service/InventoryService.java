@@ -0,0 +1,190 @@
+package com.example.products.service;
+
+import com.example.products.dto.StockReservationRequest;
+import com.example.products.dto.StockReservationResult;
+import com.example.products.entity.ReservationStatus;
+import com.example.products.entity.StockReservation;
+import com.example.products.repository.ProductStockRepository;
+import com.example.products.repository.StockReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Giữ hàng (trừ tồn kho) cho đơn hàng.
+ * Toàn bộ các dòng của một đơn được trừ trong một transaction bằng một lô UPDATE có điều kiện;
+ * chỉ cần một dòng thiếu hàng là cả lô bị rollback và kết quả từng dòng được trả về.
+ * Giữ hàng lặp lại cho cùng orderId trả về kết quả đã có thay vì trừ thêm.
+ * Sản phẩm hot (khi bật {@link HotStockCounters}) được trừ trên bộ đếm trong bộ nhớ và flush vào
+ * {@code stock_quantity} sau.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private final ProductStockRepository stockRepository;
+    private final StockReservationRepository reservationRepository;
+    private final HotStockCounters hotStock;
+    private final ProductCatalogCache catalogCache;
+    private final ProductLeaderboards leaderboards;
+    private final ProductListingEngine listing;
+
+    @Transactional
+    public StockReservationResult reserve(StockReservationRequest request) {
+        List<StockReservation> existing = reservationRepository.findByOrderIdOrderByProductIdAsc(request.orderId());
+        if (!existing.isEmpty()) {
+            log.info("Đơn #{} đã giữ hàng trước đó, trả lại kết quả cũ", request.orderId());
+            return toResult(request.orderId(), existing);
+        }
+
+        // Gộp các dòng trùng sản phẩm và sắp theo productId để mọi lô khoá dòng theo cùng thứ tự
+        Map<Long, Integer> lines = request.items().stream()
+                .collect(Collectors.toMap(StockReservationRequest.Item::productId,
+                        StockReservationRequest.Item::quantity, Integer::sum, TreeMap::new));
+
+        // Sản phẩm hot trừ trên bộ đếm trong bộ nhớ, còn lại trừ bằng lô UPDATE có điều kiện
+        Map<Long, Integer> sqlLines = new TreeMap<>();
+        List<Long> failedIds = new ArrayList<>();
+        Set<Long> counted = new HashSet<>();
+        lines.forEach((productId, quantity) -> {
+            if (hotStock.isTracked(productId) && hotStock.tryReserve(productId, quantity)) {
+                counted.add(productId);
+            } else if (hotStock.isTracked(productId)) {
+                failedIds.add(productId);
+            } else {
+                // Không đếm, hoặc vừa ngừng đếm giữa chừng: đi đường UPDATE có điều kiện
+                sqlLines.put(productId, quantity);
+            }
+        });
+
+        if (!sqlLines.isEmpty()) {
+            int[] updated = stockRepository.reserve(sqlLines);
+            int i = 0;
+            for (Long productId : sqlLines.keySet()) {
+                if (updated[i++] == 0) failedIds.add(productId);
+            }
+        }
+
+        if (!failedIds.isEmpty()) {
+            // Huỷ các dòng đã trừ trong lô này (bộ đếm hot được cộng lại khi transaction rollback)
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            Map<Long, Integer> stock = stockRepository.findStock(failedIds);
+            log.warn("Giữ hàng cho đơn #{} thất bại, sản phẩm không đủ hàng: {}", request.orderId(), failedIds);
+
+            List<StockReservationResult.Line> results = lines.entrySet().stream()
+                    .map(line -> {
+                        if (!failedIds.contains(line.getKey())) {
+                            return new StockReservationResult.Line(line.getKey(), line.getValue(), true, null);
+                        }
+                        Integer available = hotStock.isTracked(line.getKey())
+                                ? hotStock.available(line.getKey())
+                                : stock.get(line.getKey());
+                        String error = available == null
+                                ? "Không tìm thấy sản phẩm"
+                                : "Không đủ hàng (còn " + available + ")";
+                        return new StockReservationResult.Line(line.getKey(), line.getValue(), false, error);
+                    })
+                    .collect(Collectors.toList());
+            return new StockReservationResult(request.orderId(), false, null, results);
+        }
+
+        List<StockReservation> reservations = lines.entrySet().stream()
+                .map(line -> StockReservation.builder()
+                        .orderId(request.orderId())
+                        .productId(line.getKey())
+                        .quantity(line.getValue())
+                        .status(ReservationStatus.RESERVED)
+                        .stockApplied(!counted.contains(line.getKey()))
+                        .build())
+                .collect(Collectors.toList());
+        try {
+            reservationRepository.saveAllAndFlush(reservations);
+        } catch (DataIntegrityViolationException e) {
+            // Request khác vừa giữ hàng cho cùng đơn: rollback lô này để không trừ hai lần
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Đơn #" + request.orderId() + " đang được giữ hàng bởi request khác");
+        }
+
+        catalogCache.evictAfterCommit(sqlLines.keySet());
+        leaderboards.addSoldAfterCommit(lines);
+        listing.addSoldAfterCommit(lines);
+        log.info("Đã giữ hàng cho đơn #{}: {}", request.orderId(), lines);
+        return toResult(request.orderId(), reservations);
+    }
+
+    /**
+     * Trả lại tồn kho cho đơn bị huỷ. Chỉ các dòng đang RESERVED được trả, gọi lại nhiều lần không trả thêm.
+     */
+    @Transactional
+    public StockReservationResult release(Long orderId) {
+        List<StockReservation> reserved = reservationRepository.lockByOrderIdAndStatus(orderId, ReservationStatus.RESERVED);
+        if (reserved.isEmpty()) {
+            return currentResult(orderId);
+        }
+
+        // Dòng hot chưa flush chưa trừ stock_quantity: chỉ cần cộng lại bộ đếm, không cần UPDATE
+        Map<Long, Integer> lines = reserved.stream()
+                .filter(StockReservation::isStockApplied)
+                .collect(Collectors.toMap(StockReservation::getProductId, StockReservation::getQuantity,
+                        Integer::sum, TreeMap::new));
+        if (!lines.isEmpty()) {
+            stockRepository.release(lines);
+            catalogCache.evictAfterCommit(lines.keySet());
+        }
+        reserved.forEach(reservation -> {
+            if (hotStock.isTracked(reservation.getProductId())) {
+                hotStock.addAfterCommit(reservation.getProductId(), reservation.getQuantity());
+            }
+            reservation.setStatus(ReservationStatus.RELEASED);
+            reservation.setStockApplied(true);
+        });
+        Map<Long, Integer> returned = reserved.stream()
+                .collect(Collectors.toMap(StockReservation::getProductId, r -> -r.getQuantity(), Integer::sum));
+        leaderboards.addSoldAfterCommit(returned);
+        listing.addSoldAfterCommit(returned);
+
+        log.info("Đã trả lại tồn kho cho đơn #{}: {} dòng", orderId, reserved.size());
+        return toResult(orderId, reserved);
+    }
+
+    /**
+     * Chốt hàng cho đơn đã hoàn tất: tồn kho đã trừ từ lúc giữ, sau bước này không thể release nữa.
+     */
+    @Transactional
+    public StockReservationResult commit(Long orderId) {
+        List<StockReservation> reserved = reservationRepository.lockByOrderIdAndStatus(orderId, ReservationStatus.RESERVED);
+        if (reserved.isEmpty()) {
+            return currentResult(orderId);
+        }
+        reserved.forEach(reservation -> reservation.setStatus(ReservationStatus.COMMITTED));
+        return toResult(orderId, reserved);
+    }
+
+    private StockReservationResult currentResult(Long orderId) {
+        List<StockReservation> reservations = reservationRepository.findByOrderIdOrderByProductIdAsc(orderId);
+        if (reservations.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy thông tin giữ hàng của đơn #" + orderId);
+        }
+        return toResult(orderId, reservations);
+    }
+
+    private static StockReservationResult toResult(Long orderId, List<StockReservation> reservations) {
+        List<StockReservationResult.Line> lines = reservations.stream()
+                .map(r -> new StockReservationResult.Line(r.getProductId(), r.getQuantity(), true, null))
+                .collect(Collectors.toList());
+        return new StockReservationResult(orderId, true, reservations.get(0).getStatus(), lines);
+    }
+}
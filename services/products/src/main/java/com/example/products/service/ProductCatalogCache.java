@@ -0,0 +1,247 @@
+package com.example.products.service;
+
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache trong bộ nhớ cho các lượt đọc sản phẩm theo ID (chi tiết, /batch của checkout) và top 10.
+ * <ul>
+ *   <li>Cache giữ bản sao tách khỏi persistence context (kể cả Category), mỗi lượt đọc nhận một bản sao mới
+ *       nên người gọi sửa entity trả về không làm hỏng cache.</li>
+ *   <li>Mọi thay đổi sản phẩm gọi {@link #evictAfterCommit(Collection)}: xoá sau khi transaction commit.</li>
+ *   <li>Lượt nạp từ DB chỉ được ghi vào cache nếu không có lần xoá nào xảy ra trong lúc nạp,
+ *       nên dữ liệu cũ đọc trước commit không thể nằm lại trong cache.</li>
+ * </ul>
+ * Metric hit/miss: {@code cache.gets{cache="products.catalog"}}.
+ * <p>
+ * Vì mọi thay đổi dữ liệu danh mục đều đi qua đây, cache cũng giữ số phiên bản trong bộ nhớ cho ETag
+ * ({@link #versionTag()}, {@link #versionTag(Long)}): controller trả 304 mà không cần truy vấn DB.
+ * Số phiên bản chỉ thấy thay đổi ghi qua instance này; thay đổi ở replica khác (rolling deploy, autoscaling)
+ * hay sửa tay trong DB không làm nó tăng. Vì vậy ETag còn gồm khung thời gian dài bằng TTL của cache:
+ * 304 cũ tối đa một TTL, giống các bản ghi trong cache.
+ */
+@Component
+public class ProductCatalogCache implements MeterBinder {
+
+    @Value("${app.catalog.cache.max-size:10000}")
+    private long maxSize = 10000;
+
+    // Lưới an toàn cho thay đổi không đi qua service này (ví dụ sửa tay trong DB)
+    @Value("${app.catalog.cache.ttl-ms:300000}")
+    private long ttlMs = 300000;
+
+    private Cache<Long, Product> products;
+    private final AtomicReference<List<Product>> top10 = new AtomicReference<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    // Phiên bản cho ETag, chỉ tăng sau khi mọi hook afterCommit (xoá cache, chỉ mục tìm kiếm...) đã chạy xong:
+    // lượt đọc thấy phiên bản mới thì chắc chắn đọc được dữ liệu mới
+    private final AtomicLong published = new AtomicLong();
+    private final Map<Long, Long> changedAt = new ConcurrentHashMap<>();
+    private volatile long allChangedAt;
+    // Phân biệt phiên bản giữa các lần khởi động/instance (bộ đếm bắt đầu lại từ 0)
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    @PostConstruct
+    public void init() {
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, products, "products.catalog");
+    }
+
+    public Optional<Product> get(Long id, Function<Long, Optional<Product>> loader) {
+        Product cached = products.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+
+        long epoch = invalidations.get();
+        Optional<Product> loaded = loader.apply(id);
+        loaded.ifPresent(product -> putIfUnchanged(List.of(product), epoch));
+        return loaded.map(ProductCatalogCache::copy);
+    }
+
+    /**
+     * Tra cache một lượt cho cả danh sách, chỉ nạp từ DB các ID chưa có.
+     *
+     * @return Sản phẩm theo thứ tự ID yêu cầu (bỏ ID trùng và ID không tồn tại)
+     */
+    public List<Product> getAll(Collection<Long> ids, Function<Collection<Long>, List<Product>> loader) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, Product> found = new HashMap<>(products.getAllPresent(requested));
+
+        List<Long> missing = requested.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            long epoch = invalidations.get();
+            List<Product> loaded = loader.apply(missing);
+            putIfUnchanged(loaded, epoch);
+            loaded.forEach(product -> found.put(product.getId(), product));
+        }
+
+        List<Product> result = new ArrayList<>(found.size());
+        for (Long id : requested) {
+            Product product = found.get(id);
+            if (product != null) result.add(copy(product));
+        }
+        return result;
+    }
+
+    public List<Product> getTop10(Supplier<List<Product>> loader) {
+        List<Product> cached = top10.get();
+        if (cached == null) {
+            long epoch = invalidations.get();
+            cached = loader.get().stream().map(ProductCatalogCache::copy).toList();
+            if (invalidations.get() == epoch) {
+                top10.compareAndSet(null, cached);
+            }
+        }
+        return cached.stream().map(ProductCatalogCache::copy).toList();
+    }
+
+    /**
+     * Xoá các sản phẩm khỏi cache (và top 10) sau khi transaction hiện tại commit,
+     * hoặc ngay lập tức nếu không có transaction.
+     */
+    public void evictAfterCommit(Collection<Long> ids) {
+        afterCommit(() -> {
+            invalidations.incrementAndGet();
+            products.invalidateAll(ids);
+            top10.set(null);
+        }, () -> {
+            long version = published.incrementAndGet();
+            ids.forEach(id -> changedAt.put(id, version));
+        });
+    }
+
+    /**
+     * Xoá toàn bộ cache sau commit, dùng khi dữ liệu nhúng trong nhiều sản phẩm thay đổi (ví dụ đổi tên danh mục).
+     */
+    public void evictAllAfterCommit() {
+        afterCommit(() -> {
+            invalidations.incrementAndGet();
+            products.invalidateAll();
+            top10.set(null);
+        }, () -> allChangedAt = published.incrementAndGet());
+    }
+
+    /**
+     * @return Phiên bản của toàn bộ dữ liệu danh mục (danh sách, top 10, danh mục), đổi sau mỗi lần ghi
+     */
+    public String versionTag() {
+        return instance + "-" + ttlBucket() + "-" + published.get();
+    }
+
+    /**
+     * @return Phiên bản của một sản phẩm (kể cả tồn kho, điểm đánh giá), đổi sau mỗi lần ghi sản phẩm đó
+     */
+    public String versionTag(Long id) {
+        return instance + "-" + ttlBucket() + "-" + Math.max(allChangedAt, changedAt.getOrDefault(id, 0L));
+    }
+
+    private long ttlBucket() {
+        return System.currentTimeMillis() / ttlMs;
+    }
+
+    private void putIfUnchanged(List<Product> loaded, long epoch) {
+        if (invalidations.get() != epoch) {
+            return;
+        }
+        loaded.forEach(product -> products.put(product.getId(), copy(product)));
+        // Lần xoá xảy ra ngay sau khi kiểm tra epoch: bỏ luôn các bản vừa ghi
+        if (invalidations.get() != epoch) {
+            products.invalidateAll(loaded.stream().map(Product::getId).toList());
+        }
+    }
+
+    /**
+     * Chạy {@code action} sau commit, rồi {@code publish} khi transaction hoàn tất (sau mọi hook afterCommit khác).
+     */
+    private static void afterCommit(Runnable action, Runnable publish) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    publish.run();
+                }
+            }
+        });
+    }
+
+    private static Product copy(Product product) {
+        return Product.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stockQuantity(product.getStockQuantity())
+                .image(product.getImage())
+                .averageRating(product.getAverageRating())
+                .reviewCount(product.getReviewCount())
+                .ratingSum(product.getRatingSum())
+                .rating1(product.getRating1())
+                .rating2(product.getRating2())
+                .rating3(product.getRating3())
+                .rating4(product.getRating4())
+                .rating5(product.getRating5())
+                .sold(product.getSold())
+                .createdAt(product.getCreatedAt())
+                .updatedAt(product.getUpdatedAt())
+                .category(copy(product.getCategory()))
+                .build();
+    }
+
+    private static Category copy(Category category) {
+        if (category == null) {
+            return null;
+        }
+        return Category.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .icon(category.getIcon())
+                .description(category.getDescription())
+                .createdAt(category.getCreatedAt())
+                .updatedAt(category.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.products.service;
+
+import com.example.products.dto.ProductRankSource;
+import com.example.products.dto.ProductSummary;
+import com.example.products.entity.Product;
+import com.example.products.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Bảng xếp hạng sản phẩm trong bộ nhớ: bán chạy, đánh giá cao, mới cập nhật; toàn bộ và theo từng danh mục.
+ * <ul>
+ *   <li>Mỗi bảng là một tập đã sắp xếp (skip list): lấy top K là duyệt K phần tử đầu, không truy vấn DB.</li>
+ *   <li>Cập nhật từng sản phẩm sau commit: ghi sản phẩm, đánh giá mới, giữ/trả hàng (số đã bán, tồn kho).
+ *       Mỗi thay đổi là gỡ rồi chèn lại một phần tử, O(log n).</li>
+ *   <li>Dựng lại từ DB khi ứng dụng sẵn sàng và định kỳ ({@code app.leaderboards.refresh-interval-ms})
+ *       để sửa các lệch nhỏ (ví dụ số đã bán của sản phẩm hot được ghi khi flush).</li>
+ *   <li>Bản dựng đọc DB chồng lên khoảng giữa lúc một transaction ghi commit trong DB và lúc hook afterCommit
+ *       của nó chạy thì không được giữ lại (thử lại vài lần): DB có thể đã gồm thay đổi, hook cộng thêm sẽ tính hai lần.</li>
+ * </ul>
+ * "Đánh giá cao" chỉ gồm sản phẩm đã có đánh giá.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductLeaderboards {
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final int REBUILD_ATTEMPTS = 3;
+    private static final long REBUILD_RETRY_DELAY_MS = 100;
+
+    public enum Ranking {
+        BEST_SELLING, TOP_RATED, NEWEST;
+
+        /**
+         * @param value best_selling | top_rated | newest
+         */
+        public static Ranking fromParam(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Kiểu xếp hạng không hợp lệ: " + value + " (best_selling, top_rated, newest)");
+            }
+        }
+    }
+
+    private record Entry(ProductSummary summary, int reviewCount, long ratingSum, OffsetDateTime updatedAt) {
+
+        Entry withSold(int soldDelta) {
+            ProductSummary s = summary;
+            return new Entry(new ProductSummary(s.id(), s.name(), s.price(), s.image(),
+                    s.stockQuantity() - soldDelta, s.averageRating(), Math.max(0, s.sold() + soldDelta), s.categoryId()),
+                    reviewCount, ratingSum, updatedAt);
+        }
+
+        Entry withRatings(long starsAdded, int reviewsAdded) {
+            ProductSummary s = summary;
+            int count = reviewCount + reviewsAdded;
+            long sum = ratingSum + starsAdded;
+            return new Entry(new ProductSummary(s.id(), s.name(), s.price(), s.image(), s.stockQuantity(),
+                    ReviewStatsAggregator.average(sum, count), s.sold(), s.categoryId()),
+                    count, sum, updatedAt);
+        }
+    }
+
+    private record Board(Ranking ranking, Long categoryId) {}
+
+    private static final Comparator<Entry> BY_ID = Comparator.comparing(e -> e.summary().id());
+
+    private static final Map<Ranking, Comparator<Entry>> ORDER = Map.of(
+            Ranking.BEST_SELLING, Comparator.<Entry>comparingInt(e -> e.summary().sold()).reversed().thenComparing(BY_ID),
+            Ranking.TOP_RATED, Comparator.<Entry>comparingDouble(e -> e.summary().averageRating()).reversed()
+                    .thenComparing(Comparator.<Entry>comparingInt(Entry::reviewCount).reversed())
+                    .thenComparing(BY_ID),
+            Ranking.NEWEST, Comparator.comparing(Entry::updatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(BY_ID));
+
+    /**
+     * Sản phẩm hiện tại theo ID và các bảng xếp hạng. Được thay nguyên khối khi dựng lại.
+     */
+    private static final class State {
+        final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        final Map<Board, NavigableSet<Entry>> boards = new ConcurrentHashMap<>();
+    }
+
+    private final ProductRepository productRepository;
+    private final ReviewStatsAggregator reviewStats;
+
+    private volatile State state = new State();
+
+    // Tăng sau mỗi thay đổi (cả lúc bắt đầu commit); bản dựng chỉ được giữ lại nếu không có thay đổi nào xen giữa
+    private final AtomicLong version = new AtomicLong();
+    // Số transaction ghi đã qua beforeCommit nhưng chưa kết thúc (hook afterCommit chưa chạy xong)
+    private final AtomicInteger committing = new AtomicInteger();
+
+    /**
+     * Không giữ khoá trong lúc đọc DB: hook của các transaction đang commit chạy tiếp trên bảng hiện tại.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.leaderboards.refresh-interval-ms:300000}",
+               fixedDelayString = "${app.leaderboards.refresh-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        for (int attempt = 1; attempt <= REBUILD_ATTEMPTS; attempt++) {
+            if (tryRebuild()) {
+                return;
+            }
+            if (attempt < REBUILD_ATTEMPTS) {
+                try {
+                    Thread.sleep(REBUILD_RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        log.warn("Bỏ qua lần dựng lại bảng xếp hạng: luôn có transaction ghi đang commit trong lúc đọc DB");
+    }
+
+    private boolean tryRebuild() {
+        long start = System.nanoTime();
+        // Đọc version trước: beforeCommit tăng committing trước version, nên không lọt qua cả hai lần kiểm tra
+        long epoch = version.get();
+        boolean quiet = committing.get() == 0;
+        State rebuilt = new State();
+        try (Stream<ProductRankSource> sources = productRepository.streamRankSources()) {
+            sources.forEach(source -> put(rebuilt, withPendingReviews(entry(source))));
+        }
+        synchronized (this) {
+            if (!quiet || version.get() != epoch) {
+                return false;
+            }
+            state = rebuilt;
+        }
+        log.info("Đã dựng bảng xếp hạng: {} sản phẩm, {} bảng trong {} ms", rebuilt.entries.size(), rebuilt.boards.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+
+    /**
+     * @param categoryId null: xếp hạng trên toàn bộ sản phẩm
+     * @return Tối đa {@code limit} sản phẩm đứng đầu bảng
+     */
+    public List<ProductSummary> top(Ranking ranking, Long categoryId, int limit) {
+        NavigableSet<Entry> board = state.boards.get(new Board(ranking, categoryId));
+        if (board == null) {
+            return List.of();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<ProductSummary> result = new ArrayList<>(size);
+        for (Entry entry : board) {
+            result.add(entry.summary());
+            if (result.size() == size) break;
+        }
+        return result;
+    }
+
+    public void indexAfterCommit(Product product) {
+        afterCommit(() -> update(product.getId(), old -> entry(new ProductRankSource(
+                product.getId(), product.getName(), product.getPrice(), product.getImage(),
+                product.getStockQuantity(), product.getSold(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getReviewCount(), product.getRatingSum(), product.getUpdatedAt())), true));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        afterCommit(() -> update(productId, old -> null, false));
+    }
+
+    public void addRatingAfterCommit(Long productId, int stars) {
+        afterCommit(() -> update(productId, old -> old.withRatings(stars, 1), false));
+    }
+
+    /**
+     * @param quantities productId -> số lượng vừa bán (âm khi trả hàng); tồn kho hiển thị giảm tương ứng
+     */
+    public void addSoldAfterCommit(Map<Long, Integer> quantities) {
+        afterCommit(() -> quantities.forEach((productId, quantity) ->
+                update(productId, old -> old.withSold(quantity), false)));
+    }
+
+    /**
+     * Thay phần tử của sản phẩm. {@code change} nhận phần tử cũ (có thể null nếu {@code allowNew}),
+     * trả null để gỡ sản phẩm.
+     */
+    private synchronized void update(Long productId, UnaryOperator<Entry> change, boolean allowNew) {
+        State current = state;
+        Entry old = current.entries.get(productId);
+        if (old == null && !allowNew) {
+            return;
+        }
+        Entry next = change.apply(old);
+        if (old != null) {
+            remove(current, old);
+        }
+        if (next != null) {
+            put(current, next);
+        }
+    }
+
+    private Entry withPendingReviews(Entry entry) {
+        long[] stars = reviewStats.pending(entry.summary().id());
+        if (stars == null) {
+            return entry;
+        }
+        long sum = 0;
+        int count = 0;
+        for (int i = 0; i < 5; i++) {
+            sum += stars[i] * (i + 1);
+            count += (int) stars[i];
+        }
+        return entry.withRatings(sum, count);
+    }
+
+    /**
+     * Điểm trung bình tính từ tổng điểm/số lượt (averageRating của entity vừa lưu chưa được Hibernate đọc lại).
+     */
+    private static Entry entry(ProductRankSource source) {
+        int reviewCount = source.reviewCount() != null ? source.reviewCount() : 0;
+        long ratingSum = source.ratingSum() != null ? source.ratingSum() : 0L;
+        ProductSummary summary = new ProductSummary(source.id(), source.name(), source.price(), source.image(),
+                source.stockQuantity() != null ? source.stockQuantity() : 0,
+                ReviewStatsAggregator.average(ratingSum, reviewCount),
+                source.sold() != null ? source.sold() : 0, source.categoryId());
+        return new Entry(summary, reviewCount, ratingSum, source.updatedAt());
+    }
+
+    private static void put(State state, Entry entry) {
+        state.entries.put(entry.summary().id(), entry);
+        for (Board board : boards(entry)) {
+            state.boards.computeIfAbsent(board, b -> new ConcurrentSkipListSet<>(ORDER.get(b.ranking()))).add(entry);
+        }
+    }
+
+    private static void remove(State state, Entry entry) {
+        state.entries.remove(entry.summary().id());
+        for (Board board : boards(entry)) {
+            NavigableSet<Entry> set = state.boards.get(board);
+            if (set != null) set.remove(entry);
+        }
+    }
+
+    private static List<Board> boards(Entry entry) {
+        List<Board> boards = new ArrayList<>(6);
+        Long categoryId = entry.summary().categoryId();
+        for (Ranking ranking : Ranking.values()) {
+            if (ranking == Ranking.TOP_RATED && entry.reviewCount() == 0) {
+                continue;
+            }
+            boards.add(new Board(ranking, null));
+            if (categoryId != null) {
+                boards.add(new Board(ranking, categoryId));
+            }
+        }
+        return boards;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Không có transaction: thay đổi đã nằm trong DB, đang ghi cho tới khi áp xong vào bộ nhớ
+            committing.incrementAndGet();
+            version.incrementAndGet();
+            try {
+                action.run();
+            } finally {
+                committing.decrementAndGet();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Từ đây DB có thể đã có thay đổi mà bảng xếp hạng chưa được cập nhật
+                committing.incrementAndGet();
+                version.incrementAndGet();
+                started = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (started) {
+                    committing.decrementAndGet();
+                }
+            }
+        });
+    }
+}
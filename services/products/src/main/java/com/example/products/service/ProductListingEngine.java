@@ -0,0 +1,466 @@
+package com.example.products.service;
+
+import com.example.products.dto.ProductCriteria;
+import com.example.products.dto.ProductRankSource;
+import com.example.products.dto.ProductSummary;
+import com.example.products.entity.Product;
+import com.example.products.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Trả lời trang danh sách sản phẩm ({@code GET /api/products}) hoàn toàn trong bộ nhớ, thay cho truy vấn
+ * {@code findSummaries} + count. Bật bằng {@code app.catalog.listing.in-memory.enabled}.
+ * <ul>
+ *   <li>Bản chụp bất biến theo cột: mảng nguyên thuỷ cho giá (đơn vị xu), số đã bán, tồn kho, điểm đánh giá,
+ *       danh mục; cùng hoán vị đã sắp xếp sẵn cho mỗi kiểu sắp xếp (giá, tên, updatedAt).</li>
+ *   <li>Một trang là một lượt duyệt hoán vị: lọc danh mục/giá trên mảng nguyên thuỷ, đếm tổng,
+ *       chỉ tạo {@link ProductSummary} cho các dòng của trang.</li>
+ *   <li>Mỗi lần ghi sau commit thay nguyên bản chụp: ghi sản phẩm dựng lại hoán vị từ bản cũ (không truy vấn DB),
+ *       giữ/trả hàng và đánh giá chỉ chép các cột bị đổi.</li>
+ * </ul>
+ * Dựng lại từ DB khi ứng dụng sẵn sàng và định kỳ ({@code app.catalog.listing.in-memory.refresh-interval-ms});
+ * bản chụp đọc DB chồng lên lúc một transaction ghi đang commit (đã vào DB, hook chưa chạy xong) thì bị bỏ và đọc lại.
+ * Khi tắt hoặc chưa dựng xong, {@link #page} trả null và người gọi dùng truy vấn DB.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductListingEngine {
+
+    private static final long NO_CATEGORY = Long.MIN_VALUE;
+
+    private static final int REBUILD_ATTEMPTS = 3;
+    private static final long REBUILD_RETRY_DELAY_MS = 100;
+
+    /**
+     * Các thuộc tính sắp xếp có hoán vị dựng sẵn (tăng dần, trùng thì theo id); giảm dần là duyệt ngược.
+     */
+    private enum SortKey {
+        PRICE, NAME, UPDATED_AT;
+
+        static SortKey of(String property) {
+            return switch (property) {
+                case "price" -> PRICE;
+                case "name" -> NAME;
+                case "updatedAt" -> UPDATED_AT;
+                default -> null;
+            };
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final ReviewStatsAggregator reviewStats;
+
+    @Value("${app.catalog.listing.in-memory.enabled:false}")
+    private boolean enabled = false;
+
+    private volatile Snapshot snapshot;
+
+    // Tăng sau mỗi thay đổi (cả lúc bắt đầu commit); bản chụp chỉ được giữ lại nếu không có thay đổi nào xen giữa
+    private final AtomicLong version = new AtomicLong();
+    // Số transaction ghi đã qua beforeCommit nhưng chưa kết thúc (hook afterCommit chưa chạy xong)
+    private final AtomicInteger committing = new AtomicInteger();
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Không giữ khoá trong lúc đọc DB: hook của các transaction đang commit chạy tiếp trên bản chụp hiện tại.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.catalog.listing.in-memory.refresh-interval-ms:300000}",
+               fixedDelayString = "${app.catalog.listing.in-memory.refresh-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        for (int attempt = 1; attempt <= REBUILD_ATTEMPTS; attempt++) {
+            if (tryRebuild()) {
+                return;
+            }
+            if (attempt < REBUILD_ATTEMPTS) {
+                try {
+                    Thread.sleep(REBUILD_RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        log.warn("Bỏ qua lần dựng lại bản chụp danh sách sản phẩm: luôn có transaction ghi đang commit trong lúc đọc DB");
+    }
+
+    private boolean tryRebuild() {
+        long start = System.nanoTime();
+        // Đọc version trước: beforeCommit tăng committing trước version, nên không lọt qua cả hai lần kiểm tra
+        long epoch = version.get();
+        boolean quiet = committing.get() == 0;
+        List<ProductRankSource> rows;
+        try (Stream<ProductRankSource> sources = productRepository.streamRankSources()) {
+            rows = sources.map(this::withPendingReviews).toList();
+        }
+        Snapshot rebuilt = Snapshot.of(rows);
+        synchronized (this) {
+            if (!quiet || version.get() != epoch) {
+                return false;
+            }
+            snapshot = rebuilt;
+        }
+        log.info("Đã dựng bản chụp danh sách sản phẩm: {} sản phẩm trong {} ms", rows.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+
+    /**
+     * @param sort Một thuộc tính: price, name hoặc updatedAt
+     * @return Trang kết quả, hoặc null nếu chưa có bản chụp hay cách sắp xếp không hỗ trợ
+     */
+    public Page<ProductSummary> page(ProductCriteria criteria, Sort sort, Pageable pageable) {
+        Snapshot s = snapshot;
+        List<Sort.Order> orders = sort.toList();
+        if (s == null || pageable.isUnpaged() || orders.size() != 1) {
+            return null;
+        }
+        SortKey key = SortKey.of(orders.get(0).getProperty());
+        if (key == null) {
+            return null;
+        }
+        return s.page(criteria, key, orders.get(0).isDescending(), pageable);
+    }
+
+    /**
+     * @return Thông tin rút gọn của các sản phẩm theo đúng thứ tự {@code ids}, hoặc null nếu có ID chưa có trong bản chụp
+     */
+    public List<ProductSummary> summaries(List<Long> ids) {
+        Snapshot s = snapshot;
+        if (s == null) {
+            return null;
+        }
+        List<ProductSummary> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Integer row = s.rowById.get(id);
+            if (row == null) return null;
+            result.add(s.summary(row));
+        }
+        return result;
+    }
+
+    public void indexAfterCommit(Product product) {
+        ProductRankSource source = new ProductRankSource(product.getId(), product.getName(), product.getPrice(),
+                product.getImage(), product.getStockQuantity(), product.getSold(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getReviewCount(), product.getRatingSum(), product.getUpdatedAt());
+        afterCommit(() -> replace(source.id(), source));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        afterCommit(() -> replace(productId, null));
+    }
+
+    public void addRatingAfterCommit(Long productId, int stars) {
+        afterCommit(() -> patch(s -> s.withRatings(Map.of(productId, new long[]{stars, 1}))));
+    }
+
+    /**
+     * @param quantities productId -> số lượng vừa bán (âm khi trả hàng); tồn kho giảm tương ứng
+     */
+    public void addSoldAfterCommit(Map<Long, Integer> quantities) {
+        afterCommit(() -> patch(s -> s.withSold(quantities)));
+    }
+
+    private synchronized void patch(UnaryOperator<Snapshot> change) {
+        if (snapshot != null) {
+            snapshot = change.apply(snapshot);
+        }
+    }
+
+    /**
+     * Thay (hoặc gỡ nếu {@code source} null) một sản phẩm rồi dựng lại hoán vị từ các cột của bản cũ.
+     */
+    private synchronized void replace(Long productId, ProductRankSource source) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<ProductRankSource> rows = new ArrayList<>(current.size() + 1);
+        for (int row = 0; row < current.size(); row++) {
+            if (current.ids[row] != productId) rows.add(current.source(row));
+        }
+        if (source != null) {
+            rows.add(source);
+        }
+        snapshot = Snapshot.of(rows);
+    }
+
+    private ProductRankSource withPendingReviews(ProductRankSource source) {
+        long[] stars = reviewStats.pending(source.id());
+        if (stars == null) {
+            return source;
+        }
+        long sum = 0;
+        int count = 0;
+        for (int i = 0; i < 5; i++) {
+            sum += stars[i] * (i + 1);
+            count += (int) stars[i];
+        }
+        return new ProductRankSource(source.id(), source.name(), source.price(), source.image(),
+                source.stockQuantity(), source.sold(), source.categoryId(),
+                (source.reviewCount() != null ? source.reviewCount() : 0) + count,
+                (source.ratingSum() != null ? source.ratingSum() : 0L) + sum, source.updatedAt());
+    }
+
+    /**
+     * Bản chụp theo cột, không sửa sau khi tạo (các phương thức with* trả bản mới, dùng chung các cột không đổi).
+     */
+    private static final class Snapshot {
+        final long[] ids;
+        final String[] names;
+        final BigDecimal[] prices;
+        final long[] priceCents;
+        final String[] images;
+        final int[] stock;
+        final int[] sold;
+        final int[] reviewCount;
+        final long[] ratingSum;
+        final double[] rating;
+        final long[] categoryIds;
+        final OffsetDateTime[] updatedAt;
+        final Map<Long, Integer> rowById;
+        final Map<SortKey, int[]> orders;
+
+        private Snapshot(long[] ids, String[] names, BigDecimal[] prices, long[] priceCents, String[] images,
+                         int[] stock, int[] sold, int[] reviewCount, long[] ratingSum, double[] rating,
+                         long[] categoryIds, OffsetDateTime[] updatedAt, Map<Long, Integer> rowById,
+                         Map<SortKey, int[]> orders) {
+            this.ids = ids;
+            this.names = names;
+            this.prices = prices;
+            this.priceCents = priceCents;
+            this.images = images;
+            this.stock = stock;
+            this.sold = sold;
+            this.reviewCount = reviewCount;
+            this.ratingSum = ratingSum;
+            this.rating = rating;
+            this.categoryIds = categoryIds;
+            this.updatedAt = updatedAt;
+            this.rowById = rowById;
+            this.orders = orders;
+        }
+
+        static Snapshot of(List<ProductRankSource> rows) {
+            int n = rows.size();
+            long[] ids = new long[n];
+            String[] names = new String[n];
+            BigDecimal[] prices = new BigDecimal[n];
+            long[] priceCents = new long[n];
+            String[] images = new String[n];
+            int[] stock = new int[n];
+            int[] sold = new int[n];
+            int[] reviewCount = new int[n];
+            long[] ratingSum = new long[n];
+            double[] rating = new double[n];
+            long[] categoryIds = new long[n];
+            OffsetDateTime[] updatedAt = new OffsetDateTime[n];
+            Map<Long, Integer> rowById = new HashMap<>(n * 2);
+
+            for (int row = 0; row < n; row++) {
+                ProductRankSource source = rows.get(row);
+                ids[row] = source.id();
+                names[row] = source.name();
+                prices[row] = source.price();
+                priceCents[row] = source.price() != null ? cents(source.price(), RoundingMode.HALF_UP) : Long.MIN_VALUE;
+                images[row] = source.image();
+                stock[row] = source.stockQuantity() != null ? source.stockQuantity() : 0;
+                sold[row] = source.sold() != null ? source.sold() : 0;
+                reviewCount[row] = source.reviewCount() != null ? source.reviewCount() : 0;
+                ratingSum[row] = source.ratingSum() != null ? source.ratingSum() : 0L;
+                rating[row] = ReviewStatsAggregator.average(ratingSum[row], reviewCount[row]);
+                categoryIds[row] = source.categoryId() != null ? source.categoryId() : NO_CATEGORY;
+                updatedAt[row] = source.updatedAt();
+                rowById.put(source.id(), row);
+            }
+
+            Map<SortKey, int[]> orders = new EnumMap<>(SortKey.class);
+            orders.put(SortKey.PRICE, order(n, (a, b) -> Long.compare(priceCents[a], priceCents[b]), ids));
+            orders.put(SortKey.NAME, order(n, (a, b) -> compareNullsLast(names[a], names[b], String.CASE_INSENSITIVE_ORDER), ids));
+            orders.put(SortKey.UPDATED_AT, order(n, (a, b) -> compareNullsLast(updatedAt[a], updatedAt[b], Comparator.naturalOrder()), ids));
+
+            return new Snapshot(ids, names, prices, priceCents, images, stock, sold, reviewCount, ratingSum, rating,
+                    categoryIds, updatedAt, rowById, orders);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        Page<ProductSummary> page(ProductCriteria criteria, SortKey key, boolean descending, Pageable pageable) {
+            int[] order = orders.get(key);
+            int n = order.length;
+            long offset = pageable.getOffset();
+            int pageSize = pageable.getPageSize();
+            long category = criteria.categoryId() != null ? criteria.categoryId() : NO_CATEGORY;
+            long min = criteria.minPrice() != null ? cents(criteria.minPrice(), RoundingMode.CEILING) : Long.MIN_VALUE;
+            long max = criteria.maxPrice() != null ? cents(criteria.maxPrice(), RoundingMode.FLOOR) : Long.MAX_VALUE;
+            boolean filtered = criteria.categoryId() != null || criteria.minPrice() != null || criteria.maxPrice() != null;
+
+            List<ProductSummary> content = new ArrayList<>(pageSize);
+            if (!filtered) {
+                for (long i = offset; i < n && content.size() < pageSize; i++) {
+                    content.add(summary(order[descending ? n - 1 - (int) i : (int) i]));
+                }
+                return new PageImpl<>(content, pageable, n);
+            }
+
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                int row = order[descending ? n - 1 - i : i];
+                if (category != NO_CATEGORY && categoryIds[row] != category) continue;
+                // Giá null (Long.MIN_VALUE) không qua được bộ lọc giá, như so sánh với NULL trong SQL
+                long price = priceCents[row];
+                if ((min != Long.MIN_VALUE || max != Long.MAX_VALUE) && (price == Long.MIN_VALUE || price < min || price > max)) continue;
+                if (total >= offset && content.size() < pageSize) {
+                    content.add(summary(row));
+                }
+                total++;
+            }
+            return new PageImpl<>(content, pageable, total);
+        }
+
+        ProductSummary summary(int row) {
+            return new ProductSummary(ids[row], names[row], prices[row], images[row], stock[row], rating[row], sold[row],
+                    categoryIds[row] != NO_CATEGORY ? categoryIds[row] : null);
+        }
+
+        ProductRankSource source(int row) {
+            return new ProductRankSource(ids[row], names[row], prices[row], images[row], stock[row], sold[row],
+                    categoryIds[row] != NO_CATEGORY ? categoryIds[row] : null, reviewCount[row], ratingSum[row],
+                    updatedAt[row]);
+        }
+
+        Snapshot withSold(Map<Long, Integer> quantities) {
+            int[] newStock = stock.clone();
+            int[] newSold = sold.clone();
+            quantities.forEach((productId, quantity) -> {
+                Integer row = rowById.get(productId);
+                if (row == null) return;
+                newStock[row] -= quantity;
+                newSold[row] = Math.max(0, newSold[row] + quantity);
+            });
+            return new Snapshot(ids, names, prices, priceCents, images, newStock, newSold, reviewCount, ratingSum, rating,
+                    categoryIds, updatedAt, rowById, orders);
+        }
+
+        /**
+         * @param added productId -> {tổng số sao thêm, số lượt thêm}
+         */
+        Snapshot withRatings(Map<Long, long[]> added) {
+            int[] newCount = reviewCount.clone();
+            long[] newSum = ratingSum.clone();
+            double[] newRating = rating.clone();
+            added.forEach((productId, delta) -> {
+                Integer row = rowById.get(productId);
+                if (row == null) return;
+                newSum[row] += delta[0];
+                newCount[row] += (int) delta[1];
+                newRating[row] = ReviewStatsAggregator.average(newSum[row], newCount[row]);
+            });
+            return new Snapshot(ids, names, prices, priceCents, images, stock, sold, newCount, newSum, newRating,
+                    categoryIds, updatedAt, rowById, orders);
+        }
+
+        private static int[] order(int n, IntComparator comparator, long[] ids) {
+            return IntStream.range(0, n).boxed()
+                    .sorted((a, b) -> {
+                        int c = comparator.compare(a, b);
+                        return c != 0 ? c : Long.compare(ids[a], ids[b]);
+                    })
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        private static <T> int compareNullsLast(T a, T b, Comparator<? super T> comparator) {
+            if (a == null || b == null) {
+                return a == null ? (b == null ? 0 : 1) : -1;
+            }
+            return comparator.compare(a, b);
+        }
+
+        private static long cents(BigDecimal amount, RoundingMode rounding) {
+            return amount.setScale(2, rounding).unscaledValue().longValueExact();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Không có transaction: thay đổi đã nằm trong DB, đang ghi cho tới khi áp xong vào bộ nhớ
+            committing.incrementAndGet();
+            version.incrementAndGet();
+            try {
+                action.run();
+            } finally {
+                committing.decrementAndGet();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Từ đây DB có thể đã có thay đổi mà bản chụp chưa được cập nhật
+                committing.incrementAndGet();
+                version.incrementAndGet();
+                started = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (started) {
+                    committing.decrementAndGet();
+                }
+            }
+        });
+    }
+}
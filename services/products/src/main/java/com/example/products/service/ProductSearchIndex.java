@@ -0,0 +1,261 @@
+package com.example.products.service;
+
+import com.example.products.dto.ProductCriteria;
+import com.example.products.dto.ProductSearchSource;
+import com.example.products.entity.Product;
+import com.example.products.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Chỉ mục tìm kiếm sản phẩm trong bộ nhớ, thay cho {@code lower(name) LIKE '%x%'} (không dùng được index, quét toàn bảng).
+ * <ul>
+ *   <li>Tên và mô tả được bỏ dấu tiếng Việt ("Cơm Tấm" → "com tam"), tách từ và cắt trigram.</li>
+ *   <li>Mỗi từ trong câu tìm phải xuất hiện trong sản phẩm: từ từ 3 ký tự khớp ở bất kỳ vị trí nào
+ *       (giao các trigram rồi kiểm tra lại), từ ngắn hơn khớp theo tiền tố của từ.</li>
+ *   <li>Giữ thêm danh mục, giá, tên, updatedAt để lọc và sắp xếp ứng viên mà không cần query DB.</li>
+ * </ul>
+ * Dựng lại khi ứng dụng sẵn sàng (sau DataSeeder) và cập nhật theo từng lần ghi sản phẩm sau commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Sản phẩm đã chỉ mục cùng văn bản đã bỏ dấu (để kiểm tra lại ứng viên và gỡ khỏi chỉ mục).
+     */
+    private record Entry(ProductSearchSource source, String text) {}
+
+    private final ProductRepository productRepository;
+
+    private final Map<Long, Entry> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> gramPostings = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Set<Long>> tokenPostings = new ConcurrentSkipListMap<>();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        documents.clear();
+        gramPostings.clear();
+        tokenPostings.clear();
+        try (Stream<ProductSearchSource> sources = productRepository.streamSearchSources()) {
+            sources.forEach(this::index);
+        }
+        ready = true;
+        log.info("Đã dựng chỉ mục tìm kiếm: {} sản phẩm, {} trigram, {} từ trong {} ms",
+                documents.size(), gramPostings.size(), tokenPostings.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @return false khi chưa dựng xong chỉ mục, người gọi dùng truy vấn DB thay thế
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void index(ProductSearchSource source) {
+        remove(source.id());
+        String text = " " + String.join(" ", tokens(fold(source.name()) + " " + fold(source.description())));
+        documents.put(source.id(), new Entry(source, text));
+        for (String token : tokens(text)) {
+            tokenPostings.computeIfAbsent(token, k -> ConcurrentHashMap.newKeySet()).add(source.id());
+            for (String gram : grams(token)) {
+                gramPostings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(source.id());
+            }
+        }
+    }
+
+    public synchronized void remove(Long productId) {
+        Entry entry = documents.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        for (String token : tokens(entry.text())) {
+            tokenPostings.computeIfPresent(token, (k, ids) -> ids.remove(productId) && ids.isEmpty() ? null : ids);
+            for (String gram : grams(token)) {
+                gramPostings.computeIfPresent(gram, (k, ids) -> ids.remove(productId) && ids.isEmpty() ? null : ids);
+            }
+        }
+    }
+
+    /**
+     * Cập nhật chỉ mục sau khi transaction hiện tại commit (lúc này updatedAt đã được Hibernate gán).
+     */
+    public void indexAfterCommit(Product product) {
+        afterCommit(() -> index(new ProductSearchSource(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getPrice(),
+                product.getUpdatedAt())));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        afterCommit(() -> remove(productId));
+    }
+
+    /**
+     * @return ID các sản phẩm khớp {@code criteria.search()} và các bộ lọc danh mục/giá, theo thứ tự {@code sort}
+     */
+    public List<Long> search(ProductCriteria criteria, Sort sort) {
+        Set<String> terms = new LinkedHashSet<>(tokens(fold(criteria.search())));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        // Duyệt danh sách ứng viên nhỏ nhất trong các từ, các từ còn lại kiểm tra trên văn bản đã bỏ dấu
+        Collection<Long> driver = null;
+        for (String term : terms) {
+            Collection<Long> candidates = candidates(term);
+            if (driver == null || candidates.size() < driver.size()) {
+                driver = candidates;
+            }
+        }
+
+        List<ProductSearchSource> results = new ArrayList<>();
+        for (Long id : driver) {
+            Entry entry = documents.get(id);
+            if (entry != null && matchesAll(entry.text(), terms) && passesFilters(entry.source(), criteria)) {
+                results.add(entry.source());
+            }
+        }
+
+        results.sort(comparator(sort));
+        return results.stream().map(ProductSearchSource::id).toList();
+    }
+
+    /**
+     * Ứng viên cho một từ: danh sách trigram ít sản phẩm nhất của từ đó, hoặc các từ có tiền tố này nếu từ quá ngắn.
+     */
+    private Collection<Long> candidates(String term) {
+        if (term.length() < GRAM) {
+            Set<Long> ids = new HashSet<>();
+            tokenPostings.subMap(term, true, term + Character.MAX_VALUE, false).values().forEach(ids::addAll);
+            return ids;
+        }
+
+        Set<Long> smallest = null;
+        for (String gram : grams(term)) {
+            Set<Long> ids = gramPostings.get(gram);
+            if (ids == null) return Set.of();
+            if (smallest == null || ids.size() < smallest.size()) smallest = ids;
+        }
+        return smallest;
+    }
+
+    /**
+     * Văn bản chỉ mục là các từ nối bằng một dấu cách, có dấu cách ở đầu: từ dài khớp ở bất kỳ vị trí nào,
+     * từ ngắn phải là đầu của một từ.
+     */
+    private static boolean matchesAll(String text, Set<String> terms) {
+        for (String term : terms) {
+            if (!text.contains(term.length() < GRAM ? " " + term : term)) return false;
+        }
+        return true;
+    }
+
+    private static boolean passesFilters(ProductSearchSource source, ProductCriteria criteria) {
+        if (criteria.categoryId() != null && !criteria.categoryId().equals(source.categoryId())) {
+            return false;
+        }
+        if (criteria.minPrice() != null && (source.price() == null || source.price().compareTo(criteria.minPrice()) < 0)) {
+            return false;
+        }
+        return criteria.maxPrice() == null || (source.price() != null && source.price().compareTo(criteria.maxPrice()) <= 0);
+    }
+
+    /**
+     * Sắp xếp theo các thuộc tính mà trang danh sách dùng (price, name, updatedAt), cuối cùng theo id.
+     */
+    private static Comparator<ProductSearchSource> comparator(Sort sort) {
+        Comparator<ProductSearchSource> result = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<ProductSearchSource> next = switch (order.getProperty()) {
+                case "price" -> Comparator.comparing(ProductSearchSource::price,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                case "name" -> Comparator.comparing(ProductSearchSource::name,
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+                case "updatedAt" -> Comparator.comparing(ProductSearchSource::updatedAt,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                default -> null;
+            };
+            if (next != null) {
+                result = result.thenComparing(order.isDescending() ? next.reversed() : next);
+            }
+        }
+        return result.thenComparing(ProductSearchSource::id);
+    }
+
+    /**
+     * Chữ thường, bỏ dấu tiếng Việt (kể cả đ → d).
+     */
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.replace('đ', 'd').replace('Đ', 'd'), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokens(String folded) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static List<String> grams(String token) {
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -2,24 +2,25 @@ package com.example.products.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification; 
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.example.products.dto.ProductCreateRequest;
 import com.example.products.dto.ProductCriteria;
+import com.example.products.dto.ProductSummary;
 import com.example.products.dto.ProductUpdateRequest;
 import com.example.products.entity.Category;
 import com.example.products.entity.Product;
 import com.example.products.repository.CategoryRepository;
 import com.example.products.repository.ProductRepository;
-import com.example.products.repository.ProductSpecification;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -32,11 +33,20 @@ public class ProductService {
 
     private final ProductRepository repo;
     private final CategoryRepository categoryRepository; 
-
-    @Transactional(readOnly = true)
-    public Page<Product> getAllProducts(ProductCriteria criteria, Pageable pageable) {
-        Specification<Product> spec = ProductSpecification.filterBy(criteria);
-
+    private final HotStockCounters hotStock;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggester suggester;
+    private final ReviewStatsAggregator reviewStats;
+    private final ProductLeaderboards leaderboards;
+    private final CategoryCatalog categoryCatalog;
+    private final ProductListingEngine listing;
+
+    /**
+     * Không mở transaction: đường đọc trong bộ nhớ không chạm DB, truy vấn dự phòng tự chạy trong transaction của repository.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Page<ProductSummary> getAllProducts(ProductCriteria criteria, Pageable pageable) {
         Sort sort = Sort.by("updatedAt").descending();
 
         if (StringUtils.hasText(criteria.sort())) {
@@ -54,23 +64,85 @@ public class ProductService {
         }
 
         Pageable sortedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-        return repo.findAll(spec, sortedPageable);
+
+        if (StringUtils.hasText(criteria.search()) && searchIndex.isReady()) {
+            // Tìm, lọc và phân trang trên chỉ mục; chỉ nạp các sản phẩm của trang hiện tại
+            List<Long> ids = searchIndex.search(criteria, sort);
+            int from = (int) Math.min(sortedPageable.getOffset(), ids.size());
+            int to = Math.min(from + sortedPageable.getPageSize(), ids.size());
+            List<ProductSummary> content = from == to ? List.of() : listing.summaries(ids.subList(from, to));
+            if (content == null) {
+                content = catalogCache.getAll(ids.subList(from, to), repo::findAllByIdIn).stream().map(ProductSummary::fromEntity).toList();
+            }
+            return new PageImpl<>(content, sortedPageable, ids.size());
+        }
+
+        if (!StringUtils.hasText(criteria.search())) {
+            // Lọc, sắp xếp, phân trang trên bản chụp trong bộ nhớ (khi bật app.catalog.listing.in-memory.enabled)
+            Page<ProductSummary> page = listing.page(criteria, sort, sortedPageable);
+            if (page != null) {
+                return page;
+            }
+        }
+
+        // Chỉ mục tìm kiếm chưa dựng xong, không có từ khoá tìm, hoặc chưa có bản chụp danh sách
+        String pattern = StringUtils.hasText(criteria.search()) ? "%" + criteria.search().toLowerCase().trim() + "%" : null;
+        return repo.findSummaries(pattern, criteria.categoryId(), criteria.minPrice(), criteria.maxPrice(), sortedPageable);
     }
 
+    /**
+     * Đọc qua {@link ProductCatalogCache}: kết quả là bản sao, sửa nó không cập nhật DB.
+     */
     @Transactional(readOnly = true)
     public Product getById(Long id) {
-        return repo.findById(id)
+        Product product = catalogCache.get(id, repo::findById)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm với ID: " + id));
+        // Thống kê đánh giá chưa flush (khi bật write-behind)
+        reviewStats.merge(product);
+        return product;
     }
 
     @Transactional(readOnly = true)
     public List<Product> getTop10() {
-        return repo.findTop10ByOrderByUpdatedAtDesc();
+        return catalogCache.getTop10(repo::findTop10ByOrderByUpdatedAtDesc);
     }
 
     @Transactional(readOnly = true)
     public List<Product> getBatch(List<Long> ids) {
-        return repo.findAllByIdIn(ids);
+        return catalogCache.getAll(ids, repo::findAllByIdIn);
+    }
+
+    /**
+     * Bảng xếp hạng phục vụ từ bộ nhớ, không truy vấn DB.
+     *
+     * @param by best_selling | top_rated | newest
+     * @param categoryId null: xếp hạng trên toàn bộ sản phẩm
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ProductSummary> getLeaderboard(String by, Long categoryId, int limit) {
+        return leaderboards.top(ProductLeaderboards.Ranking.fromParam(by), categoryId, limit);
+    }
+
+    /**
+     * Phiên bản trong bộ nhớ của danh sách/top 10 (ETag), kiểm tra được mà không truy vấn DB.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String catalogVersion() {
+        return catalogCache.versionTag();
+    }
+
+    /**
+     * Phiên bản trong bộ nhớ của một sản phẩm (ETag), kiểm tra được mà không truy vấn DB.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String version(Long id) {
+        return catalogCache.versionTag(id);
+    }
+
+    private Product findForUpdate(Long id, boolean lockStock) {
+        // Đổi tồn kho thì khoá dòng: flush bộ đếm hot và giữ hàng chạy đồng thời phải chờ admin commit
+        return (lockStock ? repo.findByIdForUpdate(id) : repo.findById(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm với ID: " + id));
     }
 
     public Product create(ProductCreateRequest req) {
@@ -92,11 +164,20 @@ public class ProductService {
                 .category(category) 
                 .build();
         
-        return repo.save(entity);
+        // Sản phẩm mới có thể vào top 10
+        catalogCache.evictAfterCommit(List.of());
+        Product saved = repo.save(entity);
+        searchIndex.indexAfterCommit(saved);
+        suggester.indexAfterCommit(saved);
+        leaderboards.indexAfterCommit(saved);
+        listing.indexAfterCommit(saved);
+        categoryCatalog.adjustCountAfterCommit(category.getId(), 1);
+        hotStock.trackAfterCommit(saved);
+        return saved;
     }
 
     public Product updatePartial(Long id, ProductUpdateRequest req) {
-        Product existing = getById(id);
+        Product existing = findForUpdate(id, req.stockQuantity() != null);
 
         if (req.name() != null && StringUtils.hasText(req.name())) {
             String newName = req.name().trim();
@@ -122,6 +203,8 @@ public class ProductService {
             if (req.stockQuantity() < 0) {
                  throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Số lượng tồn kho không thể âm");
             }
+            // Sản phẩm hot: bộ đếm trong bộ nhớ nhận phần chênh lệch admin vừa nhập
+            hotStock.addAfterCommit(id, req.stockQuantity() - existing.getStockQuantity());
             existing.setStockQuantity(req.stockQuantity());
         }
 
@@ -132,16 +215,34 @@ public class ProductService {
         if (req.categoryId() != null) {
             Category newCategory = categoryRepository.findById(req.categoryId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy danh mục mới với ID: " + req.categoryId()));
+            categoryCatalog.moveAfterCommit(existing.getCategory() != null ? existing.getCategory().getId() : null,
+                    newCategory.getId());
             existing.setCategory(newCategory);
         }
 
-        return repo.save(existing);
+        catalogCache.evictAfterCommit(List.of(id));
+        Product saved = repo.save(existing);
+        searchIndex.indexAfterCommit(saved);
+        suggester.indexAfterCommit(saved);
+        leaderboards.indexAfterCommit(saved);
+        listing.indexAfterCommit(saved);
+        if (req.categoryId() != null) {
+            // Chuyển vào/ra danh mục hot thì bắt đầu/ngừng đếm tồn kho trong bộ nhớ
+            hotStock.trackAfterCommit(saved);
+        }
+        return saved;
     }
 
     public void delete(Long id) {
-        if (!repo.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm với ID: " + id);
-        }
+        Long categoryId = repo.findCategoryIdById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm với ID: " + id));
         repo.deleteById(id);
+        categoryCatalog.adjustCountAfterCommit(categoryId, -1);
+        catalogCache.evictAfterCommit(List.of(id));
+        searchIndex.removeAfterCommit(id);
+        suggester.removeAfterCommit(id);
+        leaderboards.removeAfterCommit(id);
+        listing.removeAfterCommit(id);
+        hotStock.untrackAfterCommit(id);
     }
 }
\ No newline at end of file
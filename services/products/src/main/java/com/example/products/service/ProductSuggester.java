@@ -0,0 +1,200 @@
+package com.example.products.service;
+
+import com.example.products.dto.ProductSuggestion;
+import com.example.products.entity.Product;
+import com.example.products.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Gợi ý tên sản phẩm cho ô tìm kiếm, phục vụ hoàn toàn từ bộ nhớ (không truy vấn DB khi gợi ý).
+ * <ul>
+ *   <li>Mỗi sản phẩm có một khoá cho từng vị trí bắt đầu từ trong tên đã bỏ dấu
+ *       ("com tam suon", "tam suon", "suon"), lưu trong map đã sắp xếp; gợi ý là một lần duyệt khoảng tiền tố.</li>
+ *   <li>Xếp hạng theo số đã bán, rồi điểm đánh giá.</li>
+ *   <li>Top gợi ý của mỗi tiền tố đã gõ được nhớ lại (tiền tố ngắn khớp hàng nghìn sản phẩm), nên lượt gõ lặp lại
+ *       chỉ là một lần tra map. Ghi một sản phẩm chỉ xoá các tiền tố của tên cũ/mới của nó.</li>
+ * </ul>
+ * Cập nhật theo các lần ghi sản phẩm sau commit; số đã bán/điểm đánh giá được nạp lại định kỳ,
+ * các tiền tố đang nhớ được tính lại trên dữ liệu mới trước khi thay.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggester {
+
+    public static final int MAX_LIMIT = 10;
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final Comparator<ProductSuggestion> RANK = Comparator
+            .comparing((ProductSuggestion s) -> s.sold() != null ? s.sold() : 0, Comparator.reverseOrder())
+            .thenComparing(s -> s.averageRating() != null ? s.averageRating() : 0.0, Comparator.reverseOrder())
+            .thenComparing(ProductSuggestion::name, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(ProductSuggestion::id);
+
+    /**
+     * Khoá tiền tố → ID sản phẩm, và ID → gợi ý. Được thay nguyên khối khi dựng lại.
+     */
+    private static final class State {
+        final NavigableMap<String, Long> keys = new ConcurrentSkipListMap<>();
+        final Map<Long, ProductSuggestion> products = new ConcurrentHashMap<>();
+    }
+
+    private final ProductRepository productRepository;
+
+    @Value("${app.suggest.cache-size:10000}")
+    private long cacheSize = 10000;
+
+    private volatile State state = new State();
+    private Cache<String, List<ProductSuggestion>> topByPrefix;
+
+    @PostConstruct
+    public void init() {
+        this.topByPrefix = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.suggest.refresh-interval-ms:300000}",
+               fixedDelayString = "${app.suggest.refresh-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        State rebuilt = new State();
+        try (Stream<ProductSuggestion> suggestions = productRepository.streamSuggestions()) {
+            suggestions.forEach(suggestion -> add(rebuilt, suggestion));
+        }
+        state = rebuilt;
+        for (String prefix : List.copyOf(topByPrefix.asMap().keySet())) {
+            topByPrefix.put(prefix, top(rebuilt, prefix, MAX_LIMIT));
+        }
+        log.debug("Đã dựng bộ gợi ý tìm kiếm: {} sản phẩm, {} khoá", rebuilt.products.size(), rebuilt.keys.size());
+    }
+
+    /**
+     * @return Tối đa {@code limit} sản phẩm có một từ trong tên bắt đầu bằng {@code query}, xếp theo độ phổ biến
+     */
+    public List<ProductSuggestion> suggest(String query, int limit) {
+        String prefix = String.join(" ", ProductSearchIndex.tokens(ProductSearchIndex.fold(query)));
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        List<ProductSuggestion> top = topByPrefix.get(prefix, p -> top(state, p, MAX_LIMIT));
+        return top.subList(0, Math.min(size, top.size()));
+    }
+
+    public synchronized void index(ProductSuggestion suggestion) {
+        State current = state;
+        ProductSuggestion old = removeFrom(current, suggestion.id());
+        add(current, suggestion);
+        invalidatePrefixes(old);
+        invalidatePrefixes(suggestion);
+    }
+
+    public synchronized void remove(Long productId) {
+        invalidatePrefixes(removeFrom(state, productId));
+    }
+
+    public void indexAfterCommit(Product product) {
+        afterCommit(() -> index(new ProductSuggestion(product.getId(), product.getName(), product.getImage(),
+                product.getPrice(), product.getSold(), product.getAverageRating())));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        afterCommit(() -> remove(productId));
+    }
+
+    private static List<ProductSuggestion> top(State state, String prefix, int limit) {
+        // Heap giữ `limit` gợi ý tốt nhất, phần tử kém nhất ở đầu
+        PriorityQueue<ProductSuggestion> best = new PriorityQueue<>(limit + 1, RANK.reversed());
+        Set<Long> seen = new HashSet<>();
+        for (Long id : state.keys.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (!seen.add(id)) continue;
+            ProductSuggestion suggestion = state.products.get(id);
+            if (suggestion == null) continue;
+            best.add(suggestion);
+            if (best.size() > limit) best.poll();
+        }
+
+        List<ProductSuggestion> result = new ArrayList<>(best);
+        result.sort(RANK);
+        return List.copyOf(result);
+    }
+
+    private static void add(State state, ProductSuggestion suggestion) {
+        state.products.put(suggestion.id(), suggestion);
+        for (String key : keys(suggestion)) {
+            state.keys.put(key, suggestion.id());
+        }
+    }
+
+    private static ProductSuggestion removeFrom(State state, Long productId) {
+        ProductSuggestion old = state.products.remove(productId);
+        if (old != null) {
+            keys(old).forEach(state.keys::remove);
+        }
+        return old;
+    }
+
+    /**
+     * Xoá top đã nhớ của mọi tiền tố có thể khớp sản phẩm. Gọi sau khi đã sửa state: lượt tính đang chạy
+     * cho cùng tiền tố sẽ xong trước rồi mới bị xoá.
+     */
+    private void invalidatePrefixes(ProductSuggestion suggestion) {
+        if (suggestion == null) {
+            return;
+        }
+        for (String key : keys(suggestion)) {
+            String words = key.substring(0, key.indexOf(KEY_SEPARATOR));
+            for (int end = 1; end <= words.length(); end++) {
+                topByPrefix.invalidate(words.substring(0, end));
+            }
+        }
+    }
+
+    private static List<String> keys(ProductSuggestion suggestion) {
+        List<String> words = ProductSearchIndex.tokens(ProductSearchIndex.fold(suggestion.name()));
+        List<String> keys = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            keys.add(String.join(" ", words.subList(i, words.size())) + KEY_SEPARATOR + suggestion.id());
+        }
+        return keys;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,31 +1,61 @@
 package com.example.products.service;
 
 import com.example.products.dto.ReviewCreateRequest;
+import com.example.products.dto.RatingSummary;
 import com.example.products.dto.ReviewResponse;
 import com.example.products.entity.Product;
 import com.example.products.entity.Review;
+import com.example.products.repository.ProductRatingRepository;
 import com.example.products.repository.ProductRepository;
 import com.example.products.repository.ReviewRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
+@Slf4j
 @Transactional
 public class ReviewService {
 
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
+    private final ProductRatingRepository ratingRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ProductLeaderboards leaderboards;
+    private final ProductListingEngine listing;
+    private final ReviewStatsAggregator statsAggregator;
+
+    /**
+     * Tính lại thống kê đánh giá từ bảng reviews cho sản phẩm có số lượt lệch: dữ liệu từ trước khi có
+     * rating_sum/biểu đồ sao, hoặc phần cộng dồn chưa flush của {@link ReviewStatsAggregator} khi dừng đột ngột.
+     * Với write-behind, chỉ an toàn khi không còn instance nào khác giữ phần chưa flush (chart deploy bằng Recreate).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileRatingStats() {
+        int updated = ratingRepository.reconcileFromReviews();
+        if (updated > 0) {
+            catalogCache.evictAllAfterCommit();
+            log.info("Đã tính lại thống kê đánh giá cho {} sản phẩm từ bảng reviews", updated);
+        }
+    }
 
     public ReviewResponse createReview(String userId, ReviewCreateRequest req) {
-        // 1. Kiểm tra sản phẩm tồn tại
-        Product product = productRepository.findById(req.productId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm"));
+        // 1. Kiểm tra sản phẩm tồn tại (không cần nạp cả dòng sản phẩm)
+        if (!productRepository.existsById(req.productId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm");
+        }
+        Product product = productRepository.getReferenceById(req.productId());
 
         // 2. Kiểm tra xem user đã đánh giá sản phẩm này trong đơn hàng này chưa
         if (reviewRepository.existsByUserIdAndProductIdAndOrderId(userId, req.productId(), req.orderId())) {
@@ -44,12 +74,33 @@ public class ReviewService {
 
         review = reviewRepository.save(review);
 
-        // 4. Cập nhật thông tin thống kê cho Product (Average Rating & Review Count)
-        updateProductRatingStats(product, req.rating());
+        // 4. Cộng dồn thống kê đánh giá (tổng điểm, số lượt, biểu đồ sao): gom trong bộ nhớ rồi ghi theo lô
+        //    nếu bật write-behind, nếu không thì một câu UPDATE nguyên tử
+        if (statsAggregator.isEnabled()) {
+            statsAggregator.addAfterCommit(req.productId(), req.rating());
+        } else {
+            ratingRepository.add(req.productId(), req.rating());
+        }
+        catalogCache.evictAfterCommit(List.of(req.productId()));
+        leaderboards.addRatingAfterCommit(req.productId(), req.rating());
+        listing.addRatingAfterCommit(req.productId(), req.rating());
 
         return mapToResponse(review);
     }
 
+    /**
+     * Điểm trung bình, số lượt và biểu đồ sao của sản phẩm, đọc qua {@link ProductCatalogCache}.
+     */
+    @Transactional(readOnly = true)
+    public RatingSummary getRatingSummary(Long productId) {
+        return catalogCache.get(productId, productRepository::findById)
+                .map(product -> {
+                    statsAggregator.merge(product);
+                    return RatingSummary.fromEntity(product);
+                })
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm"));
+    }
+
     @Transactional(readOnly = true)
     public Page<ReviewResponse> getReviewsByProduct(Long productId, Pageable pageable) {
         if (!productRepository.existsById(productId)) {
@@ -59,19 +110,12 @@ public class ReviewService {
                 .map(this::mapToResponse);
     }
 
-    // Logic tính toán lại điểm trung bình
-    private void updateProductRatingStats(Product product, Integer newRating) {
-        double currentTotalRating = product.getAverageRating() * product.getReviewCount();
-        int newCount = product.getReviewCount() + 1;
-        double newAverage = (currentTotalRating + newRating) / newCount;
-
-        // Làm tròn 1 chữ số thập phân (4.56 -> 4.6)
-        newAverage = Math.round(newAverage * 10.0) / 10.0;
-
-        product.setReviewCount(newCount);
-        product.setAverageRating(newAverage);
-        
-        productRepository.save(product);
+    /**
+     * Phiên bản đánh giá của sản phẩm (ETag): mỗi đánh giá mới cập nhật điểm của sản phẩm nên dùng phiên bản sản phẩm.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String reviewsVersion(Long productId) {
+        return catalogCache.versionTag(productId);
     }
 
     private ReviewResponse mapToResponse(Review review) {
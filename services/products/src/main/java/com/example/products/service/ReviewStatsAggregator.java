@@ -0,0 +1,189 @@
+package com.example.products.service;
+
+import com.example.products.entity.Product;
+import com.example.products.repository.ProductRatingRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gom thống kê đánh giá (tổng điểm, số lượt, biểu đồ sao) trong bộ nhớ rồi ghi vào {@code products} theo lô,
+ * bật bằng {@code app.reviews.write-behind.enabled}.
+ * <ul>
+ *   <li>Mỗi sản phẩm có 5 {@link LongAdder} (một cho mỗi mức sao): nhiều đánh giá đồng thời cộng vào các ô khác nhau,
+ *       không tranh nhau dòng {@code products} hay một biến đếm chung. Tổng điểm và số lượt suy ra từ 5 bộ đếm
+ *       nên luôn khớp nhau trong mỗi lô.</li>
+ *   <li>{@link #flush()} lấy phần chờ bằng {@link LongAdder#sumThenReset()} (từng ô được đổi nguyên tử):
+ *       lượt cộng xen giữa thuộc lô này hoặc lô sau, không bị mất. Ghi lỗi thì cộng trả lại.</li>
+ *   <li>Đọc ({@link #merge(Product)}) cộng phần chờ vào giá trị đã lưu.</li>
+ *   <li>Dừng ứng dụng: flush lần cuối. Dừng đột ngột: phần chưa flush được tính lại từ bảng {@code reviews}
+ *       khi khởi động ({@link ReviewService#reconcileRatingStats()}).</li>
+ * </ul>
+ * Bộ đếm chỉ đúng khi mọi đánh giá đi qua cùng một instance: chart products ép 1 replica và chiến lược
+ * deploy {@code Recreate} khi bật {@code REVIEW_WRITE_BEHIND_ENABLED}, để Pod cũ flush xong trước khi Pod mới
+ * tính lại từ bảng {@code reviews} (nếu không, phần Pod cũ flush khi dừng bị cộng trùng).
+ */
+@Component
+@Slf4j
+public class ReviewStatsAggregator {
+
+    private final ProductRatingRepository ratingRepository;
+    private final ProductCatalogCache catalogCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, LongAdder[]> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.reviews.write-behind.enabled:false}")
+    private boolean enabled = false;
+
+    public ReviewStatsAggregator(ProductRatingRepository ratingRepository,
+                                 ProductCatalogCache catalogCache,
+                                 PlatformTransactionManager transactionManager) {
+        this.ratingRepository = ratingRepository;
+        this.catalogCache = catalogCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ghi nhận một đánh giá {@code stars} sao sau khi transaction hiện tại commit (đánh giá bị rollback không được tính).
+     * Người gọi vẫn gọi {@link ProductCatalogCache#evictAfterCommit} để phiên bản ETag của sản phẩm đổi.
+     */
+    public void addAfterCommit(Long productId, int stars) {
+        if (stars < 1 || stars > 5) {
+            throw new IllegalArgumentException("Số sao phải từ 1 đến 5: " + stars);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(productId, stars);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(productId, stars);
+            }
+        });
+    }
+
+    private void add(Long productId, int stars) {
+        pending.computeIfAbsent(productId, id -> newCounters())[stars - 1].increment();
+    }
+
+    /**
+     * Cộng phần chưa flush vào thống kê đánh giá của {@code product} (bản sao từ cache, sửa trực tiếp).
+     */
+    public void merge(Product product) {
+        long[] stars = product.getId() != null ? pending(product.getId()) : null;
+        if (stars == null) {
+            return;
+        }
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < 5; i++) {
+            sum += stars[i] * (i + 1);
+            count += stars[i];
+        }
+        if (count == 0) {
+            return;
+        }
+
+        product.setRating1(product.getRating1() + (int) stars[0]);
+        product.setRating2(product.getRating2() + (int) stars[1]);
+        product.setRating3(product.getRating3() + (int) stars[2]);
+        product.setRating4(product.getRating4() + (int) stars[3]);
+        product.setRating5(product.getRating5() + (int) stars[4]);
+        product.setRatingSum(product.getRatingSum() + sum);
+        int reviewCount = (product.getReviewCount() != null ? product.getReviewCount() : 0) + (int) count;
+        product.setReviewCount(reviewCount);
+        product.setAverageRating(average(product.getRatingSum(), reviewCount));
+    }
+
+    /**
+     * @return Số đánh giá chưa flush theo mức sao (phần tử 0 là 1 sao), hoặc null nếu không có
+     */
+    public long[] pending(Long productId) {
+        LongAdder[] counters = pending.get(productId);
+        if (counters == null) {
+            return null;
+        }
+        long[] stars = new long[5];
+        for (int i = 0; i < 5; i++) stars[i] = counters[i].sum();
+        return stars;
+    }
+
+    /**
+     * Điểm trung bình làm tròn 1 chữ số, cùng công thức với {@code @Formula} của {@link Product#getAverageRating()}.
+     */
+    public static double average(long ratingSum, int reviewCount) {
+        return reviewCount > 0 ? Math.round(ratingSum * 10.0 / reviewCount) / 10.0 : 0.0;
+    }
+
+    /**
+     * Ghi phần chờ của mọi sản phẩm vào DB trong một lô UPDATE.
+     *
+     * @return Số sản phẩm được cập nhật
+     */
+    @Scheduled(fixedDelayString = "${app.reviews.write-behind.flush-interval-ms:1000}")
+    public int flush() {
+        Map<Long, long[]> batch = new TreeMap<>(); // Theo productId tăng dần: khoá dòng cùng thứ tự
+        pending.forEach((productId, counters) -> {
+            long[] stars = new long[5];
+            boolean any = false;
+            for (int i = 0; i < 5; i++) {
+                stars[i] = counters[i].sumThenReset();
+                any |= stars[i] != 0;
+            }
+            if (any) {
+                batch.put(productId, stars);
+            }
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ratingRepository.addAll(batch);
+                catalogCache.evictAfterCommit(batch.keySet());
+            });
+        } catch (RuntimeException e) {
+            // Trả lại phần đã lấy để lô sau ghi tiếp
+            batch.forEach((productId, stars) -> {
+                LongAdder[] counters = pending.computeIfAbsent(productId, id -> newCounters());
+                for (int i = 0; i < 5; i++) counters[i].add(stars[i]);
+            });
+            log.warn("Flush thống kê đánh giá thất bại, sẽ thử lại ở lượt sau: {}", e.getMessage());
+            return 0;
+        }
+        log.debug("Đã flush thống kê đánh giá của {} sản phẩm", batch.size());
+        return batch.size();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        int flushed = flush();
+        if (flushed > 0) {
+            log.info("Đã flush thống kê đánh giá của {} sản phẩm trước khi dừng", flushed);
+        }
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[5];
+        for (int i = 0; i < 5; i++) counters[i] = new LongAdder();
+        return counters;
+    }
+}
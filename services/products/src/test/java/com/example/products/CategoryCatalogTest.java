@@ -0,0 +1,159 @@
+package com.example.products;
+
+import com.example.products.dto.CategoryDto;
+import com.example.products.repository.CategoryRepository;
+import com.example.products.service.CategoryCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CategoryCatalog Tests")
+class CategoryCatalogTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    private CategoryCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new CategoryCatalog(categoryRepository, new ObjectMapper());
+    }
+
+    private static List<CategoryDto> categories(long rice, long drinks) {
+        return List.of(new CategoryDto(1L, "Cơm", null, null, rice), new CategoryDto(2L, "Đồ uống", null, null, drinks));
+    }
+
+    private List<Long> counts() {
+        return catalog.get().categories().stream().map(CategoryDto::productCount).toList();
+    }
+
+    @Test
+    @DisplayName("get: Nạp một lần, các lượt sau trả cùng JSON đã serialize và cùng ETag")
+    void testGet_LoadsOnceAndServesSerializedJson() {
+        when(categoryRepository.findAllWithProductCount()).thenReturn(categories(3, 1));
+
+        CategoryCatalog.Snapshot first = catalog.get();
+        CategoryCatalog.Snapshot second = catalog.get();
+
+        verify(categoryRepository, times(1)).findAllWithProductCount();
+        assertThat(second).isSameAs(first);
+        assertThat(new String(first.json(), StandardCharsets.UTF_8))
+                .contains("\"name\":\"Cơm\"").contains("\"productCount\":3");
+    }
+
+    @Test
+    @DisplayName("adjust/move: Số sản phẩm đổi ngay, ETag đổi, không truy vấn lại")
+    void testAdjustAndMove_UpdateCountsWithoutReloading() {
+        when(categoryRepository.findAllWithProductCount()).thenReturn(categories(3, 1));
+        String etag = catalog.get().etag();
+
+        catalog.adjustCountAfterCommit(1L, 1);
+        assertThat(counts()).containsExactly(4L, 1L);
+
+        catalog.moveAfterCommit(1L, 2L);
+        catalog.moveAfterCommit(2L, 2L);
+        catalog.adjustCountAfterCommit(2L, -1);
+        assertThat(counts()).containsExactly(3L, 1L);
+
+        assertThat(catalog.get().etag()).isNotEqualTo(etag);
+        assertThat(new String(catalog.get().json(), StandardCharsets.UTF_8)).contains("\"productCount\":3");
+        verify(categoryRepository, times(1)).findAllWithProductCount();
+    }
+
+    @Test
+    @DisplayName("invalidate: Ghi danh mục làm lượt đọc sau nạp lại từ DB")
+    void testInvalidate_Reloads() {
+        when(categoryRepository.findAllWithProductCount()).thenReturn(categories(3, 1), categories(3, 0));
+        String etag = catalog.get().etag();
+
+        catalog.invalidateAfterCommit();
+
+        assertThat(counts()).containsExactly(3L, 0L);
+        assertThat(catalog.get().etag()).isNotEqualTo(etag);
+        verify(categoryRepository, times(2)).findAllWithProductCount();
+    }
+
+    @Test
+    @DisplayName("get: Dữ liệu nạp trong lúc có thay đổi không được giữ lại")
+    void testGet_ChangeDuringLoad_NotKept() {
+        when(categoryRepository.findAllWithProductCount())
+                .thenAnswer(invocation -> {
+                    // Một sản phẩm mới commit trong khi lượt đọc này đang truy vấn DB
+                    catalog.adjustCountAfterCommit(1L, 1);
+                    return categories(3, 1);
+                })
+                .thenReturn(categories(4, 1));
+
+        catalog.get();
+
+        assertThat(counts()).containsExactly(4L, 1L);
+        verify(categoryRepository, times(2)).findAllWithProductCount();
+    }
+
+    @Test
+    @DisplayName("get: Lượt nạp giữa lúc DB commit và lúc cộng số sản phẩm không bị cộng hai lần")
+    void testGet_LoadBetweenDbCommitAndAdjust_NotDoubleCounted() {
+        List<TransactionSynchronization> synchronizations;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            catalog.adjustCountAfterCommit(1L, 1);
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        synchronizations.forEach(sync -> sync.beforeCommit(false));
+        // DB đã commit sản phẩm mới, afterCommit chưa chạy
+        when(categoryRepository.findAllWithProductCount()).thenReturn(categories(4, 1));
+        assertThat(counts()).containsExactly(4L, 1L);
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(counts()).containsExactly(4L, 1L);
+    }
+
+    @Test
+    @DisplayName("get: Bản chụp hết hạn sau TTL thì nạp lại từ DB")
+    void testGet_ExpiresAfterTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(catalog, "ttlMs", 100L);
+        when(categoryRepository.findAllWithProductCount()).thenReturn(categories(3, 1), categories(5, 1));
+
+        assertThat(counts()).containsExactly(3L, 1L);
+        Thread.sleep(250);
+
+        assertThat(counts()).containsExactly(5L, 1L);
+        verify(categoryRepository, times(2)).findAllWithProductCount();
+    }
+
+    @Test
+    @DisplayName("get: Lượt nạp lại sau TTL đổi ETag dù không có lượt ghi nào qua instance này")
+    void testGet_ReloadAfterTtl_ChangesEtag() throws InterruptedException {
+        ReflectionTestUtils.setField(catalog, "ttlMs", 100L);
+        // Số sản phẩm đổi qua replica khác: version trong bộ nhớ của instance này không tăng
+        when(categoryRepository.findAllWithProductCount()).thenReturn(categories(3, 1), categories(5, 1));
+        String etag = catalog.get().etag();
+        Thread.sleep(250);
+
+        CategoryCatalog.Snapshot reloaded = catalog.get();
+
+        assertThat(reloaded.categories()).extracting(CategoryDto::productCount).containsExactly(5L, 1L);
+        assertThat(reloaded.etag()).isNotEqualTo(etag);
+    }
+}
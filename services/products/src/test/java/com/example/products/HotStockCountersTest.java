@@ -0,0 +1,336 @@
+package com.example.products;
+
+import com.example.products.dto.ProductCreateRequest;
+import com.example.products.dto.ProductUpdateRequest;
+import com.example.products.dto.StockReservationRequest;
+import com.example.products.dto.StockReservationResult;
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.example.products.entity.ReservationStatus;
+import com.example.products.entity.StockReservation;
+import com.example.products.repository.CategoryRepository;
+import com.example.products.repository.ProductRepository;
+import com.example.products.repository.ProductRatingRepository;
+import com.example.products.repository.ProductStockRepository;
+import com.example.products.repository.StockReservationRepository;
+import com.example.products.service.CategoryCatalog;
+import com.example.products.service.HotStockCounters;
+import com.example.products.service.InventoryService;
+import com.example.products.service.ProductCatalogCache;
+import com.example.products.service.ProductLeaderboards;
+import com.example.products.service.ProductListingEngine;
+import com.example.products.service.ProductSearchIndex;
+import com.example.products.service.ProductService;
+import com.example.products.service.ProductSuggester;
+import com.example.products.service.ReviewStatsAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bộ đếm tồn kho hot: giữ hàng trên bộ nhớ, flush vào stock_quantity theo lô, đối chiếu lại khi khởi động.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Mỗi lần giữ hàng commit riêng như request thật
+@Import({InventoryService.class, HotStockCounters.class, ProductCatalogCache.class, ProductLeaderboards.class,
+        ProductListingEngine.class, ReviewStatsAggregator.class, ProductRatingRepository.class, ProductStockRepository.class,
+        ProductService.class})
+@TestPropertySource(properties = {
+        "app.inventory.hot-stock.enabled=true",
+        "app.inventory.hot-stock.category-names=Món Hot",
+        // Test tự gọi flush() để kiểm tra trạng thái trước/sau flush
+        "app.inventory.hot-stock.flush-interval-ms=3600000"
+})
+@DisplayName("HotStockCounters Tests")
+class HotStockCountersTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private ProductSearchIndex searchIndex;
+    @MockBean
+    private ProductSuggester suggester;
+    @MockBean
+    private CategoryCatalog categoryCatalog;
+    @Autowired
+    private HotStockCounters hotStock;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    private Category hotCategory;
+    private Category normalCategory;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        hotCategory = categoryRepository.save(Category.builder().name("Món Hot").build());
+        normalCategory = categoryRepository.save(Category.builder().name("Cơm").build());
+    }
+
+    private Product product(String name, int stock, Category category) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("50000.00"))
+                .stockQuantity(stock)
+                .category(category)
+                .build());
+    }
+
+    private static StockReservationRequest request(long orderId, Object... productAndQuantity) {
+        List<StockReservationRequest.Item> items = new ArrayList<>();
+        for (int i = 0; i < productAndQuantity.length; i += 2) {
+            items.add(new StockReservationRequest.Item((Long) productAndQuantity[i], (Integer) productAndQuantity[i + 1]));
+        }
+        return new StockReservationRequest(orderId, items);
+    }
+
+    private Product reload(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("reserve: Sản phẩm hot trừ bộ đếm ngay, stock_quantity chỉ giảm khi flush")
+    void testReserveHot_AppliedOnFlush() {
+        Product hot = product("Gà Rán Flash Sale", 10, hotCategory);
+        hotStock.reconcile();
+
+        StockReservationResult result = inventoryService.reserve(request(1L, hot.getId(), 3));
+
+        assertThat(result.success()).isTrue();
+        assertThat(hotStock.available(hot.getId())).isEqualTo(7);
+        assertThat(reload(hot).getStockQuantity()).isEqualTo(10);
+        assertThat(reservationRepository.findAll()).extracting(StockReservation::isStockApplied).containsExactly(false);
+
+        assertThat(hotStock.flush()).isEqualTo(1);
+        assertThat(reload(hot).getStockQuantity()).isEqualTo(7);
+        assertThat(reload(hot).getSold()).isEqualTo(3);
+        assertThat(hotStock.flush()).isZero();
+    }
+
+    @Test
+    @DisplayName("release: Trước flush chỉ cộng lại bộ đếm, sau flush trả lại cả stock_quantity")
+    void testReleaseHot_BeforeAndAfterFlush() {
+        Product hot = product("Gà Rán Flash Sale", 10, hotCategory);
+        hotStock.reconcile();
+        inventoryService.reserve(request(1L, hot.getId(), 2));
+        inventoryService.reserve(request(2L, hot.getId(), 3));
+
+        assertThat(inventoryService.release(1L).status()).isEqualTo(ReservationStatus.RELEASED);
+        assertThat(hotStock.available(hot.getId())).isEqualTo(7);
+
+        hotStock.flush();
+        assertThat(reload(hot).getStockQuantity()).isEqualTo(7);
+
+        inventoryService.release(2L);
+        assertThat(hotStock.available(hot.getId())).isEqualTo(10);
+        assertThat(reload(hot).getStockQuantity()).isEqualTo(10);
+        assertThat(reload(hot).getSold()).isZero();
+    }
+
+    @Test
+    @DisplayName("reserve: Đơn lẫn hàng hot và hàng thường thiếu hàng thì bộ đếm được cộng lại khi rollback")
+    void testReserveMixed_FailureRestoresCounter() {
+        Product hot = product("Gà Rán Flash Sale", 10, hotCategory);
+        Product rice = product("Cơm Tấm", 1, normalCategory);
+        hotStock.reconcile();
+
+        StockReservationResult result = inventoryService.reserve(request(1L, hot.getId(), 4, rice.getId(), 2));
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.lines()).extracting(StockReservationResult.Line::success).containsExactly(true, false);
+        assertThat(hotStock.available(hot.getId())).isEqualTo(10);
+        assertThat(reload(rice).getStockQuantity()).isEqualTo(1);
+        assertThat(reservationRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("reconcile: Dòng giữ hàng chưa flush trước khi crash được áp khi khởi động lại")
+    void testReconcile_AppliesPendingReservationsAfterCrash() {
+        Product hot = product("Gà Rán Flash Sale", 10, hotCategory);
+        // Dòng đã commit nhưng process chết trước lần flush
+        reservationRepository.save(StockReservation.builder()
+                .orderId(1L).productId(hot.getId()).quantity(4)
+                .status(ReservationStatus.RESERVED).stockApplied(false).build());
+
+        hotStock.reconcile();
+
+        assertThat(reload(hot).getStockQuantity()).isEqualTo(6);
+        assertThat(hotStock.available(hot.getId())).isEqualTo(6);
+        assertThat(reservationRepository.findAll()).extracting(StockReservation::isStockApplied).containsExactly(true);
+    }
+
+    @Test
+    @DisplayName("updatePartial: Admin đặt tồn kho khoá dòng, flush đồng thời không bị ghi đè")
+    void testAdminStockUpdate_DoesNotOverwriteConcurrentFlush() throws Exception {
+        Product hot = product("Gà Rán Flash Sale", 10, hotCategory);
+        hotStock.reconcile();
+        inventoryService.reserve(request(1L, hot.getId(), 3));
+
+        CountDownLatch locked = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<Integer> flush = executor.submit(() -> {
+                locked.await();
+                return hotStock.flush();
+            });
+
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                productService.updatePartial(hot.getId(), new ProductUpdateRequest(null, null, null, 12, null, null));
+                locked.countDown();
+                // Giữ khoá một lúc để flush chắc chắn phải chờ admin commit
+                sleep(300);
+            });
+
+            assertThat(flush.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+
+        // Admin nhập thêm 2 (10 -> 12), 3 suất đã giữ được trừ sau đó: DB và bộ đếm cùng còn 9
+        assertThat(reload(hot).getStockQuantity()).isEqualTo(9);
+        assertThat(hotStock.available(hot.getId())).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("create/updatePartial: Sản phẩm vào hoặc rời danh mục hot thì bắt đầu hoặc ngừng được đếm")
+    void testTrackAfterCommit_FollowsCategory() {
+        hotStock.reconcile();
+
+        Product created = productService.create(new ProductCreateRequest(
+                "Gà Rán Mới", null, new BigDecimal("50000.00"), 8, null, hotCategory.getId()));
+        assertThat(hotStock.isTracked(created.getId())).isTrue();
+        assertThat(hotStock.available(created.getId())).isEqualTo(8);
+
+        productService.updatePartial(created.getId(), new ProductUpdateRequest(null, null, null, null, null, normalCategory.getId()));
+        assertThat(hotStock.isTracked(created.getId())).isFalse();
+
+        Product rice = productService.create(new ProductCreateRequest(
+                "Cơm Gà", null, new BigDecimal("40000.00"), 5, null, normalCategory.getId()));
+        assertThat(hotStock.isTracked(rice.getId())).isFalse();
+        inventoryService.reserve(request(1L, rice.getId(), 2));
+
+        productService.updatePartial(rice.getId(), new ProductUpdateRequest(null, null, null, null, null, hotCategory.getId()));
+        // Bộ đếm lấy tồn kho sau commit, đã trừ phần giữ hàng bằng UPDATE trước đó
+        assertThat(hotStock.available(rice.getId())).isEqualTo(3);
+
+        productService.delete(rice.getId());
+        assertThat(hotStock.isTracked(rice.getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("tryReserve: Sản phẩm vừa ngừng được đếm trả về false thay vì NPE")
+    void testTryReserve_UntrackedProduct_ReturnsFalse() {
+        Product rice = product("Cơm Tấm", 5, normalCategory);
+        hotStock.reconcile();
+
+        assertThat(hotStock.isTracked(rice.getId())).isFalse();
+        assertThat(hotStock.tryReserve(rice.getId(), 1)).isFalse();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("Tranh chấp: 200 checkout đồng thời, bộ đếm trong bộ nhớ so với UPDATE có điều kiện, không bán vượt")
+    void testContention_CountersVersusSql() throws Exception {
+        int stock = 50;
+        int checkouts = 200;
+        Product hot = product("Gà Rán Flash Sale", stock, hotCategory);
+        Product sql = product("Cơm Gà Flash Sale", stock, normalCategory);
+        hotStock.reconcile();
+
+        assertThat(runCheckouts(sql, 1000L, checkouts)).isEqualTo(stock);
+        assertThat(runCheckouts(hot, 2000L, checkouts)).isEqualTo(stock);
+
+        assertThat(hotStock.available(hot.getId())).isZero();
+        hotStock.flush();
+        assertThat(reload(hot).getStockQuantity()).isZero();
+        assertThat(reload(hot).getSold()).isEqualTo(stock);
+        assertThat(reload(sql).getStockQuantity()).isZero();
+        assertThat(reservationRepository.count()).isEqualTo(2L * stock);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark tranh chấp: 2000 checkout đồng thời, checkout/s của bộ đếm trong bộ nhớ so với UPDATE có điều kiện")
+    void testBenchmark_CountersVersusSql() throws Exception {
+        int stock = 500;
+        int checkouts = 2_000;
+        Product hot = product("Gà Rán Flash Sale", stock, hotCategory);
+        Product sql = product("Cơm Gà Flash Sale", stock, normalCategory);
+        Product warmup = product("Cơm Gà Khởi Động", 50, normalCategory);
+        hotStock.reconcile();
+        // Khởi động JIT và pool kết nối trước khi đo
+        runCheckouts(warmup, 1L, 200);
+
+        long begin = System.nanoTime();
+        int sqlSucceeded = runCheckouts(sql, 10_000L, checkouts);
+        long sqlMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        begin = System.nanoTime();
+        int hotSucceeded = runCheckouts(hot, 20_000L, checkouts);
+        long hotMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        System.out.printf("Tranh chấp %d checkout: %.0f checkout/s (UPDATE có điều kiện) so với %.0f checkout/s (bộ đếm)%n",
+                checkouts, checkouts * 1000.0 / Math.max(sqlMs, 1), checkouts * 1000.0 / Math.max(hotMs, 1));
+
+        assertThat(sqlSucceeded).isEqualTo(stock);
+        assertThat(hotSucceeded).isEqualTo(stock);
+        hotStock.flush();
+        assertThat(reload(hot).getStockQuantity()).isZero();
+        assertThat(reload(sql).getStockQuantity()).isZero();
+    }
+
+    private int runCheckouts(Product product, long firstOrderId, int checkouts) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<StockReservationResult>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+            for (int i = 0; i < checkouts; i++) {
+                long orderId = firstOrderId + i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return inventoryService.reserve(request(orderId, product.getId(), 1));
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<StockReservationResult> result : results) {
+                if (result.get(30, TimeUnit.SECONDS).success()) succeeded++;
+            }
+            return succeeded;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.products;
+
+import com.example.products.dto.StockReservationRequest;
+import com.example.products.dto.StockReservationResult;
+import com.example.products.entity.ReservationStatus;
+import com.example.products.service.InventoryService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration Test cho phân quyền các endpoint giữ/trả/chốt hàng (/api/inventory/** và route nội bộ cho Orders Service).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "app.jwt.secret-key=" + InventorySecurityTest.SECRET,
+        "app.jwt.expiration-ms=3600000"
+})
+@DisplayName("Inventory Security Tests")
+class InventorySecurityTest {
+
+    static final String SECRET = "dGVzdC1zZWNyZXQta2V5LWZvci1wcm9kdWN0cy1zZXJ2aWNlLWludmVudG9yeS1zZWN1cml0eQ==";
+
+    private static final String RESERVE_BODY = "{\"orderId\":1,\"items\":[{\"productId\":1,\"quantity\":1}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private InventoryService inventoryService;
+
+    private static String bearer(String role) {
+        String token = Jwts.builder()
+                .subject(role.toLowerCase() + "@example.com")
+                .claim("roles", List.of(role))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+        return "Bearer " + token;
+    }
+
+    @Test
+    @DisplayName("POST /api/inventory/reservations: 401 khi không có Token")
+    void testReserve_WithoutToken_ShouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(post("/api/inventory/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(RESERVE_BODY))
+                .andExpect(status().isUnauthorized());
+
+        verify(inventoryService, never()).reserve(any());
+    }
+
+    @Test
+    @DisplayName("Khách hàng (ROLE_CUSTOMER) bị chặn 403 ở cả giữ, trả và chốt hàng")
+    void testInventoryEndpoints_WithCustomerToken_ShouldReturnForbidden() throws Exception {
+        String customer = bearer("ROLE_CUSTOMER");
+
+        mockMvc.perform(post("/api/inventory/reservations")
+                        .header("Authorization", customer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(RESERVE_BODY))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/inventory/reservations/1/release")
+                        .header("Authorization", customer))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/inventory/reservations/1/commit")
+                        .header("Authorization", customer))
+                .andExpect(status().isForbidden());
+
+        verify(inventoryService, never()).reserve(any());
+        verify(inventoryService, never()).release(any());
+        verify(inventoryService, never()).commit(any());
+    }
+
+    @Test
+    @DisplayName("Admin (ROLE_ADMIN) được phép giữ hàng")
+    void testReserve_WithAdminToken_ShouldReturnOk() throws Exception {
+        when(inventoryService.reserve(any(StockReservationRequest.class)))
+                .thenReturn(new StockReservationResult(1L, true, ReservationStatus.RESERVED, List.of()));
+
+        mockMvc.perform(post("/api/inventory/reservations")
+                        .header("Authorization", bearer("ROLE_ADMIN"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(RESERVE_BODY))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Route nội bộ /api/internal/inventory/**: Orders Service giữ, trả và chốt hàng không cần Token")
+    void testInternalRoute_WithoutToken_ShouldReturnOk() throws Exception {
+        StockReservationResult reserved = new StockReservationResult(1L, true, ReservationStatus.RESERVED, List.of());
+        when(inventoryService.reserve(any(StockReservationRequest.class))).thenReturn(reserved);
+        when(inventoryService.release(1L))
+                .thenReturn(new StockReservationResult(1L, true, ReservationStatus.RELEASED, List.of()));
+        when(inventoryService.commit(1L))
+                .thenReturn(new StockReservationResult(1L, true, ReservationStatus.COMMITTED, List.of()));
+
+        mockMvc.perform(post("/api/internal/inventory/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(RESERVE_BODY))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/internal/inventory/reservations/1/release"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/internal/inventory/reservations/1/commit"))
+                .andExpect(status().isOk());
+
+        verify(inventoryService).reserve(any(StockReservationRequest.class));
+        verify(inventoryService).release(1L);
+        verify(inventoryService).commit(1L);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.products;
+
+import com.example.products.dto.StockReservationRequest;
+import com.example.products.dto.StockReservationResult;
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.example.products.entity.ReservationStatus;
+import com.example.products.repository.CategoryRepository;
+import com.example.products.repository.ProductRepository;
+import com.example.products.repository.ProductRatingRepository;
+import com.example.products.repository.ProductStockRepository;
+import com.example.products.repository.StockReservationRepository;
+import com.example.products.service.HotStockCounters;
+import com.example.products.service.InventoryService;
+import com.example.products.service.ProductCatalogCache;
+import com.example.products.service.ProductLeaderboards;
+import com.example.products.service.ProductListingEngine;
+import com.example.products.service.ReviewStatsAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Giữ hàng bằng UPDATE có điều kiện: không bán vượt tồn kho kể cả khi nhiều checkout tranh cùng một sản phẩm.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Mỗi lần giữ hàng commit riêng như request thật
+@Import({InventoryService.class, HotStockCounters.class, ProductCatalogCache.class, ProductLeaderboards.class,
+        ProductListingEngine.class, ReviewStatsAggregator.class, ProductRatingRepository.class, ProductStockRepository.class})
+@DisplayName("InventoryService Tests")
+class InventoryServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        category = categoryRepository.save(Category.builder().name("Cơm").build());
+    }
+
+    private Product product(String name, int stock) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("50000.00"))
+                .stockQuantity(stock)
+                .category(category)
+                .build());
+    }
+
+    private static StockReservationRequest request(long orderId, Object... productAndQuantity) {
+        List<StockReservationRequest.Item> items = new ArrayList<>();
+        for (int i = 0; i < productAndQuantity.length; i += 2) {
+            items.add(new StockReservationRequest.Item((Long) productAndQuantity[i], (Integer) productAndQuantity[i + 1]));
+        }
+        return new StockReservationRequest(orderId, items);
+    }
+
+    private Product reload(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("reserve: Trừ tồn kho và tăng số đã bán trong cùng câu lệnh")
+    void testReserve_DecrementsStockAndIncrementsSold() {
+        Product rice = product("Cơm Tấm", 10);
+        Product tea = product("Trà Đá", 5);
+
+        StockReservationResult result = inventoryService.reserve(request(1L, rice.getId(), 3, tea.getId(), 2));
+
+        assertThat(result.success()).isTrue();
+        assertThat(result.status()).isEqualTo(ReservationStatus.RESERVED);
+        assertThat(reload(rice).getStockQuantity()).isEqualTo(7);
+        assertThat(reload(rice).getSold()).isEqualTo(3);
+        assertThat(reload(tea).getStockQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("reserve: Một dòng thiếu hàng thì không dòng nào bị trừ, trả kết quả từng dòng")
+    void testReserve_InsufficientStock_AllOrNothing() {
+        Product rice = product("Cơm Tấm", 10);
+        Product tea = product("Trà Đá", 1);
+
+        StockReservationResult result = inventoryService.reserve(request(1L, rice.getId(), 3, tea.getId(), 2));
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.lines()).extracting(StockReservationResult.Line::success).containsExactly(true, false);
+        assertThat(result.lines().get(1).error()).contains("còn 1");
+        assertThat(reload(rice).getStockQuantity()).isEqualTo(10);
+        assertThat(reload(rice).getSold()).isZero();
+        assertThat(reservationRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("reserve: Gửi lại cùng orderId không trừ thêm; dòng trùng sản phẩm được gộp")
+    void testReserve_SameOrderTwice_Idempotent() {
+        Product rice = product("Cơm Tấm", 10);
+
+        inventoryService.reserve(request(1L, rice.getId(), 2, rice.getId(), 1));
+        StockReservationResult again = inventoryService.reserve(request(1L, rice.getId(), 3));
+
+        assertThat(again.success()).isTrue();
+        assertThat(again.lines()).hasSize(1);
+        assertThat(again.lines().get(0).quantity()).isEqualTo(3);
+        assertThat(reload(rice).getStockQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("release: Trả lại tồn kho đúng một lần; đơn đã commit không release được")
+    void testReleaseAndCommit() {
+        Product rice = product("Cơm Tấm", 10);
+        inventoryService.reserve(request(1L, rice.getId(), 4));
+        inventoryService.reserve(request(2L, rice.getId(), 1));
+
+        assertThat(inventoryService.release(1L).status()).isEqualTo(ReservationStatus.RELEASED);
+        inventoryService.release(1L);
+        assertThat(reload(rice).getStockQuantity()).isEqualTo(9);
+        assertThat(reload(rice).getSold()).isEqualTo(1);
+
+        assertThat(inventoryService.commit(2L).status()).isEqualTo(ReservationStatus.COMMITTED);
+        assertThat(inventoryService.release(2L).status()).isEqualTo(ReservationStatus.COMMITTED);
+        assertThat(reload(rice).getStockQuantity()).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("Tranh chấp: 200 checkout đồng thời cho một sản phẩm hot chỉ bán đúng số tồn kho")
+    void testHotProductContention_NeverOversells() throws Exception {
+        int stock = 50;
+        Product hot = product("Cơm Gà Flash Sale", stock);
+
+        assertThat(contend(hot, 1000L, 200)).isEqualTo(stock);
+
+        assertThat(reload(hot).getStockQuantity()).isZero();
+        assertThat(reload(hot).getSold()).isEqualTo(stock);
+        assertThat(reservationRepository.count()).isEqualTo(stock);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark tranh chấp: 2000 checkout đồng thời cho một sản phẩm hot, đo checkout/s")
+    void testBenchmark_HotProductContention() throws Exception {
+        int stock = 500;
+        int checkouts = 2_000;
+        // Khởi động JIT và pool kết nối trước khi đo
+        contend(product("Cơm Gà Khởi Động", 50), 1L, 200);
+        Product hot = product("Cơm Gà Flash Sale", stock);
+
+        long begin = System.nanoTime();
+        int succeeded = contend(hot, 10_000L, checkouts);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        System.out.printf("Tranh chấp sản phẩm hot: %d checkout, %d thành công, %d ms (%.0f checkout/s)%n",
+                checkouts, succeeded, elapsedMs, checkouts * 1000.0 / Math.max(elapsedMs, 1));
+
+        assertThat(succeeded).isEqualTo(stock);
+        assertThat(reload(hot).getStockQuantity()).isZero();
+    }
+
+    /**
+     * {@code checkouts} lần giữ 1 sản phẩm từ 32 luồng, cùng xuất phát một lúc. Trả về số lần giữ thành công.
+     */
+    private int contend(Product product, long firstOrderId, int checkouts) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<StockReservationResult>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+            for (int i = 0; i < checkouts; i++) {
+                long orderId = firstOrderId + i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return inventoryService.reserve(request(orderId, product.getId(), 1));
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<StockReservationResult> result : results) {
+                if (result.get(30, TimeUnit.SECONDS).success()) succeeded++;
+            }
+            return succeeded;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.products;
+
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.example.products.service.ProductCatalogCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ProductCatalogCache Tests")
+class ProductCatalogCacheTest {
+
+    private ProductCatalogCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductCatalogCache();
+        cache.init();
+        loads = new AtomicInteger();
+    }
+
+    private static Product product(long id, String name) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .price(new BigDecimal("50000.00"))
+                .category(Category.builder().id(1L).name("Cơm").build())
+                .build();
+    }
+
+    private Optional<Product> load(Long id) {
+        loads.incrementAndGet();
+        return Optional.of(product(id, "Món " + id));
+    }
+
+    @Test
+    @DisplayName("get: Lần đọc thứ hai lấy từ cache, trả bản sao không dùng chung với cache")
+    void testGet_CachesAndReturnsCopies() {
+        Product first = cache.get(1L, this::load).orElseThrow();
+        first.setName("Đã sửa");
+        first.getCategory().setName("Đã sửa");
+
+        Product second = cache.get(1L, this::load).orElseThrow();
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.getName()).isEqualTo("Món 1");
+        assertThat(second.getCategory().getName()).isEqualTo("Cơm");
+    }
+
+    @Test
+    @DisplayName("get: Lần nạp từ DB cũng trả bản sao, không trả entity của loader")
+    void testGet_MissReturnsCopy() {
+        Product entity = product(1L, "Món 1");
+
+        Product result = cache.get(1L, id -> Optional.of(entity)).orElseThrow();
+
+        assertThat(result).isNotSameAs(entity);
+        assertThat(result.getCategory()).isNotSameAs(entity.getCategory());
+        assertThat(result.getName()).isEqualTo("Món 1");
+    }
+
+    @Test
+    @DisplayName("getAll: Chỉ nạp ID chưa có trong cache, giữ thứ tự yêu cầu và bỏ ID không tồn tại")
+    void testGetAll_LoadsOnlyMissingIds() {
+        cache.get(2L, this::load);
+        List<Collection<Long>> requested = new ArrayList<>();
+
+        List<Product> result = cache.getAll(List.of(3L, 2L, 99L, 1L, 3L), ids -> {
+            requested.add(List.copyOf(ids));
+            return ids.stream().filter(id -> id != 99L).map(id -> product(id, "Món " + id)).toList();
+        });
+
+        assertThat(requested).containsExactly(List.of(3L, 99L, 1L));
+        assertThat(result).extracting(Product::getId).containsExactly(3L, 2L, 1L);
+        assertThat(cache.getAll(List.of(1L, 3L), ids -> List.of())).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("evict: Sản phẩm bị xoá khỏi cache được nạp lại ở lần đọc sau, top 10 cũng được nạp lại")
+    void testEvict_ReloadsProductAndTop10() {
+        cache.get(1L, this::load);
+        AtomicInteger topLoads = new AtomicInteger();
+        cache.getTop10(() -> { topLoads.incrementAndGet(); return List.of(product(1L, "Món 1")); });
+        cache.getTop10(() -> { topLoads.incrementAndGet(); return List.of(); });
+
+        cache.evictAfterCommit(List.of(1L));
+        cache.get(1L, this::load);
+        cache.getTop10(() -> { topLoads.incrementAndGet(); return List.of(); });
+
+        assertThat(loads).hasValue(2);
+        assertThat(topLoads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("get: Dữ liệu nạp trong lúc có lần xoá cache không được ghi vào cache")
+    void testGet_InvalidationDuringLoad_NotCached() {
+        cache.get(1L, id -> {
+            loads.incrementAndGet();
+            // Một request ghi commit và xoá cache trong khi lượt đọc này đang truy vấn DB
+            cache.evictAfterCommit(List.of(id));
+            return Optional.of(product(id, "Dữ liệu cũ"));
+        });
+
+        Product reloaded = cache.get(1L, this::load).orElseThrow();
+
+        assertThat(loads).hasValue(2);
+        assertThat(reloaded.getName()).isEqualTo("Món 1");
+    }
+
+    @Test
+    @DisplayName("versionTag: Chỉ đổi khi dữ liệu liên quan thay đổi, không cần nạp dữ liệu")
+    void testVersionTag_ChangesOnlyWithRelevantWrites() {
+        String catalog = cache.versionTag();
+        String product1 = cache.versionTag(1L);
+        String product2 = cache.versionTag(2L);
+
+        cache.evictAfterCommit(List.of(1L));
+
+        assertThat(cache.versionTag()).isNotEqualTo(catalog);
+        assertThat(cache.versionTag(1L)).isNotEqualTo(product1);
+        assertThat(cache.versionTag(2L)).isEqualTo(product2);
+
+        cache.evictAllAfterCommit();
+        assertThat(cache.versionTag(2L)).isNotEqualTo(product2);
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("versionTag: Đổi sau mỗi TTL kể cả khi không có lần ghi nào qua instance này")
+    void testVersionTag_ExpiresWithTtl() throws InterruptedException {
+        cache = new ProductCatalogCache();
+        ReflectionTestUtils.setField(cache, "ttlMs", 100L);
+        cache.init();
+        String catalog = cache.versionTag();
+        String product1 = cache.versionTag(1L);
+
+        Thread.sleep(250);
+
+        assertThat(cache.versionTag()).isNotEqualTo(catalog);
+        assertThat(cache.versionTag(1L)).isNotEqualTo(product1);
+    }
+
+    @Test
+    @DisplayName("Metric: Số lần hit/miss được xuất ra cache.gets")
+    void testMetrics_HitAndMissExported() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get(1L, this::load);
+        cache.get(1L, this::load);
+        cache.getAll(List.of(1L, 2L), ids -> ids.stream().map(id -> product(id, "Món " + id)).toList());
+
+        assertThat(registry.get("cache.gets").tag("cache", "products.catalog").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2.0);
+        assertThat(registry.get("cache.gets").tag("cache", "products.catalog").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(2.0);
+    }
+}
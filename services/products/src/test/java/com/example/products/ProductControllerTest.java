@@ -3,9 +3,11 @@ package com.example.products;
 import com.example.products.controller.ProductController;
 import com.example.products.dto.ProductCreateRequest;
 import com.example.products.dto.ProductCriteria; 
+import com.example.products.dto.ProductSummary;
 import com.example.products.dto.ProductUpdateRequest;
 import com.example.products.entity.Product;
 import com.example.products.service.ProductService;
+import com.example.products.service.ProductSuggester;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,9 +38,12 @@ class ProductControllerTest {
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductSuggester productSuggester;
+
     @Test
     void testList_ShouldReturn200OK() throws Exception {
-        Page<Product> emptyPage = Page.empty();
+        Page<ProductSummary> emptyPage = Page.empty();
         
         given(productService.getAllProducts(any(ProductCriteria.class), any(Pageable.class)))
                 .willReturn(emptyPage);
@@ -0,0 +1,215 @@
+package com.example.products;
+
+import com.example.products.dto.ProductRankSource;
+import com.example.products.dto.ProductSummary;
+import com.example.products.repository.ProductRepository;
+import com.example.products.service.ProductLeaderboards;
+import com.example.products.service.ProductLeaderboards.Ranking;
+import com.example.products.service.ReviewStatsAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static com.example.products.service.ProductLeaderboards.MAX_LIMIT;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductLeaderboards Tests")
+class ProductLeaderboardsTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ReviewStatsAggregator reviewStats;
+
+    private ProductLeaderboards leaderboards;
+
+    @BeforeEach
+    void setUp() {
+        leaderboards = new ProductLeaderboards(productRepository, reviewStats);
+    }
+
+    private static ProductRankSource product(long id, long categoryId, int sold, int reviewCount, long ratingSum) {
+        return new ProductRankSource(id, "Món " + id, new BigDecimal("50000"), null, 100, sold, categoryId,
+                reviewCount, ratingSum, T0.plusMinutes(id));
+    }
+
+    private void rebuildWith(ProductRankSource... products) {
+        // Mỗi lần đọc một stream mới: bản dựng bị bỏ thì đọc lại
+        when(productRepository.streamRankSources()).thenAnswer(invocation -> Arrays.stream(products));
+        leaderboards.rebuild();
+    }
+
+    private int sold(long productId) {
+        return leaderboards.top(Ranking.BEST_SELLING, null, MAX_LIMIT).stream()
+                .filter(p -> p.id() == productId).findFirst().orElseThrow().sold();
+    }
+
+    /**
+     * Đăng ký hook như trong một transaction đang mở, trả về các synchronization để test tự gọi từng pha commit.
+     */
+    private static List<TransactionSynchronization> inTransaction(Runnable registerHooks) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            registerHooks.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private List<Long> top(Ranking ranking, Long categoryId) {
+        return leaderboards.top(ranking, categoryId, 10).stream().map(ProductSummary::id).toList();
+    }
+
+    @Test
+    @DisplayName("rebuild: Xếp bán chạy, đánh giá cao (bỏ sản phẩm chưa có đánh giá), mới nhất, toàn bộ và theo danh mục")
+    void testRebuild_RanksGlobalAndPerCategory() {
+        rebuildWith(
+                product(1, 1, 50, 2, 9),    // 4.5
+                product(2, 1, 300, 4, 20),  // 5.0
+                product(3, 2, 100, 0, 0),
+                product(4, 2, 100, 10, 45)); // 4.5, nhiều lượt hơn #1
+
+        assertThat(top(Ranking.BEST_SELLING, null)).containsExactly(2L, 3L, 4L, 1L);
+        assertThat(top(Ranking.TOP_RATED, null)).containsExactly(2L, 4L, 1L);
+        assertThat(top(Ranking.NEWEST, null)).containsExactly(4L, 3L, 2L, 1L);
+        assertThat(top(Ranking.BEST_SELLING, 2L)).containsExactly(3L, 4L);
+        assertThat(top(Ranking.TOP_RATED, 2L)).containsExactly(4L);
+        assertThat(top(Ranking.BEST_SELLING, 99L)).isEmpty();
+        assertThat(leaderboards.top(Ranking.BEST_SELLING, null, 2)).extracting(ProductSummary::id).containsExactly(2L, 3L);
+        assertThat(leaderboards.top(Ranking.TOP_RATED, null, 1).get(0).averageRating()).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("addSold/addRating/remove: Bảng đổi thứ tự ngay, không dựng lại; trả hàng trừ lại số đã bán")
+    void testIncrementalUpdates() {
+        rebuildWith(product(1, 1, 10, 1, 5), product(2, 1, 20, 1, 4), product(3, 2, 30, 0, 0));
+
+        leaderboards.addSoldAfterCommit(Map.of(1L, 25));
+        assertThat(top(Ranking.BEST_SELLING, null)).containsExactly(1L, 3L, 2L);
+        assertThat(top(Ranking.BEST_SELLING, 1L)).containsExactly(1L, 2L);
+        assertThat(leaderboards.top(Ranking.BEST_SELLING, 1L, 1).get(0).stockQuantity()).isEqualTo(75);
+
+        leaderboards.addSoldAfterCommit(Map.of(1L, -25));
+        assertThat(top(Ranking.BEST_SELLING, null)).containsExactly(3L, 2L, 1L);
+
+        leaderboards.addRatingAfterCommit(3L, 5);
+        leaderboards.addRatingAfterCommit(1L, 1);
+        assertThat(top(Ranking.TOP_RATED, null)).containsExactly(3L, 2L, 1L);
+
+        leaderboards.removeAfterCommit(3L);
+        leaderboards.addSoldAfterCommit(Map.of(3L, 5));
+        assertThat(top(Ranking.BEST_SELLING, null)).containsExactly(2L, 1L);
+        assertThat(top(Ranking.TOP_RATED, 2L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("rebuild: Hook của thay đổi đã có trong DB còn chờ khoá thì bản dựng không được giữ, không bị cộng lần hai")
+    void testRebuild_DropsDeltaAlreadyInSnapshot() throws Exception {
+        rebuildWith(product(1, 1, 10, 0, 0));
+
+        Thread hook = new Thread(() -> leaderboards.addSoldAfterCommit(Map.of(1L, 5)));
+        // Giữ khoá như một lần rebuild đang chạy: hook của đơn vừa commit (+5) phải chờ
+        synchronized (leaderboards) {
+            hook.start();
+            awaitBlocked(hook);
+            // Bản dựng đọc DB sau commit đó nên đã gồm +5, nhưng hook chưa chạy xong: bỏ bản dựng
+            rebuildWith(product(1, 1, 15, 0, 0));
+        }
+        hook.join(5_000);
+
+        assertThat(leaderboards.top(Ranking.BEST_SELLING, null, 1).get(0).sold()).isEqualTo(15);
+
+        leaderboards.addSoldAfterCommit(Map.of(1L, 2));
+        assertThat(leaderboards.top(Ranking.BEST_SELLING, null, 1).get(0).sold()).isEqualTo(17);
+    }
+
+    @Test
+    @DisplayName("rebuild: Đọc DB giữa lúc đơn commit trong DB và lúc hook afterCommit chạy thì không giữ bản dựng")
+    void testRebuild_BetweenDbCommitAndHook_NotDoubleCounted() {
+        rebuildWith(product(1, 1, 10, 0, 0));
+        List<TransactionSynchronization> synchronizations =
+                inTransaction(() -> leaderboards.addSoldAfterCommit(Map.of(1L, 5)));
+
+        synchronizations.forEach(sync -> sync.beforeCommit(false));
+        // DB đã commit +5, hook chưa chạy
+        rebuildWith(product(1, 1, 15, 0, 0));
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(sold(1L)).isEqualTo(15);
+    }
+
+    @Test
+    @DisplayName("rebuild: Có đơn commit trong lúc đọc DB thì đọc lại, giữ bản dựng của lần đọc sau")
+    void testRebuild_CommitDuringRead_Retries() {
+        rebuildWith(product(1, 1, 10, 0, 0));
+        when(productRepository.streamRankSources())
+                .thenAnswer(invocation -> {
+                    // Đơn +5 commit trong khi bản dựng đang đọc DB (có thể đã thấy hoặc chưa)
+                    List<TransactionSynchronization> synchronizations =
+                            inTransaction(() -> leaderboards.addSoldAfterCommit(Map.of(1L, 5)));
+                    synchronizations.forEach(sync -> sync.beforeCommit(false));
+                    synchronizations.forEach(TransactionSynchronization::afterCommit);
+                    synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                    return Stream.of(product(1, 1, 15, 0, 0));
+                })
+                .thenAnswer(invocation -> Stream.of(product(1, 1, 15, 0, 0), product(2, 1, 1, 0, 0)));
+
+        leaderboards.rebuild();
+
+        assertThat(sold(1L)).isEqualTo(15);
+        assertThat(top(Ranking.BEST_SELLING, null)).containsExactly(1L, 2L);
+        verify(productRepository, times(3)).streamRankSources();
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (thread.getState() != Thread.State.BLOCKED) {
+            assertThat(System.currentTimeMillis()).as("luồng hook không chờ khoá").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    @DisplayName("rebuild: Cộng các đánh giá write-behind chưa flush vào điểm xếp hạng")
+    void testRebuild_MergesPendingReviews() {
+        when(reviewStats.pending(1L)).thenReturn(new long[]{0, 0, 0, 0, 3});
+
+        rebuildWith(product(1, 1, 0, 1, 2), product(2, 1, 0, 2, 8));
+
+        ProductSummary first = leaderboards.top(Ranking.TOP_RATED, null, 1).get(0);
+        assertThat(first.id()).isEqualTo(1L);
+        assertThat(first.averageRating()).isEqualTo(4.3);
+    }
+
+    @Test
+    @DisplayName("Ranking.fromParam: Không phân biệt hoa thường, giá trị lạ trả 400")
+    void testFromParam() {
+        assertThat(Ranking.fromParam("top_rated")).isEqualTo(Ranking.TOP_RATED);
+        assertThat(Ranking.fromParam(" Best_Selling ")).isEqualTo(Ranking.BEST_SELLING);
+        assertThatThrownBy(() -> Ranking.fromParam("cheapest")).isInstanceOf(ResponseStatusException.class);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.products;
+
+import com.example.products.dto.ProductCriteria;
+import com.example.products.dto.ProductSummary;
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.example.products.repository.CategoryRepository;
+import com.example.products.repository.ProductRatingRepository;
+import com.example.products.repository.ProductRepository;
+import com.example.products.service.ProductCatalogCache;
+import com.example.products.service.ProductListingEngine;
+import com.example.products.service.ReviewStatsAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Trang danh sách từ bản chụp trong bộ nhớ phải trả đúng kết quả của {@code findSummaries}.
+ */
+@DataJpaTest
+@Import({ProductListingEngine.class, ReviewStatsAggregator.class, ProductRatingRepository.class, ProductCatalogCache.class})
+@TestPropertySource(properties = {
+        "app.catalog.listing.in-memory.enabled=true",
+        "app.catalog.listing.in-memory.refresh-interval-ms=3600000"
+})
+@DisplayName("ProductListingEngine Tests")
+class ProductListingEngineTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductListingEngine listing;
+
+    private Category rice;
+    private Category noodles;
+
+    @BeforeEach
+    void setUp() {
+        rice = categoryRepository.save(Category.builder().name("Cơm").build());
+        noodles = categoryRepository.save(Category.builder().name("Bún").build());
+    }
+
+    private Product product(String name, String price, Category category) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal(price))
+                .stockQuantity(100)
+                .category(category)
+                .build());
+    }
+
+    private static ProductCriteria criteria(Long categoryId, String minPrice, String maxPrice) {
+        return new ProductCriteria(null, categoryId,
+                minPrice != null ? new BigDecimal(minPrice) : null, maxPrice != null ? new BigDecimal(maxPrice) : null, null);
+    }
+
+    private Page<ProductSummary> fromDb(ProductCriteria c, PageRequest page) {
+        return productRepository.findSummaries(null, c.categoryId(), c.minPrice(), c.maxPrice(), page);
+    }
+
+    private Page<ProductSummary> fromMemory(ProductCriteria c, PageRequest page) {
+        return listing.page(c, page.getSort(), page);
+    }
+
+    @Test
+    @DisplayName("page: Cùng nội dung và tổng số với truy vấn DB cho các bộ lọc, kiểu sắp xếp và trang")
+    void testPage_MatchesRepository() {
+        for (int i = 0; i < 60; i++) {
+            product("Món " + (char) ('A' + i % 26) + i, String.valueOf(20000 + i * 500) + ".50", i % 3 == 0 ? rice : noodles);
+        }
+        listing.rebuild();
+
+        List<ProductCriteria> filters = List.of(
+                criteria(null, null, null),
+                criteria(rice.getId(), null, null),
+                criteria(null, "30000", "40000.50"),
+                criteria(noodles.getId(), "25000.10", null));
+        List<Sort> sorts = List.of(Sort.by("price").ascending(), Sort.by("price").descending(), Sort.by("name").ascending());
+
+        for (ProductCriteria c : filters) {
+            for (Sort sort : sorts) {
+                for (int p = 0; p < 3; p++) {
+                    PageRequest page = PageRequest.of(p, 7, sort);
+                    Page<ProductSummary> expected = fromDb(c, page);
+                    Page<ProductSummary> actual = fromMemory(c, page);
+                    assertThat(actual.getTotalElements()).as("%s %s", c, sort).isEqualTo(expected.getTotalElements());
+                    assertThat(actual.getContent()).as("%s %s trang %d", c, sort, p).isEqualTo(expected.getContent());
+                }
+            }
+        }
+        assertThat(listing.page(criteria(null, null, null), Sort.by("sold"), PageRequest.of(0, 10))).isNull();
+    }
+
+    @Test
+    @DisplayName("index/addSold/addRating/remove: Bản chụp mới được thay ngay, không truy vấn DB")
+    void testIncrementalUpdates() {
+        Product a = product("Cơm Tấm", "55000", rice);
+        Product b = product("Cơm Gà", "45000", rice);
+        listing.rebuild();
+        // Kết thúc transaction của test: các hook bên dưới chạy ngay như sau commit
+        TestTransaction.end();
+
+        listing.indexAfterCommit(Product.builder()
+                .id(b.getId() + 100).name("Bún Chả").price(new BigDecimal("40000")).stockQuantity(100).category(noodles)
+                .build());
+        listing.addSoldAfterCommit(Map.of(a.getId(), 3));
+        listing.addRatingAfterCommit(b.getId(), 4);
+        listing.addRatingAfterCommit(b.getId(), 5);
+
+        List<ProductSummary> byPrice = fromMemory(criteria(null, null, null), PageRequest.of(0, 10, Sort.by("price"))).getContent();
+        assertThat(byPrice).extracting(ProductSummary::name).containsExactly("Bún Chả", "Cơm Gà", "Cơm Tấm");
+        assertThat(byPrice.get(2).sold()).isEqualTo(3);
+        assertThat(byPrice.get(2).stockQuantity()).isEqualTo(97);
+        assertThat(byPrice.get(1).averageRating()).isEqualTo(4.5);
+
+        listing.removeAfterCommit(a.getId());
+        assertThat(fromMemory(criteria(rice.getId(), null, null), PageRequest.of(0, 10, Sort.by("price"))).getContent())
+                .extracting(ProductSummary::name).containsExactly("Cơm Gà");
+        assertThat(listing.summaries(List.of(b.getId(), a.getId()))).isNull();
+    }
+
+    @Test
+    @DisplayName("rebuild: Hook của thay đổi đã có trong DB còn chờ khoá thì bản chụp không được giữ, không bị cộng lần hai")
+    void testRebuild_DropsDeltaAlreadyInSnapshot() throws Exception {
+        Product a = product("Cơm Tấm", "55000", rice);
+        listing.rebuild();
+
+        Thread hook = new Thread(() -> listing.addSoldAfterCommit(Map.of(a.getId(), 5)));
+        // Giữ khoá của bean thật (không phải proxy) như một lần rebuild đang chạy
+        synchronized (AopTestUtils.<ProductListingEngine>getTargetObject(listing)) {
+            hook.start();
+            awaitBlocked(hook);
+            a.setSold(5);
+            productRepository.saveAndFlush(a);
+            listing.rebuild();
+        }
+        hook.join(5_000);
+
+        assertThat(listing.summaries(List.of(a.getId())).get(0).sold()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("rebuild: Đọc DB giữa lúc đơn commit trong DB và lúc hook afterCommit chạy thì không giữ bản chụp")
+    void testRebuild_BetweenDbCommitAndHook_NotDoubleCounted() {
+        Product a = product("Cơm Tấm", "55000", rice);
+        listing.rebuild();
+
+        List<TransactionSynchronization> before = TransactionSynchronizationManager.getSynchronizations();
+        listing.addSoldAfterCommit(Map.of(a.getId(), 5));
+        List<TransactionSynchronization> hooks = new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+        hooks.removeAll(before);
+
+        hooks.forEach(sync -> sync.beforeCommit(false));
+        // DB đã có +5, hook chưa chạy
+        a.setSold(5);
+        a.setStockQuantity(95);
+        productRepository.saveAndFlush(a);
+        listing.rebuild();
+        // afterCompletion chạy khi transaction của test kết thúc
+        hooks.forEach(TransactionSynchronization::afterCommit);
+
+        ProductSummary summary = listing.summaries(List.of(a.getId())).get(0);
+        assertThat(summary.sold()).isEqualTo(5);
+        assertThat(summary.stockQuantity()).isEqualTo(95);
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (thread.getState() != Thread.State.BLOCKED) {
+            assertThat(System.currentTimeMillis()).as("luồng hook không chờ khoá").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: Trang 20 sản phẩm có lọc, bản chụp trong bộ nhớ so với findSummaries + count")
+    void testBenchmark_MemoryVsRepository() {
+        for (int i = 0; i < 2_000; i++) {
+            product("Món " + i, String.valueOf(20000 + (i * 37) % 80000), i % 4 == 0 ? rice : noodles);
+        }
+        listing.rebuild();
+        ProductCriteria filtered = criteria(noodles.getId(), "30000", "90000");
+        Sort sort = Sort.by("price").descending();
+
+        double dbPages = pagesPerSecond(p -> fromDb(filtered, PageRequest.of(p, 20, sort)));
+        double memoryPages = pagesPerSecond(p -> fromMemory(filtered, PageRequest.of(p, 20, sort)));
+
+        System.out.printf("Danh sách 2000 sản phẩm, trang 20 có lọc: %.0f trang/s (DB) so với %.0f trang/s (bộ nhớ)%n",
+                dbPages, memoryPages);
+
+        assertThat(fromMemory(filtered, PageRequest.of(5, 20, sort)).getContent())
+                .isEqualTo(fromDb(filtered, PageRequest.of(5, 20, sort)).getContent());
+        assertThat(memoryPages).isGreaterThan(dbPages);
+    }
+
+    private static double pagesPerSecond(Function<Integer, Page<ProductSummary>> loadPage) {
+        List<Object> sink = new ArrayList<>();
+        // Khởi động JIT và cache câu lệnh trước khi đo
+        for (int p = 0; p < 50; p++) {
+            sink.add(loadPage.apply(p % 40));
+        }
+        int pages = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < 10; round++) {
+            for (int p = 0; p < 40; p++) {
+                sink.add(loadPage.apply(p));
+                pages++;
+            }
+        }
+        return pages / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.products;
+
+import com.example.products.dto.ProductCriteria;
+import com.example.products.dto.ProductSearchSource;
+import com.example.products.repository.ProductRepository;
+import com.example.products.service.ProductSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductSearchIndex Tests")
+class ProductSearchIndexTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(productRepository);
+    }
+
+    private static ProductSearchSource source(long id, String name, String description, long categoryId, String price) {
+        return new ProductSearchSource(id, name, description, categoryId, new BigDecimal(price), T0.plusMinutes(id));
+    }
+
+    private List<Long> search(String text) {
+        return index.search(new ProductCriteria(text, null, null, null, null), Sort.by("id"));
+    }
+
+    private void rebuildWith(ProductSearchSource... sources) {
+        when(productRepository.streamSearchSources()).thenReturn(Arrays.stream(sources));
+        index.rebuild();
+    }
+
+    @Test
+    @DisplayName("search: Tìm không dấu khớp tên có dấu, mỗi từ phải xuất hiện")
+    void testSearch_DiacriticFolding() {
+        rebuildWith(
+                source(1, "Cơm Tấm Sườn Bì Chả", null, 1, "55000"),
+                source(2, "Cơm Gà Xối Mỡ", "Gà ta chiên giòn", 1, "45000"),
+                source(3, "Trà Đá", "Đồ uống giải khát", 2, "5000"));
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(search("com tam")).containsExactly(1L);
+        assertThat(search("CƠM")).containsExactly(1L, 2L);
+        assertThat(search("do uong")).containsExactly(3L);
+        assertThat(search("tam com")).containsExactly(1L);
+        assertThat(search("com pho")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("search: Từ từ 3 ký tự khớp giữa từ, từ ngắn hơn khớp theo tiền tố")
+    void testSearch_InfixAndShortPrefix() {
+        rebuildWith(
+                source(1, "Cơm Tấm Sườn", null, 1, "55000"),
+                source(2, "Phở Bò", null, 1, "50000"),
+                source(3, "Bánh Mì Ốp La", null, 1, "25000"));
+
+        assertThat(search("uon")).containsExactly(1L);
+        assertThat(search("ph")).containsExactly(2L);
+        assertThat(search("o")).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("search: Lọc danh mục/giá trên ứng viên và sắp xếp theo Sort")
+    void testSearch_FiltersAndSort() {
+        rebuildWith(
+                source(1, "Cơm Tấm Sườn", null, 1, "55000"),
+                source(2, "Cơm Gà", null, 1, "45000"),
+                source(3, "Cơm Chiên Hải Sản", null, 2, "65000"),
+                source(4, "Cơm Chay", null, 1, "30000"));
+
+        List<Long> ids = index.search(
+                new ProductCriteria("com", 1L, new BigDecimal("40000"), null, null), Sort.by("price").ascending());
+        assertThat(ids).containsExactly(2L, 1L);
+
+        assertThat(index.search(new ProductCriteria("com", null, null, null, null), Sort.by("updatedAt").descending()))
+                .containsExactly(4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    @DisplayName("index/remove: Cập nhật từng sản phẩm không cần dựng lại chỉ mục")
+    void testIncrementalUpdates() {
+        rebuildWith(source(1, "Cơm Tấm", null, 1, "55000"));
+
+        index.index(source(1, "Bún Bò Huế", null, 1, "55000"));
+        index.index(source(2, "Cơm Gà", null, 1, "45000"));
+
+        assertThat(search("com")).containsExactly(2L);
+        assertThat(search("bun bo")).containsExactly(1L);
+
+        index.remove(2L);
+        assertThat(search("com")).isEmpty();
+    }
+
+    private static final String[] QUERIES = {"com tam suon", "pho bo", "dac biet", "bun bo hue", "ca phe", "thap cam", "99999", "gan"};
+
+    private static List<ProductSearchSource> corpus(int size) {
+        String[] dishes = {"Cơm Tấm", "Phở Bò", "Bún Chả", "Bánh Mì", "Gà Rán", "Trà Sữa", "Hủ Tiếu", "Mì Quảng", "Bún Bò Huế", "Cà Phê"};
+        String[] toppings = {"Sườn", "Bì", "Chả", "Trứng", "Đặc Biệt", "Tái", "Nạm", "Gân", "Thập Cẩm", "Chay"};
+        Random random = new Random(42);
+        List<ProductSearchSource> sources = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            String name = dishes[random.nextInt(dishes.length)] + " " + toppings[random.nextInt(toppings.length)] + " " + i;
+            sources.add(source(i, name, "Món ngon số " + i, 1 + random.nextInt(8), String.valueOf(20000 + random.nextInt(80000))));
+        }
+        return sources;
+    }
+
+    // Tương đương quét toàn bảng: bỏ dấu và so chuỗi trên từng sản phẩm cho mỗi lần tìm
+    private static List<Long> scan(List<ProductSearchSource> sources, String query) {
+        List<String> terms = List.of(query.split(" "));
+        return sources.stream()
+                .filter(s -> {
+                    String text = fold(s.name()) + " " + fold(s.description());
+                    return terms.stream().allMatch(text::contains);
+                })
+                .map(ProductSearchSource::id)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("search: Cùng kết quả với quét toàn bộ kiểu LIKE '%x%' trên 2k sản phẩm ngẫu nhiên")
+    void testSearch_MatchesFullScan() {
+        List<ProductSearchSource> sources = corpus(2_000);
+        rebuildWith(sources.toArray(new ProductSearchSource[0]));
+
+        for (String query : QUERIES) {
+            assertThat(search(query)).as(query).isEqualTo(scan(sources, query));
+        }
+        assertThat(search(QUERIES[0])).isNotEmpty();
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: 100k sản phẩm, chỉ mục so với quét toàn bộ kiểu LIKE '%x%', cùng kết quả")
+    void testBenchmark_100kProducts() {
+        List<ProductSearchSource> sources = corpus(100_000);
+
+        long buildStart = System.nanoTime();
+        rebuildWith(sources.toArray(new ProductSearchSource[0]));
+        long buildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart);
+
+        int rounds = 5;
+
+        long indexStart = System.nanoTime();
+        List<List<Long>> indexResults = new ArrayList<>();
+        for (int r = 0; r < rounds; r++) {
+            for (String query : QUERIES) {
+                List<Long> ids = search(query);
+                if (r == 0) indexResults.add(ids);
+            }
+        }
+        double indexMs = (System.nanoTime() - indexStart) / 1e6 / (rounds * QUERIES.length);
+
+        long scanStart = System.nanoTime();
+        List<List<Long>> scanResults = new ArrayList<>();
+        for (int r = 0; r < rounds; r++) {
+            for (String query : QUERIES) {
+                List<Long> ids = scan(sources, query);
+                if (r == 0) scanResults.add(ids);
+            }
+        }
+        double scanMs = (System.nanoTime() - scanStart) / 1e6 / (rounds * QUERIES.length);
+
+        System.out.printf("Chỉ mục 100k sản phẩm: dựng %d ms; tìm trung bình %.2f ms/truy vấn (chỉ mục) so với %.2f ms (quét toàn bộ)%n",
+                buildMs, indexMs, scanMs);
+
+        assertThat(indexResults).isEqualTo(scanResults);
+        assertThat(indexResults.get(0)).isNotEmpty();
+    }
+
+    private static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.replace('đ', 'd').replace('Đ', 'd'), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+    }
+}
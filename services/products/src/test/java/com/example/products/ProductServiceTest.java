@@ -1,24 +1,34 @@
 package com.example.products;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.example.products.dto.ProductCreateRequest;
 import com.example.products.dto.ProductCriteria; 
+import com.example.products.dto.ProductSummary;
 import com.example.products.dto.ProductUpdateRequest;
 import com.example.products.entity.Category;
 import com.example.products.entity.Product;
 import com.example.products.repository.CategoryRepository; // Import thêm CategoryRepository
 import com.example.products.repository.ProductRepository;
+import com.example.products.service.CategoryCatalog;
+import com.example.products.service.HotStockCounters;
+import com.example.products.service.ProductCatalogCache;
+import com.example.products.service.ProductLeaderboards;
+import com.example.products.service.ProductListingEngine;
+import com.example.products.service.ProductSearchIndex;
 import com.example.products.service.ProductService;
+import com.example.products.service.ProductSuggester;
+import com.example.products.service.ReviewStatsAggregator;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -39,9 +49,38 @@ class ProductServiceTest {
     @Mock
     private CategoryRepository categoryRepository; 
 
+    @Mock
+    private HotStockCounters hotStock;
+
+    @Spy
+    private ProductCatalogCache catalogCache = new ProductCatalogCache();
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private ProductSuggester suggester;
+
+    @Mock
+    private ReviewStatsAggregator reviewStats;
+
+    @Mock
+    private ProductLeaderboards leaderboards;
+
+    @Mock
+    private CategoryCatalog categoryCatalog;
+
+    @Mock
+    private ProductListingEngine listing;
+
     @InjectMocks
     private ProductService productService;
 
+    @BeforeEach
+    void setUp() {
+        catalogCache.init();
+    }
+
     @Test
     void testGetById_Success() {
         Product sampleProduct = Product.builder().id(1L).name("Cơm Tấm").build();
@@ -89,7 +128,8 @@ class ProductServiceTest {
         
         ProductUpdateRequest request = new ProductUpdateRequest("Mới", "Mô tả mới", new BigDecimal("20000"), 20, "moi.jpg", null);        
         
-        when(productRepository.findById(1L)).thenReturn(Optional.of(existing));
+        // Có đổi tồn kho nên dòng sản phẩm được nạp kèm khoá
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(existing));
         when(productRepository.save(any(Product.class))).thenAnswer(i -> i.getArgument(0));
         
         Product updated = productService.updatePartial(1L, request);
@@ -98,6 +138,8 @@ class ProductServiceTest {
         assertThat(updated.getDescription()).isEqualTo("Mô tả mới"); // Check thêm description
         assertThat(updated.getPrice()).isEqualByComparingTo("20000.00");
         assertThat(updated.getImage()).isEqualTo("moi.jpg");
+        assertThat(updated.getStockQuantity()).isEqualTo(20);
+        verify(productRepository, never()).findById(1L);
     }
 
     @Test
@@ -122,43 +164,43 @@ class ProductServiceTest {
         assertThrows(ResponseStatusException.class, () -> productService.updatePartial(1L, request));
     }
         
-    @SuppressWarnings("unchecked")
     @Test
     void testGetAllProducts_Search_ShouldCallRepo() {
-        Page<Product> productPage = new PageImpl<>(List.of());
-        when(productRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(productPage);
+        Page<ProductSummary> productPage = new PageImpl<>(List.of());
+        when(productRepository.findSummaries(any(), any(), any(), any(), any(Pageable.class))).thenReturn(productPage);
         
         ProductCriteria criteria = new ProductCriteria("cơm", null, null, null, "newest");
         
         productService.getAllProducts(criteria, Pageable.unpaged());
         
-        verify(productRepository, times(1)).findAll(any(Specification.class), any(Pageable.class));
+        verify(productRepository, times(1)).findSummaries(eq("%cơm%"), isNull(), isNull(), isNull(), any(Pageable.class));
     }
     
-    @SuppressWarnings("unchecked")
     @Test
     void testGetAllProducts_FilterByPrice_ShouldCallRepo() {
-        Page<Product> productPage = new PageImpl<>(List.of());
-        when(productRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(productPage);
+        Page<ProductSummary> productPage = new PageImpl<>(List.of());
+        when(productRepository.findSummaries(any(), any(), any(), any(), any(Pageable.class))).thenReturn(productPage);
         
         ProductCriteria criteria = new ProductCriteria(null, null, new BigDecimal("10000"), new BigDecimal("50000"), null);
         
         productService.getAllProducts(criteria, Pageable.unpaged());
         
-        verify(productRepository, times(1)).findAll(any(Specification.class), any(Pageable.class));
+        verify(productRepository, times(1)).findSummaries(isNull(), isNull(),
+                eq(new BigDecimal("10000")), eq(new BigDecimal("50000")), any(Pageable.class));
     }
 
     @Test
     void testDelete_Success() {
-        when(productRepository.existsById(1L)).thenReturn(true);
+        when(productRepository.findCategoryIdById(1L)).thenReturn(Optional.of(2L));
         doNothing().when(productRepository).deleteById(1L);
         assertDoesNotThrow(() -> productService.delete(1L));
         verify(productRepository, times(1)).deleteById(1L);
+        verify(categoryCatalog).adjustCountAfterCommit(2L, -1);
     }
     
     @Test
     void testDelete_NotFound_ShouldThrowException() {
-        when(productRepository.existsById(99L)).thenReturn(false);
+        when(productRepository.findCategoryIdById(99L)).thenReturn(Optional.empty());
         assertThrows(ResponseStatusException.class, () -> productService.delete(99L));
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.example.products;
+
+import com.example.products.dto.ProductSuggestion;
+import com.example.products.repository.ProductRepository;
+import com.example.products.service.ProductSuggester;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductSuggester Tests")
+class ProductSuggesterTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        suggester = new ProductSuggester(productRepository);
+        suggester.init();
+    }
+
+    private static ProductSuggestion product(long id, String name, int sold, double rating) {
+        return new ProductSuggestion(id, name, null, new BigDecimal("50000"), sold, rating);
+    }
+
+    private void rebuildWith(ProductSuggestion... products) {
+        when(productRepository.streamSuggestions()).thenReturn(Arrays.stream(products));
+        suggester.rebuild();
+    }
+
+    private List<Long> suggest(String query, int limit) {
+        return suggester.suggest(query, limit).stream().map(ProductSuggestion::id).toList();
+    }
+
+    @Test
+    @DisplayName("suggest: Khớp đầu bất kỳ từ nào trong tên, không dấu, xếp theo số đã bán rồi điểm đánh giá")
+    void testSuggest_WordPrefixRankedByPopularity() {
+        rebuildWith(
+                product(1, "Cơm Tấm Sườn", 100, 4.5),
+                product(2, "Cơm Gà", 300, 4.0),
+                product(3, "Sườn Nướng", 100, 4.8),
+                product(4, "Trà Đá", 500, 5.0));
+
+        assertThat(suggest("co", 5)).containsExactly(2L, 1L);
+        assertThat(suggest("suo", 5)).containsExactly(3L, 1L);
+        assertThat(suggest("com t", 5)).containsExactly(1L);
+        assertThat(suggest("SƯỜN", 1)).containsExactly(3L);
+        assertThat(suggest("pho", 5)).isEmpty();
+        assertThat(suggest("  ", 5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("suggest: Sản phẩm có nhiều từ cùng khớp chỉ xuất hiện một lần")
+    void testSuggest_NoDuplicates() {
+        rebuildWith(product(1, "Gà Gà Gà", 10, 4.0), product(2, "Gà Rán", 5, 4.0));
+
+        assertThat(suggest("ga", 5)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("index/remove: Thay đổi sản phẩm được phản ánh ngay, kể cả tiền tố đã nhớ kết quả")
+    void testIncrementalUpdates() {
+        rebuildWith(product(1, "Cơm Tấm", 10, 4.0));
+        assertThat(suggest("c", 5)).containsExactly(1L);
+
+        suggester.index(product(2, "Cà Phê Sữa", 50, 4.0));
+        suggester.index(product(1, "Bún Bò", 10, 4.0));
+
+        assertThat(suggest("c", 5)).containsExactly(2L);
+        assertThat(suggest("bun", 5)).containsExactly(1L);
+
+        suggester.remove(2L);
+        assertThat(suggest("c", 5)).isEmpty();
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Độ trễ: 100k sản phẩm, đo p99 của các truy vấn gợi ý")
+    void testLatency_100kProducts() {
+        String[] dishes = {"Cơm Tấm", "Phở Bò", "Bún Chả", "Bánh Mì", "Gà Rán", "Trà Sữa", "Hủ Tiếu", "Mì Quảng", "Bún Bò Huế", "Cà Phê"};
+        Random random = new Random(7);
+        List<ProductSuggestion> products = new ArrayList<>();
+        for (int i = 1; i <= 100_000; i++) {
+            products.add(product(i, dishes[random.nextInt(dishes.length)] + " " + i, random.nextInt(10_000), random.nextInt(50) / 10.0));
+        }
+        rebuildWith(products.toArray(new ProductSuggestion[0]));
+
+        // Lượt gõ thật lặp lại nhiều: ~1000 tiền tố khác nhau (lần đầu phải duyệt khoảng tiền tố), mỗi tiền tố gõ nhiều lần
+        List<String> queries = new ArrayList<>();
+        for (String dish : new String[]{"c", "co", "com", "com t", "pho b", "bu", "bun bo h", "ca ph", "tra s", "mi q"}) {
+            queries.add(dish);
+        }
+        for (int i = 0; i < 990; i++) {
+            queries.add(String.valueOf(1 + random.nextInt(99_999)));
+        }
+
+        long[] samples = new long[20_000];
+        for (int i = 0; i < samples.length; i++) {
+            String query = queries.get(random.nextInt(queries.size()));
+            long start = System.nanoTime();
+            suggester.suggest(query, 5);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double p50 = samples[samples.length / 2] / 1e6;
+        double p99 = samples[(int) (samples.length * 0.99)] / 1e6;
+
+        long coldStart = System.nanoTime();
+        suggester.index(product(100_001, "Cơm Chiên Dương Châu", 1, 1.0));
+        suggester.suggest("com", 5);
+        double coldMs = (System.nanoTime() - coldStart) / 1e6;
+        System.out.printf("Gợi ý tìm kiếm 100k sản phẩm: p50 %.3f ms, p99 %.3f ms; tiền tố \"com\" tính lại sau khi ghi %.3f ms%n",
+                p50, p99, coldMs);
+
+        assertThat(suggester.suggest("com t", 5)).hasSize(5)
+                .isSortedAccordingTo((a, b) -> Integer.compare(b.sold(), a.sold()));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.products;
+
+import com.example.products.dto.ProductSummary;
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.example.products.repository.CategoryRepository;
+import com.example.products.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Trang danh sách đọc {@link ProductSummary} bằng constructor expression thay vì cả entity Product.
+ */
+@DataJpaTest
+@DisplayName("ProductRepository.findSummaries Tests")
+class ProductSummaryQueryTest {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Category rice;
+    private Category noodles;
+
+    @BeforeEach
+    void setUp() {
+        rice = categoryRepository.save(Category.builder().name("Cơm").description("Các món cơm").build());
+        noodles = categoryRepository.save(Category.builder().name("Bún").description("Các món bún").build());
+    }
+
+    private Product product(String name, String price, Category category) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .description("Mô tả món " + name + ". " + "Nguyên liệu tươi, chế biến trong ngày. ".repeat(8))
+                .price(new BigDecimal(price))
+                .stockQuantity(100)
+                .image(name.toLowerCase().replace(' ', '-') + ".jpg")
+                .category(category)
+                .build());
+    }
+
+    @Test
+    @DisplayName("findSummaries: Lọc tên/danh mục/giá, bỏ qua điều kiện null và sắp xếp theo Pageable")
+    void testFindSummaries_FiltersAndSort() {
+        product("Cơm Tấm", "55000", rice);
+        product("Cơm Gà", "45000", rice);
+        product("Bún Chả", "40000", noodles);
+
+        Page<ProductSummary> all = productRepository.findSummaries(null, null, null, null,
+                PageRequest.of(0, 10, Sort.by("price").ascending()));
+        assertThat(all.getContent()).extracting(ProductSummary::name).containsExactly("Bún Chả", "Cơm Gà", "Cơm Tấm");
+        assertThat(all.getContent().get(0).categoryId()).isEqualTo(noodles.getId());
+
+        Page<ProductSummary> filtered = productRepository.findSummaries("%cơm%", rice.getId(),
+                new BigDecimal("50000"), null, PageRequest.of(0, 10, Sort.by("price").descending()));
+        assertThat(filtered.getTotalElements()).isEqualTo(1);
+        assertThat(filtered.getContent()).extracting(ProductSummary::name).containsExactly("Cơm Tấm");
+    }
+
+    @Test
+    @DisplayName("findSummaries: JSON trang 20 sản phẩm nhỏ hơn một nửa so với entity")
+    void testSummaryJson_SmallerThanEntity() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            product("Món " + i, String.valueOf(20000 + i), i % 2 == 0 ? rice : noodles);
+        }
+        PageRequest page = PageRequest.of(3, 20, Sort.by("updatedAt").descending());
+
+        byte[] entityJson = MAPPER.writeValueAsBytes(productRepository.findAll(page).getContent());
+        byte[] summaryJson = MAPPER.writeValueAsBytes(
+                productRepository.findSummaries(null, null, null, null, page).getContent());
+
+        assertThat(summaryJson.length).isLessThan(entityJson.length / 2);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: Kích thước JSON và số dòng/giây của trang 20 sản phẩm, entity so với ProductSummary")
+    void testBenchmark_EntityVsSummary() throws Exception {
+        for (int i = 0; i < 2_000; i++) {
+            product("Món " + i, String.valueOf(20000 + i), i % 2 == 0 ? rice : noodles);
+        }
+        PageRequest page = PageRequest.of(3, 20, Sort.by("updatedAt").descending());
+
+        byte[] entityJson = MAPPER.writeValueAsBytes(productRepository.findAll(page).getContent());
+        byte[] summaryJson = MAPPER.writeValueAsBytes(
+                productRepository.findSummaries(null, null, null, null, page).getContent());
+
+        double entityRows = rowsPerSecond(p -> productRepository.findAll(PageRequest.of(p, 20, page.getSort())).getContent());
+        double summaryRows = rowsPerSecond(p -> productRepository.findSummaries(null, null, null, null,
+                PageRequest.of(p, 20, page.getSort())).getContent());
+
+        System.out.printf("Trang 20 sản phẩm: %d bytes (entity) so với %d bytes (ProductSummary); "
+                        + "%.0f so với %.0f dòng/s (truy vấn + JSON)%n",
+                entityJson.length, summaryJson.length, entityRows, summaryRows);
+
+        assertThat(summaryJson.length).isLessThan(entityJson.length / 2);
+    }
+
+    private static double rowsPerSecond(IntFunction<List<?>> loadPage) throws Exception {
+        List<Object> sink = new ArrayList<>();
+        // Khởi động JIT và cache câu lệnh trước khi đo
+        for (int p = 0; p < 20; p++) {
+            sink.add(MAPPER.writeValueAsBytes(loadPage.apply(p)));
+        }
+        int rows = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < 5; round++) {
+            for (int p = 0; p < 100; p++) {
+                List<?> content = loadPage.apply(p);
+                sink.add(MAPPER.writeValueAsBytes(content));
+                rows += content.size();
+            }
+        }
+        return rows / ((System.nanoTime() - start) / 1e9);
+    }
+}
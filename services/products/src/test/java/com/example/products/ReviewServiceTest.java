@@ -0,0 +1,137 @@
+package com.example.products;
+
+import com.example.products.dto.RatingSummary;
+import com.example.products.dto.ReviewCreateRequest;
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.example.products.entity.Review;
+import com.example.products.repository.CategoryRepository;
+import com.example.products.repository.ProductRatingRepository;
+import com.example.products.repository.ProductRepository;
+import com.example.products.repository.ReviewRepository;
+import com.example.products.service.ProductCatalogCache;
+import com.example.products.service.ProductLeaderboards;
+import com.example.products.service.ProductListingEngine;
+import com.example.products.service.ReviewService;
+import com.example.products.service.ReviewStatsAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Thống kê đánh giá cộng dồn bằng UPDATE nguyên tử: không mất lượt khi nhiều người đánh giá cùng lúc.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Mỗi đánh giá commit riêng như request thật
+@Import({ReviewService.class, ReviewStatsAggregator.class, ProductRatingRepository.class, ProductCatalogCache.class,
+        ProductLeaderboards.class, ProductListingEngine.class})
+@DisplayName("ReviewService Tests")
+class ReviewServiceTest {
+
+    @Autowired
+    private ReviewService reviewService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        reviewRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        Category category = categoryRepository.save(Category.builder().name("Cơm").build());
+        product = productRepository.save(Product.builder()
+                .name("Cơm Tấm")
+                .price(new BigDecimal("55000.00"))
+                .category(category)
+                .build());
+    }
+
+    private ReviewCreateRequest review(long orderId, int rating) {
+        return new ReviewCreateRequest(product.getId(), orderId, rating, "Ngon", "Khách " + orderId);
+    }
+
+    @Test
+    @DisplayName("createReview: Cập nhật tổng điểm, số lượt, biểu đồ sao; điểm trung bình tính khi đọc")
+    void testCreateReview_UpdatesAggregates() {
+        reviewService.createReview("u1", review(1, 5));
+        reviewService.createReview("u2", review(2, 4));
+        reviewService.createReview("u3", review(3, 4));
+
+        RatingSummary summary = reviewService.getRatingSummary(product.getId());
+
+        assertThat(summary.reviewCount()).isEqualTo(3);
+        assertThat(summary.averageRating()).isEqualTo(4.3);
+        assertThat(summary.histogram()).containsExactly(0, 0, 0, 2, 1);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getRatingSum()).isEqualTo(13L);
+    }
+
+    @Test
+    @DisplayName("createReview: 100 đánh giá đồng thời cho một sản phẩm không mất lượt nào")
+    void testConcurrentReviews_NoLostUpdates() throws Exception {
+        int reviews = 100;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < reviews; i++) {
+                long orderId = 1000L + i;
+                int rating = 1 + i % 5;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return reviewService.createReview("u" + orderId, review(orderId, rating));
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        RatingSummary summary = reviewService.getRatingSummary(product.getId());
+        assertThat(summary.reviewCount()).isEqualTo(reviews);
+        assertThat(summary.histogram()).containsExactly(20, 20, 20, 20, 20);
+        assertThat(summary.averageRating()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("reconcileRatingStats: Sản phẩm có đánh giá cũ được tính lại tổng điểm và biểu đồ từ bảng reviews")
+    void testBackfill_FromExistingReviews() {
+        for (int rating : new int[]{5, 5, 3}) {
+            reviewRepository.save(Review.builder()
+                    .userId("u" + rating).orderId((long) rating).rating(rating).product(product).build());
+        }
+        // Dữ liệu trước khi có rating_sum: chỉ có review_count
+        jdbcTemplate.update("UPDATE products SET review_count = 3 WHERE id = ?", product.getId());
+
+        reviewService.reconcileRatingStats();
+
+        RatingSummary summary = reviewService.getRatingSummary(product.getId());
+        assertThat(summary.reviewCount()).isEqualTo(3);
+        assertThat(summary.averageRating()).isEqualTo(4.3);
+        assertThat(summary.histogram()).containsExactly(0, 0, 1, 0, 2);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.products;
+
+import com.example.products.entity.Category;
+import com.example.products.entity.Product;
+import com.example.products.repository.CategoryRepository;
+import com.example.products.repository.ProductRatingRepository;
+import com.example.products.repository.ProductRepository;
+import com.example.products.service.ProductCatalogCache;
+import com.example.products.service.ReviewStatsAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Gom thống kê đánh giá trong bộ nhớ: không mất lượt cộng nào dù flush chạy song song và khi dừng ứng dụng.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Mỗi lượt flush commit riêng như khi chạy thật
+@TestPropertySource(properties = {
+        "app.reviews.write-behind.enabled=true",
+        "app.reviews.write-behind.flush-interval-ms=3600000" // Test tự gọi flush()
+})
+@Import({ReviewStatsAggregator.class, ProductRatingRepository.class, ProductCatalogCache.class})
+@DisplayName("ReviewStatsAggregator Tests")
+class ReviewStatsAggregatorTest {
+
+    @Autowired
+    private ReviewStatsAggregator aggregator;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        aggregator.flush();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        category = categoryRepository.save(Category.builder().name("Cơm").build());
+    }
+
+    private Product product(String name) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("50000.00"))
+                .category(category)
+                .build());
+    }
+
+    private Product reload(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("merge: Giá trị đọc là giá trị đã lưu cộng phần chưa flush; flush ghi đúng phần đó vào DB")
+    void testMergeAndFlush() {
+        Product product = product("Cơm Tấm");
+        aggregator.addAfterCommit(product.getId(), 5);
+        aggregator.addAfterCommit(product.getId(), 4);
+
+        Product read = reload(product);
+        aggregator.merge(read);
+        assertThat(read.getReviewCount()).isEqualTo(2);
+        assertThat(read.getAverageRating()).isEqualTo(4.5);
+        assertThat(reload(product).getReviewCount()).isZero();
+
+        assertThat(aggregator.flush()).isEqualTo(1);
+
+        Product flushed = reload(product);
+        assertThat(flushed.getReviewCount()).isEqualTo(2);
+        assertThat(flushed.getRatingSum()).isEqualTo(9L);
+        assertThat(flushed.getAverageRating()).isEqualTo(4.5);
+        aggregator.merge(flushed);
+        assertThat(flushed.getReviewCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Stress: 16 luồng cộng đồng thời trong lúc flush liên tục, flush khi dừng: không mất lượt nào")
+    void testStress_NoLostIncrementsAcrossFlushAndShutdown() throws Exception {
+        List<Product> products = List.of(product("Cơm Tấm"), product("Phở Bò"), product("Bún Chả"));
+        int threads = 16;
+        int perThread = 5_000;
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        Product product = products.get((seed + i) % products.size());
+                        aggregator.addAfterCommit(product.getId(), 1 + (seed + i) % 5);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            // Flush liên tục trong lúc các luồng đang cộng
+            while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+                aggregator.flush();
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        // Phần còn lại chỉ được ghi khi dừng ứng dụng
+        aggregator.flushOnShutdown();
+
+        long total = (long) threads * perThread;
+        long count = 0;
+        long sum = 0;
+        long[] histogram = new long[5];
+        for (Product product : products) {
+            Product stored = reload(product);
+            count += stored.getReviewCount();
+            sum += stored.getRatingSum();
+            histogram[0] += stored.getRating1();
+            histogram[1] += stored.getRating2();
+            histogram[2] += stored.getRating3();
+            histogram[3] += stored.getRating4();
+            histogram[4] += stored.getRating5();
+        }
+
+        assertThat(count).isEqualTo(total);
+        assertThat(histogram).containsExactly(total / 5, total / 5, total / 5, total / 5, total / 5);
+        assertThat(sum).isEqualTo(total / 5 * (1 + 2 + 3 + 4 + 5));
+    }
+}
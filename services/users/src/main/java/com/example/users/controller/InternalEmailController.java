@@ -9,6 +9,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/api/internal/email") 
 @RequiredArgsConstructor
@@ -33,4 +40,35 @@ public class InternalEmailController {
 
         return ResponseEntity.ok("Email request queued");
     }
-}
\ No newline at end of file
+
+    /**
+     * Nhận một lô thông báo từ outbox của Orders Service.
+     * Nạp toàn bộ user của lô bằng một truy vấn, rồi xếp hàng gửi mail (@Async) cho từng đơn.
+     */
+    @PostMapping("/send-order-notifications")
+    public ResponseEntity<Map<String, Integer>> sendOrderNotifications(@RequestBody List<SendOrderEmailRequest> requests) {
+        log.info("Internal API: Nhận lô {} yêu cầu gửi mail đơn hàng", requests.size());
+
+        Set<Long> userIds = requests.stream()
+                .map(SendOrderEmailRequest::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, User> usersById = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        int queued = 0;
+        int skipped = 0;
+        for (SendOrderEmailRequest request : requests) {
+            User user = usersById.get(request.getUserId());
+            if (user == null) {
+                log.warn("Không tìm thấy user ID: {}, bỏ qua gửi mail cho Order #{}.", request.getUserId(), request.getOrderId());
+                skipped++;
+                continue;
+            }
+            emailService.sendOrderNotification(user.getEmail(), user.getName(), request);
+            queued++;
+        }
+
+        return ResponseEntity.ok(Map.of("queued", queued, "skipped", skipped));
+    }
+}
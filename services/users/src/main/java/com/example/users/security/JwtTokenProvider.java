@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication; 
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import com.example.users.entity.User;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,6 +24,12 @@ public class JwtTokenProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    /**
+     * Claim chứa ID người dùng, để các service khác (orders-service) lấy được userId
+     * trực tiếp từ token mà không cần gọi ngược lại /api/users/me.
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
     @Value("${app.jwt.secret-key}")
     private String jwtSecret;
 
@@ -53,13 +60,17 @@ public class JwtTokenProvider {
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .subject(username)
                 .claim("roles", roles)
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(this.key)
-                .compact();
+                .expiration(expiryDate);
+
+        if (authentication.getPrincipal() instanceof User user && user.getId() != null) {
+            builder.claim(USER_ID_CLAIM, user.getId());
+        }
+
+        return builder.signWith(this.key).compact();
     }
 
     private Claims parseClaims(String token) {
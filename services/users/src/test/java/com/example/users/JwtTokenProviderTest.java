@@ -1,5 +1,6 @@
 package com.example.users; 
 
+import com.example.users.entity.User;
 import com.example.users.security.JwtTokenProvider;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
@@ -147,6 +148,24 @@ class JwtTokenProviderTest {
     }
 
 
+    @Test
+    @DisplayName("generateToken: Nhúng claim 'uid' khi principal là User")
+    void testGenerateToken_WithUserPrincipal_ShouldEmbedUserId() {
+        User user = User.builder().id(42L).email("test@example.com").build();
+        when(authentication.getPrincipal()).thenReturn(user);
+
+        String token = jwtTokenProvider.generateToken(authentication);
+
+        SecretKey key = (SecretKey) ReflectionTestUtils.getField(jwtTokenProvider, "key");
+        Number uid = Jwts.parser().verifyWith(key).build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .get(JwtTokenProvider.USER_ID_CLAIM, Number.class);
+
+        assertThat(uid).isNotNull();
+        assertThat(uid.longValue()).isEqualTo(42L);
+    }
+
     @Test
     @DisplayName("validateToken: Trả về true cho token hợp lệ")
     void testValidateToken_ValidToken() {